@@ -0,0 +1,103 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import monitoring.EventLog;
+
+/**
+ * Cost of logging on the request threads. The previous hot-path styles are
+ * a synchronous println of a concatenated line (Marketplace, SellerStub)
+ * and String.format with a timestamp (ProcessMonitor). EventLog only
+ * claims a ring slot and leaves formatting to its writer thread, which
+ * also adds a timestamp and the thread name to every line.
+ *
+ * stdout is replaced by a discarding stream, so the numbers show the
+ * formatting and lock cost rather than the terminal. "caller" is the rate
+ * seen by the logging threads. "written" counts only the lines that reached
+ * the stream, up to the point where the writer is done. Events the full
+ * ring dropped are listed separately.
+ *
+ * Usage: EventLogBenchmark [eventsPerThread=50000] [threads=1,4,16]
+ */
+public class EventLogBenchmark {
+    private static final String[] LOGGERS = { "println", "format", "event-log" };
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        String[] threadLevels = (args.length > 1 ? args[1] : "1,4,16").split(",");
+
+        PrintStream console = System.out;
+        console.println("=== Event Log Benchmark ===");
+        console.println("CPU cores: " + Runtime.getRuntime().availableProcessors() + ", events per thread: " + events);
+
+        // Muss vor dem ersten EventLog-Aufruf gesetzt sein: der Writer übernimmt System.out
+        System.setOut(new PrintStream(OutputStream.nullOutputStream(), false));
+        EventLog.configure("INFO", EventLog.DEFAULT_CAPACITY);
+
+        // Aufwärmen (auch der Writer-Thread muss kompiliert sein)
+        for (int round = 0; round < 5; round++) {
+            for (String logger : LOGGERS) {
+                run(logger, 1, events);
+            }
+        }
+
+        console.println(String.format("\n%-10s %8s %16s %16s %10s", "logger", "threads", "caller ev/s", "written ev/s", "dropped"));
+        for (String level : threadLevels) {
+            int threads = Integer.parseInt(level.trim());
+            for (String logger : LOGGERS) {
+                long droppedBefore = EventLog.getDropped();
+                long[] nanos = run(logger, threads, events);
+                long dropped = EventLog.getDropped() - droppedBefore;
+                double total = (double) threads * events;
+                console.println(String.format("%-10s %8d %16.0f %16.0f %10d", logger, threads,
+                        total * 1e9 / nanos[0], (total - dropped) * 1e9 / nanos[1], dropped));
+            }
+        }
+        System.setOut(console);
+    }
+
+    /**
+     * @return {Zeit bis alle Threads fertig sind, Zeit bis alles geschrieben ist} in ns
+     */
+    private static long[] run(String logger, int threads, int events) throws Exception {
+        int style = Arrays.asList(LOGGERS).indexOf(logger);
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            String thread = "worker-" + t;
+            Thread worker = new Thread(() -> {
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < events; i++) {
+                    if (style == 0) {
+                        System.out.println("[RESERVE] ✅ Confirmed order " + i + " for " + 3 + "x " + "laptop");
+                    } else if (style == 1) {
+                        System.out.println(String.format("[%s] [%s] [RESERVE] ✅ Confirmed order %d for %dx %s",
+                                LocalDateTime.now().format(TIMESTAMP), thread, i, 3, "laptop"));
+                    } else {
+                        EventLog.info("[RESERVE] ✅ Confirmed order {} for {}x {}", i, 3, "laptop");
+                    }
+                }
+                done.countDown();
+            }, thread);
+            worker.start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        done.await();
+        long callerNanos = System.nanoTime() - start;
+        EventLog.flush();
+        return new long[] { callerNanos, System.nanoTime() - start };
+    }
+}
@@ -0,0 +1,224 @@
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.zeromq.ZMQ;
+import org.zeromq.ZMsg;
+
+import marketplace.Marketplace;
+import marketplace.MarketplaceConfig;
+import messaging.MessageUtils;
+import messaging.WireCodec;
+import messaging.WireMessage;
+
+/**
+ * Concurrent-saga scaling of the marketplace executor modes (fixed vs. virtual).
+ *
+ * Every saga is a real Marketplace.placeOrder() over the sync REQ/REP
+ * transport, against in-process stub sellers. Each stub is a ROUTER socket
+ * that answers every request after a fixed latency and never runs out of
+ * stock. All orders of a run are placed at once from virtual caller
+ * threads, so the run time shows how many blocking seller calls the
+ * marketplace executor can keep open in parallel. Retries, circuit breakers
+ * and the availability cache are off. Without stock hints the broadcast
+ * selection reserves at every seller, commits one and releases the rest, so
+ * a saga costs two blocking round trips per seller.
+ *
+ * Usage: ExecutorScalingBenchmark [sellers=5] [latencyMs=10] [inFlight=1000,10000] [poolSize=10]
+ */
+public class ExecutorScalingBenchmark {
+    private static final int BASE_PORT = 6655;
+    private static final int STOCK = 1_000_000;
+    private static final int TIMEOUT_MS = 60_000;
+
+    public static void main(String[] args) throws Exception {
+        int sellers = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int latencyMs = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int[] inFlightLevels = Arrays.stream((args.length > 2 ? args[2] : "1000,10000").split(","))
+                .mapToInt(level -> Integer.parseInt(level.trim()))
+                .toArray();
+        int poolSize = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+
+        System.out.println("=== Executor Scaling Benchmark ===");
+        System.out.println(String.format("Stub sellers: %d, seller latency: %dms, fixed pool size: %d",
+                sellers, latencyMs, poolSize));
+
+        List<StubSeller> stubs = new ArrayList<>(sellers);
+        List<String> endpoints = new ArrayList<>(sellers);
+        for (int s = 0; s < sellers; s++) {
+            StubSeller stub = new StubSeller("tcp://127.0.0.1:" + (BASE_PORT + s), latencyMs);
+            Thread thread = new Thread(stub, "stub-seller-" + s);
+            thread.setDaemon(true);
+            thread.start();
+            stubs.add(stub);
+            endpoints.add(stub.endpoint);
+        }
+
+        // Aufwärmen, damit JIT, Socket-Pool und Carrier-Threads nicht die erste Messung verfälschen
+        run("virtual", poolSize, 200, endpoints);
+        run("fixed", poolSize, 200, endpoints);
+
+        System.out.println(String.format("\n%-8s %9s %10s %12s %8s %8s %8s",
+                "mode", "inFlight", "total ms", "sagas/s", "p50 ms", "p99 ms", "failed"));
+        for (int inFlight : inFlightLevels) {
+            for (String mode : new String[] { "fixed", "virtual" }) {
+                Result result = run(mode, poolSize, inFlight, endpoints);
+                System.out.println(String.format("%-8s %9d %10d %12.1f %8d %8d %8d",
+                        mode, inFlight, result.totalMs, inFlight * 1000.0 / Math.max(1, result.totalMs),
+                        result.percentile(50), result.percentile(99), result.failed));
+            }
+        }
+
+        stubs.forEach(StubSeller::stop);
+    }
+
+    private static Result run(String mode, int poolSize, int inFlight, List<String> endpoints) throws Exception {
+        Marketplace marketplace = new Marketplace(config(mode, poolSize, endpoints));
+        // Aufrufer blockieren in placeOrder, der gemessene Pool ist der Executor des Marketplace
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+
+        long[] latencies = new long[inFlight];
+        AtomicInteger failed = new AtomicInteger(0);
+        List<CompletableFuture<Void>> sagas = new ArrayList<>(inFlight);
+        long start = System.nanoTime();
+
+        for (int i = 0; i < inFlight; i++) {
+            final int index = i;
+            sagas.add(CompletableFuture.runAsync(() -> {
+                if (!marketplace.placeOrder("bench-item", 1)) {
+                    failed.incrementAndGet();
+                }
+                latencies[index] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            }, callers));
+        }
+
+        CompletableFuture.allOf(sagas.toArray(new CompletableFuture<?>[0])).join();
+        long totalMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        callers.shutdown();
+        marketplace.stop();
+
+        Arrays.sort(latencies);
+        return new Result(totalMs, latencies, failed.get());
+    }
+
+    private static MarketplaceConfig config(String mode, int poolSize, List<String> endpoints) {
+        MarketplaceConfig config = new MarketplaceConfig();
+        config.sellers = endpoints;
+        config.marketplace = new MarketplaceConfig.MarketplaceInfo();
+        config.marketplace.name = "MP-BENCH-" + mode;
+        config.orders = new MarketplaceConfig.OrderSettings();
+        config.orders.timeout_ms = TIMEOUT_MS;
+        config.simulation = new MarketplaceConfig.SimulationSettings();
+        config.simulation.enable_logging = false;
+        config.executor.type = mode;
+        config.executor.pool_size = poolSize;
+        config.messaging.mode = "sync";
+        config.messaging.retry_attempts = 1;
+        config.availability.enabled = false;
+        config.circuit_breaker.enabled = false;
+        return config;
+    }
+
+    /**
+     * ROUTER-Seller im Prozess: bestätigt alles nach fester Latenz, ein Thread für alle Anfragen
+     */
+    private static class StubSeller implements Runnable {
+        final String endpoint;
+        final long latencyNanos;
+        volatile boolean running = true;
+
+        StubSeller(String endpoint, int latencyMs) {
+            this.endpoint = endpoint;
+            this.latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMs);
+        }
+
+        @Override
+        public void run() {
+            ZMQ.Socket router = MessageUtils.createSocket("ROUTER", true, endpoint);
+            // Feste Latenz: Antworten werden in Ankunftsreihenfolge fällig
+            Deque<Pending> pending = new ArrayDeque<>();
+            try {
+                while (running) {
+                    long waitNanos = pending.isEmpty() ? TimeUnit.MILLISECONDS.toNanos(100)
+                            : pending.peekFirst().due - System.nanoTime();
+                    router.setReceiveTimeOut((int) Math.max(0, TimeUnit.NANOSECONDS.toMillis(waitNanos)));
+                    ZMsg request = ZMsg.recvMsg(router);
+                    while (request != null) {
+                        byte[] reply = reply(request.removeLast().getData());
+                        request.add(reply);
+                        pending.addLast(new Pending(System.nanoTime() + latencyNanos, request));
+                        request = ZMsg.recvMsg(router, ZMQ.DONTWAIT);
+                    }
+                    while (!pending.isEmpty() && pending.peekFirst().due <= System.nanoTime()) {
+                        pending.pollFirst().message.send(router);
+                    }
+                }
+            } finally {
+                router.close();
+            }
+        }
+
+        void stop() {
+            running = false;
+        }
+
+        private static byte[] reply(byte[] payload) {
+            WireMessage request = WireCodec.decodeAny(payload);
+            WireMessage reply;
+            switch (request.op) {
+                case HEALTH_CHECK:
+                    return ("HEALTHY:wire=" + WireCodec.VERSION).getBytes(StandardCharsets.UTF_8);
+                case RESERVE:
+                    reply = WireMessage.confirmed(request.orderId, request.quantity, STOCK);
+                    break;
+                case COMMIT:
+                    reply = WireMessage.committed(request.orderId, request.quantity, STOCK);
+                    break;
+                case CANCEL:
+                    reply = WireMessage.rolledBack(request.orderId, STOCK);
+                    break;
+                default:
+                    reply = WireMessage.error("Unsupported operation " + request.op);
+                    break;
+            }
+            return WireCodec.isBinary(payload) ? WireCodec.encode(reply)
+                    : WireCodec.toText(reply).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private static class Pending {
+        final long due;
+        final ZMsg message;
+
+        Pending(long due, ZMsg message) {
+            this.due = due;
+            this.message = message;
+        }
+    }
+
+    private static class Result {
+        final long totalMs;
+        final long[] sortedLatencies;
+        final int failed;
+
+        Result(long totalMs, long[] sortedLatencies, int failed) {
+            this.totalMs = totalMs;
+            this.sortedLatencies = sortedLatencies;
+            this.failed = failed;
+        }
+
+        long percentile(double p) {
+            int index = (int) Math.ceil(p / 100.0 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+        }
+    }
+}
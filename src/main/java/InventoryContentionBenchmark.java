@@ -0,0 +1,146 @@
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+import seller.ProductInventory;
+
+/**
+ * Reserve/commit/release throughput of the seller inventory under contention.
+ *
+ * "locked" mirrors the previous SellerStub design: one global monitor around
+ * a total map and a reserved map. "lock-free" is ProductInventory, one packed
+ * total/reserved word per product updated by CAS. Every operation reserves
+ * one item and then either releases it (3 of 4) or commits it; the initial
+ * stock is sized so that it never runs out.
+ *
+ * Workloads:
+ *   hot     - every thread hits the same product
+ *   uniform - threads pick one of 64 products at random
+ *
+ * Usage: InventoryContentionBenchmark [opsPerThread=500000] [threads=1,2,4,8,16,32]
+ */
+public class InventoryContentionBenchmark {
+    private static final int PRODUCTS = 64;
+
+    public static void main(String[] args) throws Exception {
+        int opsPerThread = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        String[] threadLevels = (args.length > 1 ? args[1] : "1,2,4,8,16,32").split(",");
+
+        System.out.println("=== Inventory Contention Benchmark ===");
+        System.out.println("CPU cores: " + Runtime.getRuntime().availableProcessors() +
+                           ", ops per thread: " + opsPerThread);
+
+        // Aufwärmen
+        for (String workload : new String[] { "hot", "uniform" }) {
+            run("locked", workload, 4, opsPerThread / 5);
+            run("lock-free", workload, 4, opsPerThread / 5);
+        }
+
+        System.out.println(String.format("\n%-8s %8s %14s %14s %8s",
+                "workload", "threads", "locked ops/s", "lock-free ops/s", "speedup"));
+        for (String workload : new String[] { "hot", "uniform" }) {
+            for (String level : threadLevels) {
+                int threads = Integer.parseInt(level.trim());
+                double locked = run("locked", workload, threads, opsPerThread);
+                double lockFree = run("lock-free", workload, threads, opsPerThread);
+                System.out.println(String.format("%-8s %8d %14.0f %14.0f %7.1fx",
+                        workload, threads, locked, lockFree, lockFree / locked));
+            }
+        }
+    }
+
+    private static double run(String store, String workload, int threads, int opsPerThread) throws Exception {
+        Map<String, Integer> initial = new LinkedHashMap<>();
+        for (int i = 0; i < PRODUCTS; i++) {
+            initial.put("product-" + i, threads * opsPerThread);
+        }
+        Inventory inventory = "locked".equals(store) ? new LockedInventory(initial) : new LockFreeInventory(initial);
+        String[] products = initial.keySet().toArray(new String[0]);
+        boolean hot = "hot".equals(workload);
+
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < opsPerThread; i++) {
+                    String product = hot ? products[0] : products[random.nextInt(PRODUCTS)];
+                    if (inventory.reserve(product, 1) > 0) {
+                        if ((i & 3) == 0) {
+                            inventory.commit(product, 1, 1);
+                        } else {
+                            inventory.release(product, 1);
+                        }
+                    }
+                }
+                done.countDown();
+            });
+            worker.start();
+        }
+        ready.await();
+        long start = System.nanoTime();
+        go.countDown();
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        return (double) threads * opsPerThread * 1_000_000_000L / elapsed;
+    }
+
+    private interface Inventory {
+        int reserve(String product, int qty);
+        void commit(String product, int committed, int held);
+        void release(String product, int held);
+    }
+
+    private static class LockFreeInventory implements Inventory {
+        private final ProductInventory inventory;
+
+        LockFreeInventory(Map<String, Integer> initial) {
+            this.inventory = new ProductInventory(initial);
+        }
+
+        public int reserve(String product, int qty) { return inventory.reserve(product, qty, true); }
+        public void commit(String product, int committed, int held) { inventory.commit(product, committed, held); }
+        public void release(String product, int held) { inventory.release(product, held); }
+    }
+
+    /**
+     * Bisheriges Design: ein globaler Monitor über Bestand und Reservierungen
+     */
+    private static class LockedInventory implements Inventory {
+        private final Map<String, Integer> total = new HashMap<>();
+        private final Map<String, Integer> reserved = new HashMap<>();
+
+        LockedInventory(Map<String, Integer> initial) {
+            total.putAll(initial);
+            initial.keySet().forEach(product -> reserved.put(product, 0));
+        }
+
+        public synchronized int reserve(String product, int qty) {
+            int available = total.getOrDefault(product, 0) - reserved.getOrDefault(product, 0);
+            int granted = Math.min(qty, Math.max(0, available));
+            if (granted > 0) {
+                reserved.put(product, reserved.get(product) + granted);
+            }
+            return granted;
+        }
+
+        public synchronized void commit(String product, int committed, int held) {
+            total.put(product, Math.max(0, total.get(product) - committed));
+            reserved.put(product, Math.max(0, reserved.get(product) - held));
+        }
+
+        public synchronized void release(String product, int held) {
+            reserved.put(product, Math.max(0, reserved.get(product) - held));
+        }
+    }
+}
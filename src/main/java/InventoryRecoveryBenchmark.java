@@ -0,0 +1,97 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import seller.InventoryJournal;
+
+/**
+ * Seller restart time from the inventory journal.
+ *
+ * Writes the same mutation history twice, once with snapshots every
+ * snapshotEvery records and once without (full replay), then reopens each
+ * journal and measures how long recovery takes. The history is the seller's
+ * normal mix: reserve one item, then commit (1 of 4) or release it, with a
+ * small number of leases still open at the end. fsync is off so the write
+ * phase finishes quickly; recovery reads the same bytes either way.
+ *
+ * Usage: InventoryRecoveryBenchmark [mutations=1000000] [snapshotEvery=100000] [products=64]
+ */
+public class InventoryRecoveryBenchmark {
+    private static final int OPEN_LEASES = 1000;
+
+    public static void main(String[] args) throws Exception {
+        int mutations = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long snapshotEvery = args.length > 1 ? Long.parseLong(args[1]) : 100_000;
+        int products = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+        System.out.println("=== Inventory Recovery Benchmark ===");
+        System.out.println("Mutations: " + mutations + ", products: " + products + ", open leases: " + OPEN_LEASES);
+
+        System.out.println(String.format("\n%-16s %10s %12s %10s %12s %8s",
+                "journal", "write ms", "disk bytes", "files", "recovery ms", "leases"));
+        run("full replay", mutations, 0, products);
+        run("snapshot/" + snapshotEvery, mutations, snapshotEvery, products);
+    }
+
+    private static void run(String name, int mutations, long snapshotEvery, int products) throws Exception {
+        Path directory = Files.createTempDirectory("inventory-journal-");
+        try {
+            long start = System.nanoTime();
+            try (InventoryJournal journal = new InventoryJournal(directory.toString(), false, snapshotEvery)) {
+                for (int p = 0; p < products; p++) {
+                    journal.logStock("product-" + p, mutations);
+                }
+                long expiresAt = System.currentTimeMillis() + 60_000;
+                int written = products;
+                for (int i = 0; written < mutations; i++) {
+                    String orderId = "order-" + i;
+                    String product = "product-" + (i % products);
+                    journal.logReserve(orderId, product, 1, expiresAt);
+                    written++;
+                    // Die letzten Bestellungen bleiben offen
+                    if (written >= mutations - OPEN_LEASES) {
+                        continue;
+                    }
+                    if ((i & 3) == 0) {
+                        journal.logCommit(orderId, product, 1, 1);
+                    } else {
+                        journal.logRelease(orderId, product, 1);
+                    }
+                    written++;
+                }
+                journal.sync().join();
+            }
+            long writeMs = (System.nanoTime() - start) / 1_000_000;
+            long bytes = 0;
+            long files = 0;
+            try (Stream<Path> list = Files.list(directory)) {
+                for (Path path : (Iterable<Path>) list::iterator) {
+                    bytes += Files.size(path);
+                    files++;
+                }
+            }
+
+            // Wiederherstellung: frisch öffnen wie beim Neustart des Sellers
+            start = System.nanoTime();
+            int leases;
+            try (InventoryJournal journal = new InventoryJournal(directory.toString(), false, snapshotEvery)) {
+                leases = journal.getRecoveredState().leases.size();
+                journal.getRecoveredState().toInventory();
+            }
+            long recoveryMs = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.println(String.format("%-16s %10d %12d %10d %12d %8d",
+                    name, writeMs, bytes, files, recoveryMs, leases));
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
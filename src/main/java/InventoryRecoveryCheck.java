@@ -0,0 +1,240 @@
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import seller.InventoryJournal;
+import seller.ProductInventory;
+
+/**
+ * Recovery checks for the seller's InventoryJournal.
+ *
+ * Each case writes a journal into a fresh temporary directory, damages the
+ * files the way a crash or a bad disk would, and reopens the journal:
+ *
+ *   torn tail         - the last record is cut short; everything before it survives
+ *   corrupt record    - a record fails its CRC; replay stops in front of it
+ *   corrupt snapshot  - the newest snapshot is damaged; the previous one plus the
+ *                       segments after it restore the full state
+ *   leases            - restored leases rebuild the reserved counts, from the journal
+ *                       and from a snapshot
+ *
+ * Exits with status 1 if any check fails.
+ *
+ * Usage: InventoryRecoveryCheck
+ */
+public class InventoryRecoveryCheck {
+    private static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Inventory Journal Recovery Check ===");
+
+        tornTail();
+        corruptRecord();
+        corruptNewestSnapshot();
+        leasesRebuildReserved();
+
+        System.out.println(failures == 0 ? "\n✅ All recovery checks passed"
+                                         : "\n❌ " + failures + " recovery check(s) failed");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static void tornTail() throws Exception {
+        System.out.println("\n--- Torn tail record ---");
+        Path directory = Files.createTempDirectory("journal-check");
+        try {
+            try (InventoryJournal journal = open(directory, 0)) {
+                journal.logStock("laptop", 10);
+                journal.logReserve("o1", "laptop", 2, Long.MAX_VALUE);
+                journal.logReserve("o2", "laptop", 3, Long.MAX_VALUE);
+                journal.sync().join();
+            }
+            // Absturz mitten im Schreiben: die letzten Bytes des letzten Eintrags fehlen
+            Path segment = newest(directory, "journal-", ".log");
+            byte[] bytes = Files.readAllBytes(segment);
+            Files.write(segment, Arrays.copyOf(bytes, bytes.length - 5));
+
+            try (InventoryJournal journal = open(directory, 0)) {
+                InventoryJournal.State state = journal.getRecoveredState();
+                check(state != null, "state recovered");
+                check(state.totals.equals(Map.of("laptop", 10)), "stock survives: " + state.totals);
+                check(state.leases.keySet().equals(Set.of("o1")), "only the intact lease survives: "
+                        + state.leases.keySet());
+            }
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void corruptRecord() throws Exception {
+        System.out.println("\n--- Corrupt record (CRC mismatch) ---");
+        Path directory = Files.createTempDirectory("journal-check");
+        try {
+            try (InventoryJournal journal = open(directory, 0)) {
+                journal.logStock("laptop", 10);
+                journal.logReserve("o1", "laptop", 2, Long.MAX_VALUE);
+                journal.logReserve("o2", "laptop", 3, Long.MAX_VALUE);
+                journal.logReserve("o3", "laptop", 1, Long.MAX_VALUE);
+                journal.sync().join();
+            }
+            // Ein Bit in der Order-ID von o2 kippen: Länge stimmt, Prüfsumme nicht
+            Path segment = newest(directory, "journal-", ".log");
+            byte[] bytes = Files.readAllBytes(segment);
+            int at = indexOf(bytes, "o2".getBytes(StandardCharsets.UTF_8));
+            check(at > 0, "record o2 found in segment");
+            bytes[at] ^= 0x01;
+            Files.write(segment, bytes);
+
+            try (InventoryJournal journal = open(directory, 0)) {
+                InventoryJournal.State state = journal.getRecoveredState();
+                check(state != null, "state recovered");
+                check(state.leases.keySet().equals(Set.of("o1")),
+                      "replay stops in front of the corrupt record: " + state.leases.keySet());
+            }
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void corruptNewestSnapshot() throws Exception {
+        System.out.println("\n--- Corrupt newest snapshot ---");
+        Path directory = Files.createTempDirectory("journal-check");
+        try {
+            // Ein Snapshot alle 2 Einträge; sync() nach jedem Eintrag hält die Grenzen fest
+            try (InventoryJournal journal = open(directory, 2)) {
+                journal.logStock("laptop", 10);
+                journal.sync().join();
+                journal.logStock("phone", 5);
+                journal.sync().join();
+                journal.logReserve("o1", "laptop", 2, Long.MAX_VALUE);
+                journal.sync().join();
+                journal.logReserve("o2", "phone", 1, Long.MAX_VALUE);
+                journal.sync().join();
+                journal.logReserve("o3", "laptop", 1, Long.MAX_VALUE);
+                journal.sync().join();
+                check(journal.getSnapshots() == 2, "two snapshots written: " + journal.getSnapshots());
+            }
+            TreeMap<Long, Path> snapshots = list(directory, "snapshot-", ".snap");
+            check(snapshots.size() == 2, "previous snapshot kept as fallback: " + snapshots.keySet());
+
+            Path newest = snapshots.lastEntry().getValue();
+            byte[] bytes = Files.readAllBytes(newest);
+            bytes[bytes.length / 2] ^= 0x01;
+            Files.write(newest, bytes);
+
+            try (InventoryJournal journal = open(directory, 0)) {
+                InventoryJournal.State state = journal.getRecoveredState();
+                System.out.println("   " + journal.getRecoverySummary());
+                check(state != null, "state recovered");
+                check(journal.getRecoverySummary().startsWith("snapshot " + snapshots.firstKey()),
+                      "recovery starts from the previous snapshot");
+                check(state.totals.equals(Map.of("laptop", 10, "phone", 5)), "stock restored: " + state.totals);
+                check(state.leases.keySet().equals(Set.of("o1", "o2", "o3")),
+                      "all leases restored: " + state.leases.keySet());
+            }
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void leasesRebuildReserved() throws Exception {
+        System.out.println("\n--- Leases rebuild reserved counts ---");
+        for (long snapshotEvery : new long[] { 0, 3 }) {
+            Path directory = Files.createTempDirectory("journal-check");
+            try {
+                try (InventoryJournal journal = open(directory, snapshotEvery)) {
+                    journal.logStock("laptop", 10);
+                    journal.logStock("phone", 5);
+                    journal.sync().join();
+                    journal.logReserve("o1", "laptop", 2, Long.MAX_VALUE);
+                    journal.logReserve("o2", "laptop", 3, Long.MAX_VALUE);
+                    journal.logReserve("o3", "phone", 1, Long.MAX_VALUE);
+                    journal.logReserve("o4", "phone", 4, Long.MAX_VALUE);
+                    journal.sync().join();
+                    journal.logCommit("o2", "laptop", 3, 3);
+                    journal.logRelease("o4", "phone", 4);
+                    journal.sync().join();
+                }
+
+                try (InventoryJournal journal = open(directory, 0)) {
+                    String source = snapshotEvery > 0 ? "snapshot" : "journal";
+                    if (snapshotEvery > 0) {
+                        // Snapshot mit allen vier Leases, COMMIT und RELEASE kommen aus dem Journal danach
+                        check(journal.getRecoverySummary().startsWith("snapshot "), source + ": recovered from a snapshot");
+                    }
+                    ProductInventory inventory = journal.getRecoveredState().toInventory();
+                    check(inventory.total("laptop") == 7 && inventory.reserved("laptop") == 2
+                          && inventory.available("laptop") == 5,
+                          source + ": laptop total 7, reserved 2, available 5: " + inventory);
+                    check(inventory.total("phone") == 5 && inventory.reserved("phone") == 1
+                          && inventory.available("phone") == 4,
+                          source + ": phone total 5, reserved 1, available 4: " + inventory);
+                }
+            } finally {
+                deleteRecursively(directory);
+            }
+        }
+    }
+
+    private static InventoryJournal open(Path directory, long snapshotEvery) throws Exception {
+        return new InventoryJournal(directory.toString(), true, snapshotEvery);
+    }
+
+    private static void check(boolean condition, String description) {
+        if (condition) {
+            System.out.println("   ✅ " + description);
+        } else {
+            failures++;
+            System.out.println("   ❌ " + description);
+        }
+    }
+
+    private static Path newest(Path directory, String prefix, String suffix) throws Exception {
+        // Das zuletzt geöffnete Segment ist leer (nur Header), die Einträge stehen im vorletzten
+        TreeMap<Long, Path> files = list(directory, prefix, suffix);
+        for (Path path : files.descendingMap().values()) {
+            if (Files.size(path) > 5) {
+                return path;
+            }
+        }
+        throw new IllegalStateException("No " + prefix + "*" + suffix + " with records in " + directory);
+    }
+
+    private static TreeMap<Long, Path> list(Path directory, String prefix, String suffix) throws Exception {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (Stream<Path> paths = Files.list(directory)) {
+            paths.forEach(path -> {
+                String name = path.getFileName().toString();
+                if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                    files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), path);
+                }
+            });
+        }
+        return files;
+    }
+
+    private static int indexOf(byte[] data, byte[] pattern) {
+        outer:
+        for (int i = 0; i <= data.length - pattern.length; i++) {
+            for (int j = 0; j < pattern.length; j++) {
+                if (data[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static void deleteRecursively(Path directory) throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
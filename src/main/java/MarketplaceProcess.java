@@ -1,9 +1,15 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import marketplace.LoadGenerator;
 import marketplace.Marketplace;
 import marketplace.MarketplaceConfig;
+import model.Order;
+import monitoring.EventLog;
 
 public class MarketplaceProcess {
     private static final Logger LOGGER = Logger.getLogger(MarketplaceProcess.class.getName());
@@ -14,39 +20,57 @@ public class MarketplaceProcess {
         
         final String marketplacePort = String.valueOf(config.marketplace.port);
         final String processName = config.marketplace.name;
+        if (config.simulation != null) {
+            EventLog.configure(config.simulation.effectiveLogLevel(), config.simulation.log_buffer_size);
+        }
 
         LOGGER.info(() -> String.format("Starting %s on port %s", processName, marketplacePort));
         LOGGER.info(() -> String.format("Configuration: %s", config.toString()));
         LOGGER.info(() -> String.format("Connecting to sellers: %s", config.sellers));
 
         ProcessMonitor.logProcessStart(processName, "port:" + marketplacePort);
+        if (config.simulation != null && config.simulation.performance_monitoring) {
+            ProcessMonitor.startIntervalReports(config.simulation.latency_report_interval_ms);
+        }
 
-        final Marketplace marketplace = new Marketplace(config.sellers, config.orders.timeout_ms, processName);
+        final Marketplace marketplace = new Marketplace(config);
         
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             LOGGER.info("Shutting down Marketplace process...");
             marketplace.stop();
         }));
 
+        if ("load".equalsIgnoreCase(config.orders.mode)) {
+            // Open-loop Lastmodus: überlappende SAGAs statt einer Bestellung nach der anderen
+            LoadGenerator.Report report = new LoadGenerator(marketplace, config).run();
+            report.print();
+            ProcessMonitor.printLatencies();
+            marketplace.stop();
+            return;
+        }
+
         Random rand = new Random();
         
         for (int i = 0; i < config.orders.max_orders; i++) {
             final int orderIndex = i;
             final String orderId = "ORDER-" + marketplacePort + "-" + (orderIndex + 1);
-            final String product = config.products.get(rand.nextInt(config.products.size()));
-            final int quantity = rand.nextInt(3) + 1;
+            final List<Order.LineItem> basket = nextBasket(rand, config);
 
             LOGGER.info(() -> String.format("%n--- Placing order %d ---", (orderIndex + 1)));
-            LOGGER.info(() -> String.format("Product: %s, Quantity: %d", product, quantity));
+            LOGGER.info(() -> String.format("Basket: %s", basket));
 
-            ProcessMonitor.logOrderStart(processName, orderId, product);
+            ProcessMonitor.logOrderStart(processName, orderId, basket.toString());
             long startTime = System.currentTimeMillis();
 
             try {
-                marketplace.placeOrder(product, quantity);
+                boolean committed = marketplace.placeOrder(basket);
 
                 long processingTime = System.currentTimeMillis() - startTime;
-                ProcessMonitor.logOrderSuccess(processName, orderId, processingTime);
+                if (committed) {
+                    ProcessMonitor.logOrderSuccess(processName, orderId, processingTime);
+                } else {
+                    ProcessMonitor.logOrderFailure(processName, orderId, processingTime);
+                }
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Error placing order", e);
                 long processingTime = System.currentTimeMillis() - startTime;
@@ -64,4 +88,18 @@ public class MarketplaceProcess {
 
         marketplace.stop();
     }
+
+    /**
+     * 1..max_line_items verschiedene Produkte mit je 1..max_quantity Stück
+     */
+    private static List<Order.LineItem> nextBasket(Random rand, MarketplaceConfig config) {
+        List<String> products = new ArrayList<>(config.products);
+        Collections.shuffle(products, rand);
+        int lines = rand.nextInt(Math.max(1, Math.min(config.orders.max_line_items, products.size()))) + 1;
+        List<Order.LineItem> basket = new ArrayList<>(lines);
+        for (String product : products.subList(0, lines)) {
+            basket.add(new Order.LineItem(product, rand.nextInt(Math.max(1, config.orders.max_quantity)) + 1));
+        }
+        return basket;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,182 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import messaging.DealerChannel;
+import messaging.WireCodec;
+import messaging.WireMessage;
+
+/**
+ * Seller throughput for different partition layouts.
+ *
+ * Every layout starts a real SellerProcess with partitions x workerThreads
+ * workers, the simulated latency and (optionally) an fsync'ed journal.
+ * Crashes, lost ACKs, load shedding, the feed and metrics are off. A DEALER
+ * client keeps a fixed number of orders in flight. Each order is one binary
+ * RESERVE followed by a COMMIT for a random product, so every request goes
+ * through the proxy's product routing and a blocking worker.
+ *
+ * Layouts are "partitions x workers", e.g. 1x4 (one shared pool), 4x1 (one
+ * thread per partition) and 4x4 (a pool behind every partition).
+ *
+ * Usage: PartitionScalingBenchmark [orders=4000] [inFlight=64] [latencyMs=5] [layouts=1x4,4x1,4x4] [journal=true]
+ */
+public class PartitionScalingBenchmark {
+    private static final String ENDPOINT = "tcp://127.0.0.1:6755";
+    private static final int PRODUCTS = 16;
+    private static final int STOCK = 1_000_000;
+    private static final long TIMEOUT_MS = 30_000;
+
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 4000;
+        int inFlight = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int latencyMs = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        String[] layouts = (args.length > 3 ? args[3] : "1x4,4x1,4x4").split(",");
+        boolean journal = args.length <= 4 || Boolean.parseBoolean(args[4]);
+
+        System.out.println("=== Partition Scaling Benchmark ===");
+        System.out.println(String.format("CPU cores: %d, orders: %d, in flight: %d, latency: %dms, journal: %s",
+                Runtime.getRuntime().availableProcessors(), orders, inFlight, latencyMs,
+                journal ? "fsync" : "off"));
+
+        System.out.println(String.format("\n%-8s %8s %10s %10s %8s %8s %8s",
+                "layout", "threads", "total ms", "orders/s", "p50 ms", "p99 ms", "failed"));
+        for (String layout : layouts) {
+            String[] parts = layout.trim().split("x");
+            int partitions = Integer.parseInt(parts[0]);
+            int workers = Integer.parseInt(parts[1]);
+            Result result = run(partitions, workers, orders, inFlight, latencyMs, journal);
+            System.out.println(String.format("%-8s %8d %10d %10.1f %8d %8d %8d",
+                    layout.trim(), partitions * workers, result.totalMs,
+                    orders * 1000.0 / Math.max(1, result.totalMs),
+                    result.percentile(50), result.percentile(99), result.failed));
+        }
+    }
+
+    private static Result run(int partitions, int workers, int orders, int inFlight, int latencyMs,
+                              boolean journal) throws Exception {
+        Path directory = Files.createTempDirectory("partition-bench");
+        Path config = directory.resolve("seller.yaml");
+        Files.writeString(config, sellerConfig(partitions, workers, latencyMs, journal, directory));
+
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process seller = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                            "SellerProcess", ENDPOINT, config.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(directory.resolve("seller.log").toFile())
+                .start();
+        DealerChannel channel = new DealerChannel();
+        try {
+            awaitHealthy(channel);
+
+            long[] latencies = new long[orders];
+            AtomicInteger failed = new AtomicInteger(0);
+            Semaphore window = new Semaphore(inFlight);
+            CompletableFuture<?>[] sagas = new CompletableFuture<?>[orders];
+            long start = System.nanoTime();
+
+            for (int i = 0; i < orders; i++) {
+                window.acquire();
+                final int index = i;
+                String orderId = "PB-" + partitions + "x" + workers + "-" + i;
+                String product = "item-" + (i * 7 % PRODUCTS);
+                long orderStart = System.nanoTime();
+                sagas[i] = send(channel, WireMessage.reserve(orderId, product, 1, false))
+                        .thenCompose(reply -> reply.op == WireMessage.Op.CONFIRMED
+                                ? send(channel, WireMessage.commit(orderId, product, 1))
+                                : CompletableFuture.completedFuture(reply))
+                        .whenComplete((reply, error) -> {
+                            if (error != null || reply.op != WireMessage.Op.COMMITTED) {
+                                failed.incrementAndGet();
+                            }
+                            latencies[index] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - orderStart);
+                            window.release();
+                        });
+            }
+
+            CompletableFuture.allOf(sagas).handle((ignored, error) -> null).join();
+            long totalMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Arrays.sort(latencies);
+            return new Result(totalMs, latencies, failed.get());
+        } finally {
+            channel.close();
+            seller.destroy();
+            seller.waitFor(10, TimeUnit.SECONDS);
+            deleteRecursively(directory);
+        }
+    }
+
+    private static CompletableFuture<WireMessage> send(DealerChannel channel, WireMessage request) {
+        return channel.sendBytes(ENDPOINT, WireCodec.encode(request), TIMEOUT_MS).thenApply(WireCodec::decodeAny);
+    }
+
+    /**
+     * Wartet, bis der Seller-Prozess gestartet ist und HEALTH_CHECK beantwortet
+     */
+    private static void awaitHealthy(DealerChannel channel) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                channel.sendBytes(ENDPOINT, WireCodec.encode(WireMessage.healthCheck()), 500).join();
+                return;
+            } catch (RuntimeException notYet) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Seller at " + ENDPOINT + " did not start");
+    }
+
+    private static String sellerConfig(int partitions, int workers, int latencyMs, boolean journal, Path directory) {
+        StringBuilder yaml = new StringBuilder();
+        yaml.append("port: ").append(ENDPOINT.substring(ENDPOINT.lastIndexOf(':') + 1)).append('\n');
+        yaml.append("products:\n");
+        for (int p = 0; p < PRODUCTS; p++) {
+            yaml.append("  item-").append(p).append(": ").append(STOCK).append('\n');
+        }
+        yaml.append("crashProbability: 0\n");
+        yaml.append("lostAckProbability: 0\n");
+        yaml.append("avgLatencyMs: ").append(latencyMs).append('\n');
+        yaml.append("successProbability: 1.0\n");
+        yaml.append("workerThreads: ").append(workers).append('\n');
+        yaml.append("partitions: ").append(partitions).append('\n');
+        yaml.append("journalEnabled: ").append(journal).append('\n');
+        yaml.append("journalDirectory: ").append(directory.resolve("journal")).append('\n');
+        yaml.append("journalFsync: true\n");
+        yaml.append("feedEnabled: false\n");
+        yaml.append("maxQueuedRequests: 0\n");
+        yaml.append("maxRequestAgeMs: 0\n");
+        yaml.append("metricsEnabled: false\n");
+        yaml.append("logLevel: WARN\n");
+        return yaml.toString();
+    }
+
+    private static void deleteRecursively(Path directory) throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static class Result {
+        final long totalMs;
+        final long[] sortedLatencies;
+        final int failed;
+
+        Result(long totalMs, long[] sortedLatencies, int failed) {
+            this.totalMs = totalMs;
+            this.sortedLatencies = sortedLatencies;
+            this.failed = failed;
+        }
+
+        long percentile(double p) {
+            int index = (int) Math.ceil(p / 100.0 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(index, sortedLatencies.length - 1))];
+        }
+    }
+}
@@ -1,82 +1,113 @@
 // Process monitoring utility for tracking performance across distributed processes
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+
+import monitoring.EventLog;
+import monitoring.Latencies;
+import monitoring.LatencyHistogram;
 
 public class ProcessMonitor {
-    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
     private static final AtomicInteger totalOrders = new AtomicInteger(0);
     private static final AtomicInteger successfulOrders = new AtomicInteger(0);
     private static final AtomicInteger failedOrders = new AtomicInteger(0);
-    private static final AtomicLong totalResponseTime = new AtomicLong(0);
-    private static final AtomicInteger responseCount = new AtomicInteger(0);
-    
+    // Nur ganze Bestellungen; Phasen und Seller-Rundreisen zeichnet der Marketplace selbst auf
+    private static final LatencyHistogram orderLatency = Latencies.histogram("order");
+    private static ScheduledExecutorService intervalReporter;
+
+    // Zeitstempel und Formatierung übernimmt der EventLog-Writer, nicht der Auftrags-Thread
     public static void logOrderStart(String processName, String orderId, String product) {
         totalOrders.incrementAndGet();
-        System.out.println(String.format("[%s] [%s] ORDER_START: %s for product %s", 
-            getCurrentTimestamp(), processName, orderId, product));
+        EventLog.info("[{}] ORDER_START: {} for product {}", processName, orderId, product);
     }
-    
+
     public static void logOrderSuccess(String processName, String orderId, long responseTimeMs) {
         successfulOrders.incrementAndGet();
-        addResponseTime(responseTimeMs);
-        System.out.println(String.format("[%s] [%s] ORDER_SUCCESS: %s (took %dms)", 
-            getCurrentTimestamp(), processName, orderId, responseTimeMs));
-        printStats();
+        orderLatency.record(responseTimeMs * 1000);
+        EventLog.info("[{}] ORDER_SUCCESS: {} (took {}ms)", processName, orderId, responseTimeMs);
+        logStats();
     }
-    
+
     public static void logOrderFailure(String processName, String orderId, long responseTimeMs) {
         failedOrders.incrementAndGet();
-        addResponseTime(responseTimeMs);
-        System.out.println(String.format("[%s] [%s] ORDER_FAILURE: %s (took %dms)", 
-            getCurrentTimestamp(), processName, orderId, responseTimeMs));
-        printStats();
+        orderLatency.record(responseTimeMs * 1000);
+        EventLog.info("[{}] ORDER_FAILURE: {} (took {}ms)", processName, orderId, responseTimeMs);
+        logStats();
     }
-    
+
     public static void logSellerResponse(String processName, String sellerEndpoint, String response, long responseTimeMs) {
-        addResponseTime(responseTimeMs);
-        System.out.println(String.format("[%s] [%s] SELLER_RESPONSE: %s -> %s (%dms)", 
-            getCurrentTimestamp(), processName, sellerEndpoint, response, responseTimeMs));
+        EventLog.debug("[{}] SELLER_RESPONSE: {} -> {} ({}ms)", processName, sellerEndpoint, response, responseTimeMs);
     }
-    
+
     public static void logProcessStart(String processName, String endpoint) {
-        System.out.println(String.format("[%s] [%s] PROCESS_START: Listening on %s", 
-            getCurrentTimestamp(), processName, endpoint));
+        EventLog.info("[{}] PROCESS_START: Listening on {}", processName, endpoint);
     }
-    
+
     public static void logRollback(String processName, String orderId, int sellersToRollback) {
-        System.out.println(String.format("[%s] [%s] ROLLBACK: %s affecting %d sellers", 
-            getCurrentTimestamp(), processName, orderId, sellersToRollback));
+        EventLog.info("[{}] ROLLBACK: {} affecting {} sellers", processName, orderId, sellersToRollback);
     }
-    
-    private static void addResponseTime(long responseTimeMs) {
-        totalResponseTime.addAndGet(responseTimeMs);
-        responseCount.incrementAndGet();
+
+    /**
+     * Schreibt alle intervalMs die Perzentile des letzten Intervalls ins Log (nur Histogramme mit Werten)
+     */
+    public static synchronized void startIntervalReports(long intervalMs) {
+        if (intervalReporter != null || intervalMs <= 0) {
+            return;
+        }
+        intervalReporter = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "latency-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        intervalReporter.scheduleAtFixedRate(() -> {
+            for (LatencyHistogram histogram : Latencies.all()) {
+                LatencyHistogram.Snapshot interval = histogram.interval();
+                if (interval.getCount() > 0) {
+                    EventLog.info("[LATENCY] last {}s {}", intervalMs / 1000.0, interval);
+                }
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
     }
-    
-    private static void printStats() {
+
+    private static void logStats() {
         int total = totalOrders.get();
         int successful = successfulOrders.get();
-        int failed = failedOrders.get();
-        int responses = responseCount.get();
-        long avgResponseTime = responses > 0 ? totalResponseTime.get() / responses : 0;
-        
-        double successRate = total > 0 ? (successful * 100.0 / total) : 0;
-        
-        System.out.println(String.format("[%s] [STATS] Orders: %d total, %d successful (%.1f%%), %d failed | Avg response: %dms", 
-            getCurrentTimestamp(), total, successful, successRate, failed, avgResponseTime));
-    }
-    
-    private static String getCurrentTimestamp() {
-        return LocalDateTime.now().format(TIMESTAMP);
+        double successRate = total > 0 ? Math.round(successful * 1000.0 / total) / 10.0 : 0;
+        LatencyHistogram.Snapshot orders = orderLatency.snapshot();
+
+        EventLog.info("[STATS] Orders: {} total, {} successful ({}%), {} failed | Latency p50 {}ms, p99 {}ms",
+                      total, successful, successRate, failedOrders.get(),
+                      orders.percentileMicros(50) / 1000, orders.percentileMicros(99) / 1000);
     }
-    
+
     public static void printFinalStats() {
+        // Erst alle gepufferten Ereignisse, dann die Zusammenfassung
+        EventLog.flush();
+        int total = totalOrders.get();
+        int successful = successfulOrders.get();
+        double successRate = total > 0 ? (successful * 100.0 / total) : 0;
+        LatencyHistogram.Snapshot orders = orderLatency.snapshot();
+
         System.out.println("\n" + "=".repeat(50));
         System.out.println("FINAL PERFORMANCE STATISTICS");
         System.out.println("=".repeat(50));
-        printStats();
+        System.out.println(String.format("[STATS] Orders: %d total, %d successful (%.1f%%), %d failed | Latency p50 %dms, p99 %dms",
+            total, successful, successRate, failedOrders.get(),
+            orders.percentileMicros(50) / 1000, orders.percentileMicros(99) / 1000));
+        printLatencies();
         System.out.println("=".repeat(50));
     }
+
+    /**
+     * Alle Histogramme seit Prozessstart: Bestellungen, Saga-Phasen und jeder Seller
+     */
+    public static void printLatencies() {
+        for (LatencyHistogram histogram : Latencies.all()) {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            if (snapshot.getCount() > 0) {
+                System.out.println("[LATENCY] " + snapshot);
+            }
+        }
+    }
 }
@@ -0,0 +1,141 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import marketplace.SagaLog;
+import model.Order;
+
+/**
+ * Replay checks for the marketplace SagaLog.
+ *
+ *   basket round trip - a basket saga with its DECISION comes back with every
+ *                       line item and the line index of every step
+ *   ended sagas       - sagas with an END record are not in doubt
+ *   torn tail         - a record cut short at the end of a segment is ignored
+ *
+ * Exits with status 1 if any check fails.
+ *
+ * Usage: SagaLogReplayCheck
+ */
+public class SagaLogReplayCheck {
+    private static int failures = 0;
+
+    public static void main(String[] args) throws Exception {
+        System.out.println("=== Saga Log Replay Check ===");
+
+        basketRoundTrip();
+        tornTail();
+
+        System.out.println(failures == 0 ? "\n✅ All replay checks passed"
+                                         : "\n❌ " + failures + " replay check(s) failed");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static void basketRoundTrip() throws Exception {
+        System.out.println("\n--- Basket round trip ---");
+        Path directory = Files.createTempDirectory("saga-check");
+        try {
+            SagaLog log = new SagaLog(directory.toString(), 1 << 20, true);
+            log.logBegin("basket-1", List.of(new Order.LineItem("laptop", 2), new Order.LineItem("phone", 1)));
+            log.logReserved("basket-1", "tcp://s1", 0, 2);
+            log.logReserved("basket-1", "tcp://s2", 1, 1);
+            log.logDecision("basket-1", true, List.of(new SagaLog.Step("tcp://s1", 0, true, 2),
+                                                      new SagaLog.Step("tcp://s2", 1, true, 1))).join();
+            log.logStepDone("basket-1", "tcp://s1");
+            log.logBegin("done-1", List.of(new Order.LineItem("tablet", 1))).join();
+            log.logEnd("done-1");
+            log.close();
+
+            SagaLog reopened = new SagaLog(directory.toString(), 1 << 20, true);
+            List<SagaLog.InDoubtSaga> inDoubt = reopened.getInDoubtSagas();
+            reopened.close();
+
+            check(inDoubt.size() == 1 && inDoubt.get(0).orderId.equals("basket-1"),
+                  "only the unfinished saga is in doubt: " + orderIds(inDoubt));
+            SagaLog.InDoubtSaga saga = inDoubt.get(0);
+            check(describe(saga.items).equals("[laptop x2, phone x1]"), "all line items: " + describe(saga.items));
+            check(Boolean.TRUE.equals(saga.decision), "commit decision");
+            check(saga.reserved.equals(Map.of("tcp://s1", 2, "tcp://s2", 1)), "reservations: " + saga.reserved);
+            check(steps(saga.plan).equals("[tcp://s1 line 0 commit 2, tcp://s2 line 1 commit 1]"),
+                  "steps with line indexes: " + steps(saga.plan));
+            check(steps(saga.pendingSteps()).equals("[tcp://s2 line 1 commit 1]"),
+                  "finished step is not pending: " + steps(saga.pendingSteps()));
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void tornTail() throws Exception {
+        System.out.println("\n--- Torn tail record ---");
+        Path directory = Files.createTempDirectory("saga-check");
+        try {
+            SagaLog log = new SagaLog(directory.toString(), 1 << 20, true);
+            log.logBegin("torn-1", List.of(new Order.LineItem("laptop", 1))).join();
+            log.logDecision("torn-1", true, List.of(new SagaLog.Step("tcp://s1", 0, true, 1))).join();
+            log.close();
+
+            // Absturz mitten im Schreiben der DECISION
+            Path segment;
+            try (Stream<Path> paths = Files.list(directory)) {
+                segment = paths.filter(path -> path.toFile().length() > 5).findFirst().orElseThrow();
+            }
+            byte[] bytes = Files.readAllBytes(segment);
+            Files.write(segment, Arrays.copyOf(bytes, bytes.length - 3));
+
+            SagaLog reopened = new SagaLog(directory.toString(), 1 << 20, true);
+            List<SagaLog.InDoubtSaga> inDoubt = reopened.getInDoubtSagas();
+            reopened.close();
+
+            check(orderIds(inDoubt).equals("[torn-1]"), "saga from the intact BEGIN: " + orderIds(inDoubt));
+            check(inDoubt.size() == 1 && inDoubt.get(0).decision == null && inDoubt.get(0).plan.isEmpty(),
+                  "torn DECISION is ignored");
+        } finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void check(boolean condition, String description) {
+        if (condition) {
+            System.out.println("   ✅ " + description);
+        } else {
+            failures++;
+            System.out.println("   ❌ " + description);
+        }
+    }
+
+    private static String orderIds(List<SagaLog.InDoubtSaga> sagas) {
+        List<String> ids = new ArrayList<>();
+        for (SagaLog.InDoubtSaga saga : sagas) {
+            ids.add(saga.orderId);
+        }
+        return ids.toString();
+    }
+
+    private static String describe(List<Order.LineItem> items) {
+        List<String> lines = new ArrayList<>();
+        for (Order.LineItem item : items) {
+            lines.add(item.product + " x" + item.quantity);
+        }
+        return lines.toString();
+    }
+
+    private static String steps(Iterable<SagaLog.Step> plan) {
+        List<String> steps = new ArrayList<>();
+        for (SagaLog.Step step : plan) {
+            steps.add(step.endpoint + " line " + step.line + (step.commit ? " commit " : " cancel ") + step.quantity);
+        }
+        return steps.toString();
+    }
+
+    private static void deleteRecursively(Path directory) throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
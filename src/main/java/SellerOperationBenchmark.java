@@ -0,0 +1,170 @@
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import messaging.DealerChannel;
+import messaging.WireCodec;
+import messaging.WireMessage;
+
+/**
+ * Throughput of the seller's operation path (duplicate detection, response
+ * cache, inventory) for different worker counts.
+ *
+ * Every run starts a real SellerProcess with one partition, the given number
+ * of worker threads and no simulated latency, journal, crashes, load shedding,
+ * feed or metrics. The workers then spend their time in handleOperation, so
+ * any shared lock on that path shows up as flat throughput.
+ *
+ * A DEALER client keeps a fixed number of orders in flight. Each order sends
+ * a binary RESERVE, then the same RESERVE again as a retry, which is answered
+ * from the response cache, and then a CANCEL. All three are cached responses.
+ * Products are drawn from a small set, so the inventory is shared as well.
+ *
+ * Usage: SellerOperationBenchmark [orders=20000] [inFlight=128] [workers=1,2,4,8]
+ */
+public class SellerOperationBenchmark {
+    private static final String ENDPOINT = "tcp://127.0.0.1:6855";
+    private static final int PRODUCTS = 16;
+    private static final int STOCK = 1_000_000;
+    private static final long TIMEOUT_MS = 30_000;
+
+    public static void main(String[] args) throws Exception {
+        int orders = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int inFlight = args.length > 1 ? Integer.parseInt(args[1]) : 128;
+        String[] workerLevels = (args.length > 2 ? args[2] : "1,2,4,8").split(",");
+
+        System.out.println("=== Seller Operation Benchmark ===");
+        System.out.println(String.format("CPU cores: %d, orders: %d (3 operations each), in flight: %d",
+                Runtime.getRuntime().availableProcessors(), orders, inFlight));
+
+        System.out.println(String.format("\n%8s %10s %12s %8s %10s",
+                "workers", "total ms", "ops/s", "failed", "cache hits"));
+        for (String level : workerLevels) {
+            int workers = Integer.parseInt(level.trim());
+            Result result = run(workers, orders, inFlight);
+            System.out.println(String.format("%8d %10d %12.0f %8d %10d",
+                    workers, result.totalMs, orders * 3 * 1000.0 / Math.max(1, result.totalMs),
+                    result.failed, result.cacheHits));
+        }
+    }
+
+    private static Result run(int workers, int orders, int inFlight) throws Exception {
+        Path directory = Files.createTempDirectory("seller-op-bench");
+        Path config = directory.resolve("seller.yaml");
+        Files.writeString(config, sellerConfig(workers));
+
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process seller = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                            "SellerProcess", ENDPOINT, config.toString())
+                .redirectErrorStream(true)
+                .redirectOutput(directory.resolve("seller.log").toFile())
+                .start();
+        DealerChannel channel = new DealerChannel();
+        try {
+            awaitHealthy(channel);
+
+            AtomicInteger failed = new AtomicInteger(0);
+            AtomicInteger cacheHits = new AtomicInteger(0);
+            Semaphore window = new Semaphore(inFlight);
+            CompletableFuture<?>[] sagas = new CompletableFuture<?>[orders];
+            long start = System.nanoTime();
+
+            for (int i = 0; i < orders; i++) {
+                window.acquire();
+                String orderId = "SO-" + workers + "-" + i;
+                String product = "item-" + (i % PRODUCTS);
+                WireMessage reserve = WireMessage.reserve(orderId, product, 1, false);
+                sagas[i] = send(channel, reserve)
+                        .thenCompose(first -> send(channel, reserve).thenApply(retry -> {
+                            // Die Wiederholung muss die ursprüngliche Antwort bekommen
+                            if (retry.op == first.op && retry.quantity == first.quantity) {
+                                cacheHits.incrementAndGet();
+                            }
+                            return first;
+                        }))
+                        .thenCompose(reply -> send(channel, WireMessage.cancel(orderId, product, reply.quantity)))
+                        .whenComplete((reply, error) -> {
+                            if (error != null || reply.op != WireMessage.Op.ROLLED_BACK) {
+                                failed.incrementAndGet();
+                            }
+                            window.release();
+                        });
+            }
+
+            CompletableFuture.allOf(sagas).handle((ignored, error) -> null).join();
+            long totalMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            return new Result(totalMs, failed.get(), cacheHits.get());
+        } finally {
+            channel.close();
+            seller.destroy();
+            seller.waitFor(10, TimeUnit.SECONDS);
+            deleteRecursively(directory);
+        }
+    }
+
+    private static CompletableFuture<WireMessage> send(DealerChannel channel, WireMessage request) {
+        return channel.sendBytes(ENDPOINT, WireCodec.encode(request), TIMEOUT_MS).thenApply(WireCodec::decodeAny);
+    }
+
+    /**
+     * Wartet, bis der Seller-Prozess gestartet ist und HEALTH_CHECK beantwortet
+     */
+    private static void awaitHealthy(DealerChannel channel) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                channel.sendBytes(ENDPOINT, WireCodec.encode(WireMessage.healthCheck()), 500).join();
+                return;
+            } catch (RuntimeException notYet) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Seller at " + ENDPOINT + " did not start");
+    }
+
+    private static String sellerConfig(int workers) {
+        StringBuilder yaml = new StringBuilder();
+        yaml.append("port: ").append(ENDPOINT.substring(ENDPOINT.lastIndexOf(':') + 1)).append('\n');
+        yaml.append("products:\n");
+        for (int p = 0; p < PRODUCTS; p++) {
+            yaml.append("  item-").append(p).append(": ").append(STOCK).append('\n');
+        }
+        yaml.append("crashProbability: 0\n");
+        yaml.append("lostAckProbability: 0\n");
+        yaml.append("avgLatencyMs: 0\n");
+        yaml.append("successProbability: 1.0\n");
+        yaml.append("workerThreads: ").append(workers).append('\n');
+        yaml.append("partitions: 1\n");
+        yaml.append("journalEnabled: false\n");
+        yaml.append("feedEnabled: false\n");
+        yaml.append("maxQueuedRequests: 0\n");
+        yaml.append("maxRequestAgeMs: 0\n");
+        yaml.append("metricsEnabled: false\n");
+        yaml.append("logLevel: WARN\n");
+        return yaml.toString();
+    }
+
+    private static void deleteRecursively(Path directory) throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static class Result {
+        final long totalMs;
+        final int failed;
+        final int cacheHits;
+
+        Result(long totalMs, int failed, int cacheHits) {
+            this.totalMs = totalMs;
+            this.failed = failed;
+            this.cacheHits = cacheHits;
+        }
+    }
+}
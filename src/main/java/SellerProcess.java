@@ -1,5 +1,6 @@
 import seller.SellerStub;
 import seller.SellerConfig;
+import monitoring.EventLog;
 
 public class SellerProcess {
     public static void main(String[] args) {
@@ -26,6 +27,7 @@ public class SellerProcess {
         System.out.println("Starting Seller Process at " + finalSellerEndpoint);
         if (finalConfig != null) {
             System.out.println("Configuration: " + finalConfig.toString());
+            EventLog.configure(finalConfig.logLevel, finalConfig.logBufferSize);
         }
         
         ProcessMonitor.logProcessStart("Seller-" + finalSellerEndpoint, finalSellerEndpoint);
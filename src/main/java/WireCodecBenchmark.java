@@ -0,0 +1,130 @@
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import messaging.WireCodec;
+import messaging.WireMessage;
+
+/**
+ * Size and parse cost of the seller protocol: legacy text path vs. the
+ * binary wire codec.
+ *
+ * The message mix is one saga's worth of traffic (RESERVE, CONFIRMED/PARTIAL/
+ * REJECTED, COMMIT, COMMITTED, CANCEL, ROLLED_BACK) with realistic order IDs.
+ * "legacy" repeats what the text path did per message before the codec
+ * existed: UTF-8 decode, printable-character scrubbing with a regex, split
+ * on ':', prefix checks, parseInt and the ":avail=" lookup. "text" is the
+ * single-pass WireCodec.parseText, "binary" is WireCodec.decode including
+ * the checksum check.
+ *
+ * Usage: WireCodecBenchmark [iterations=2000000] [rounds=5]
+ */
+public class WireCodecBenchmark {
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        String orderId = "MP-Load-1792200041620-192d529d";
+        List<WireMessage> mix = List.of(
+                WireMessage.reserve(orderId, "smartphone", 3, true),
+                WireMessage.confirmed(orderId, 3, 27),
+                WireMessage.partial(orderId, 2, 3, 0),
+                WireMessage.rejected(orderId, 0),
+                WireMessage.commit(orderId, "smartphone", 3),
+                WireMessage.committed(orderId, 3, 24),
+                WireMessage.cancel(orderId, "smartphone", 2),
+                WireMessage.rolledBack(orderId, 26));
+
+        byte[][] text = new byte[mix.size()][];
+        byte[][] binary = new byte[mix.size()][];
+        long textBytes = 0;
+        long binaryBytes = 0;
+        for (int i = 0; i < mix.size(); i++) {
+            text[i] = mix.get(i).toString().getBytes(StandardCharsets.UTF_8);
+            binary[i] = WireCodec.encode(mix.get(i));
+            textBytes += text[i].length;
+            binaryBytes += binary[i].length;
+        }
+
+        System.out.println("=== Wire Codec Benchmark ===");
+        System.out.println(String.format("%-12s %6s %7s", "message", "text", "binary"));
+        for (int i = 0; i < mix.size(); i++) {
+            System.out.println(String.format("%-12s %6d %7d", mix.get(i).op, text[i].length, binary[i].length));
+        }
+        System.out.println(String.format("%-12s %6.1f %7.1f bytes/message (%.0f%% smaller)", "average",
+                (double) textBytes / mix.size(), (double) binaryBytes / mix.size(),
+                100.0 * (textBytes - binaryBytes) / textBytes));
+
+        // Aufwärmen, damit alle drei Pfade kompiliert sind
+        for (int i = 0; i < 3; i++) {
+            legacy(text, iterations / 4);
+            parseText(text, iterations / 4);
+            decode(binary, iterations / 4);
+        }
+
+        long legacyNs = Long.MAX_VALUE;
+        long textNs = Long.MAX_VALUE;
+        long binaryNs = Long.MAX_VALUE;
+        for (int round = 0; round < rounds; round++) {
+            legacyNs = Math.min(legacyNs, legacy(text, iterations));
+            textNs = Math.min(textNs, parseText(text, iterations));
+            binaryNs = Math.min(binaryNs, decode(binary, iterations));
+        }
+
+        System.out.println(String.format("\n%-8s %10s", "parser", "ns/op"));
+        System.out.println(String.format("%-8s %10.1f", "legacy", (double) legacyNs / iterations));
+        System.out.println(String.format("%-8s %10.1f", "text", (double) textNs / iterations));
+        System.out.println(String.format("%-8s %10.1f", "binary", (double) binaryNs / iterations));
+    }
+
+    private static long legacy(byte[][] messages, int iterations) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            String reply = new String(messages[i % messages.length], StandardCharsets.UTF_8);
+            String clean = reply.replaceAll("[^\\p{Print}]", "").trim();
+            String[] parts = clean.split(":");
+            if (clean.startsWith("CONFIRMED") || clean.startsWith("COMMITTED")) {
+                sink += parts.length >= 3 ? Integer.parseInt(parts[2]) : 0;
+            } else if (clean.startsWith("PARTIAL") && parts.length >= 4) {
+                sink += Integer.parseInt(parts[2]);
+            } else if (clean.startsWith("RESERVE") || clean.startsWith("COMMIT") || clean.startsWith("CANCEL")) {
+                sink += Integer.parseInt(parts[3]) + parts[2].length();
+            }
+            int index = clean.lastIndexOf(":avail=");
+            if (index >= 0) {
+                sink += Integer.parseInt(clean.substring(index + 7).trim());
+            }
+            sink += parts[1].length();
+        }
+        return consume(sink, start);
+    }
+
+    private static long parseText(byte[][] messages, int iterations) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            WireMessage message = WireCodec.parseText(
+                    new String(messages[i % messages.length], StandardCharsets.UTF_8));
+            sink += message.quantity + message.granted + message.available + message.orderId.length();
+        }
+        return consume(sink, start);
+    }
+
+    private static long decode(byte[][] messages, int iterations) {
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            WireMessage message = WireCodec.decode(messages[i % messages.length]);
+            sink += message.quantity + message.granted + message.available + message.orderId.length();
+        }
+        return consume(sink, start);
+    }
+
+    private static long consume(long sink, long start) {
+        long elapsed = System.nanoTime() - start;
+        if (sink == 42) {
+            System.out.println("(sink)");
+        }
+        return elapsed;
+    }
+}
@@ -0,0 +1,163 @@
+package marketplace;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Marketplace-side view of which seller has stock for which product.
+ *
+ * Entries are fed by the ":avail=N" hints sellers attach to RESERVE, COMMIT
+ * and CANCEL replies and expire after ttlMs. A seller known to be out of
+ * stock is skipped during fan-out, except for one probe per probeIntervalMs
+ * so that a restock is noticed without waiting for the entry to expire.
+ *
+ * While a seller's inventory feed is live (see InventoryFeedSubscriber),
+ * its entries are kept current by push and neither expire nor need probes.
+ */
+public class AvailabilityCache {
+    private final long ttlMs;
+    private final long probeIntervalMs;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Set<String> liveFeeds = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong lookups = new AtomicLong(0);
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong avoidedRequests = new AtomicLong(0);
+    private final AtomicLong probes = new AtomicLong(0);
+
+    public AvailabilityCache(long ttlMs, long probeIntervalMs, int maxEntries) {
+        this.ttlMs = ttlMs;
+        this.probeIntervalMs = probeIntervalMs;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Neuer Bestandshinweis eines Sellers
+     */
+    public void update(String endpoint, String product, int available) {
+        if (available < 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Entry previous = entries.put(key(endpoint, product), new Entry(endpoint, available, now));
+        if (previous == null && entries.size() > maxEntries) {
+            evict(now);
+        }
+    }
+
+    /**
+     * true wenn der Seller bekanntermaßen nichts mehr vom Produkt hat und
+     * gerade keine Probe fällig ist
+     */
+    public boolean shouldSkip(String endpoint, String product) {
+        lookups.incrementAndGet();
+        Entry entry = entries.get(key(endpoint, product));
+        long now = System.currentTimeMillis();
+        if (entry == null || isExpired(entry, now)) {
+            return false;
+        }
+        hits.incrementAndGet();
+        if (entry.available > 0) {
+            return false;
+        }
+        if (liveFeeds.contains(endpoint)) {
+            // Der Feed meldet eine Nachlieferung von selbst
+            avoidedRequests.incrementAndGet();
+            return true;
+        }
+
+        // Periodische Probe, damit Nachlieferungen auffallen
+        long lastProbe = entry.lastProbe.get();
+        if (now - lastProbe >= probeIntervalMs && entry.lastProbe.compareAndSet(lastProbe, now)) {
+            probes.incrementAndGet();
+            return false;
+        }
+        avoidedRequests.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Letzter gültiger Bestandshinweis oder -1 wenn unbekannt/abgelaufen
+     */
+    public int getAvailable(String endpoint, String product) {
+        Entry entry = entries.get(key(endpoint, product));
+        if (entry == null || isExpired(entry, System.currentTimeMillis())) {
+            return -1;
+        }
+        return entry.available;
+    }
+
+    /**
+     * Markiert den Feed eines Sellers als synchron (true) oder fällt auf die TTL zurück (false)
+     */
+    public void setFeedLive(String endpoint, boolean live) {
+        if (live) {
+            liveFeeds.add(endpoint);
+        } else {
+            liveFeeds.remove(endpoint);
+        }
+    }
+
+    public boolean isFeedLive(String endpoint) {
+        return liveFeeds.contains(endpoint);
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.updatedAt > ttlMs && !liveFeeds.contains(entry.endpoint);
+    }
+
+    private void evict(long now) {
+        entries.values().removeIf(entry -> isExpired(entry, now));
+        while (entries.size() > maxEntries) {
+            String oldestKey = null;
+            long oldest = Long.MAX_VALUE;
+            for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                if (e.getValue().updatedAt < oldest) {
+                    oldest = e.getValue().updatedAt;
+                    oldestKey = e.getKey();
+                }
+            }
+            if (oldestKey == null) {
+                break;
+            }
+            entries.remove(oldestKey);
+        }
+    }
+
+    private static String key(String endpoint, String product) {
+        return endpoint + "|" + product;
+    }
+
+    public long getLookups() { return lookups.get(); }
+    public long getHits() { return hits.get(); }
+    public long getAvoidedRequests() { return avoidedRequests.get(); }
+    public long getProbes() { return probes.get(); }
+
+    public double getHitRate() {
+        long total = lookups.get();
+        return total > 0 ? hits.get() * 100.0 / total : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AvailabilityCache{entries=%d, liveFeeds=%d, hitRate=%.1f%%, avoidedRequests=%d, probes=%d}",
+                           entries.size(), liveFeeds.size(), getHitRate(), avoidedRequests.get(), probes.get());
+    }
+
+    private static class Entry {
+        final String endpoint;
+        final int available;
+        final long updatedAt;
+        final AtomicLong lastProbe;
+
+        Entry(String endpoint, int available, long updatedAt) {
+            this.endpoint = endpoint;
+            this.available = available;
+            this.updatedAt = updatedAt;
+            this.lastProbe = new AtomicLong(updatedAt);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package marketplace;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Original behaviour: every candidate seller gets the RESERVE.
+ */
+public class BroadcastSelector implements SellerSelector {
+
+    @Override
+    public Selection select(List<String> candidates, String product, int quantity) {
+        return new Selection(candidates, Collections.emptyList());
+    }
+
+    @Override
+    public void recordResponse(String endpoint, long latencyMs, boolean success) {
+        // Broadcast braucht keine Statistik
+    }
+
+    @Override
+    public String toString() {
+        return "BroadcastSelector";
+    }
+}
@@ -0,0 +1,140 @@
+package marketplace;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import monitoring.EventLog;
+
+/**
+ * Circuit breaker for one seller endpoint.
+ *
+ * CLOSED: requests flow normally. The breaker opens after
+ * consecutiveFailureThreshold timeouts in a row, or when the error rate over
+ * the last windowSize calls exceeds errorRateThreshold.
+ * OPEN: the seller is left out of the fan-out until openMs have passed.
+ * HALF_OPEN: one HEALTH_CHECK probe decides between CLOSED and OPEN again.
+ */
+public class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String endpoint;
+    private final int consecutiveFailureThreshold;
+    private final double errorRateThreshold;
+    private final long openMs;
+
+    private final boolean[] window;
+    private int windowIndex = 0;
+    private int windowCount = 0;
+    private int windowFailures = 0;
+    private int consecutiveFailures = 0;
+    private volatile State state = State.CLOSED;
+    private long openedAt = 0;
+
+    private final AtomicLong timesOpened = new AtomicLong(0);
+    private final AtomicLong timesHalfOpened = new AtomicLong(0);
+    private final AtomicLong timesClosed = new AtomicLong(0);
+
+    public CircuitBreaker(String endpoint, int consecutiveFailureThreshold, double errorRateThreshold,
+                          int windowSize, long openMs) {
+        this.endpoint = endpoint;
+        this.consecutiveFailureThreshold = consecutiveFailureThreshold;
+        this.errorRateThreshold = errorRateThreshold;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.openMs = openMs;
+    }
+
+    /**
+     * Darf der Seller in den Fan-out? (nur im Zustand CLOSED)
+     */
+    public boolean allowRequest() {
+        return state == State.CLOSED;
+    }
+
+    public synchronized void recordSuccess() {
+        record(false);
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void recordFailure() {
+        record(true);
+        consecutiveFailures++;
+
+        if (state == State.CLOSED && (consecutiveFailures >= consecutiveFailureThreshold || errorRateExceeded())) {
+            transition(State.OPEN);
+        }
+    }
+
+    /**
+     * true wenn die Öffnungszeit abgelaufen ist; der Aufrufer schickt dann genau eine Probe
+     */
+    public synchronized boolean tryStartProbe() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            transition(State.HALF_OPEN);
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void recordProbeResult(boolean healthy) {
+        if (state != State.HALF_OPEN) {
+            return;
+        }
+        if (healthy) {
+            resetWindow();
+            transition(State.CLOSED);
+        } else {
+            transition(State.OPEN);
+        }
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length && window[windowIndex]) {
+            windowFailures--;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+        windowCount = Math.min(window.length, windowCount + 1);
+    }
+
+    private boolean errorRateExceeded() {
+        // Fehlerrate erst bei vollem Fenster bewerten, sonst öffnen einzelne Ausreißer
+        return windowCount == window.length && (double) windowFailures / windowCount > errorRateThreshold;
+    }
+
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+        consecutiveFailures = 0;
+    }
+
+    private void transition(State next) {
+        State previous = state;
+        state = next;
+        if (next == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+            timesOpened.incrementAndGet();
+        } else if (next == State.HALF_OPEN) {
+            timesHalfOpened.incrementAndGet();
+        } else {
+            timesClosed.incrementAndGet();
+        }
+        EventLog.warn("🔌 Circuit breaker {}: {} -> {}", endpoint, previous, next);
+    }
+
+    public State getState() { return state; }
+    public String getEndpoint() { return endpoint; }
+    public long getTimesOpened() { return timesOpened.get(); }
+    public long getTimesHalfOpened() { return timesHalfOpened.get(); }
+    public long getTimesClosed() { return timesClosed.get(); }
+
+    @Override
+    public String toString() {
+        return String.format("%s=%s(opened=%d, halfOpened=%d, closed=%d)",
+                           endpoint, state, timesOpened.get(), timesHalfOpened.get(), timesClosed.get());
+    }
+}
@@ -0,0 +1,270 @@
+package marketplace;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.zeromq.ZMQ;
+import messaging.FeedMessage;
+import messaging.MessageUtils;
+import messaging.SellerChannel;
+import monitoring.EventLog;
+
+/**
+ * Keeps the AvailabilityCache current from the sellers' inventory feeds.
+ *
+ * One thread owns a SUB socket per seller. A seller counts as synced once
+ * a snapshot has been applied and every later STOCK message followed the
+ * previous one by exactly one sequence number. While it is synced, its
+ * cache entries do not expire (AvailabilityCache.setFeedLive). The feed
+ * falls back to the TTL-based reply hints, and a new snapshot is
+ * requested, when:
+ *   - a sequence gap shows up (including one revealed by a heartbeat),
+ *   - the epoch changes (seller restart), or
+ *   - the feed stays silent for longer than staleAfterMs.
+ * Messages that arrive while a snapshot is in flight are buffered and
+ * replayed on top of it, as in the ZeroMQ "clone" pattern.
+ */
+public class InventoryFeedSubscriber implements AutoCloseable {
+    private static final int MAX_BUFFERED = 10_000;
+
+    private final List<String> sellerEndpoints;
+    private final SellerChannel channel;
+    private final long timeoutMs;
+    private final AvailabilityCache cache;
+    private final int portOffset;
+    private final long staleAfterMs;
+    private final Queue<Runnable> snapshotReplies = new ConcurrentLinkedQueue<>();
+    private final Thread subscriber;
+    private volatile boolean running = true;
+
+    private final AtomicLong updates = new AtomicLong(0);
+    private final AtomicLong gaps = new AtomicLong(0);
+    private final AtomicLong snapshots = new AtomicLong(0);
+
+    public InventoryFeedSubscriber(List<String> sellerEndpoints, SellerChannel channel, long timeoutMs,
+                                   AvailabilityCache cache, int portOffset, long staleAfterMs) {
+        this.sellerEndpoints = sellerEndpoints;
+        this.channel = channel;
+        this.timeoutMs = timeoutMs;
+        this.cache = cache;
+        this.portOffset = portOffset;
+        this.staleAfterMs = staleAfterMs;
+        this.subscriber = new Thread(this::subscribeLoop, "inventory-feed-subscriber");
+        this.subscriber.setDaemon(true);
+        this.subscriber.start();
+    }
+
+    private void subscribeLoop() {
+        List<Feed> feeds = new ArrayList<>();
+        ZMQ.Poller poller = MessageUtils.getContext().createPoller(sellerEndpoints.size());
+        try {
+            for (String endpoint : sellerEndpoints) {
+                Feed feed = new Feed(endpoint, MessageUtils.createSocket("SUB", false,
+                                                                         FeedMessage.feedEndpoint(endpoint, portOffset)));
+                feed.socket.subscribe(new byte[0]);
+                poller.register(feed.socket, ZMQ.Poller.POLLIN);
+                feeds.add(feed);
+                // Erst abonnieren, dann Snapshot holen: was dazwischen kommt, landet im Puffer
+                requestSnapshot(feed);
+            }
+
+            while (running && !Thread.currentThread().isInterrupted()) {
+                poller.poll(100);
+                for (int i = 0; i < feeds.size(); i++) {
+                    if (poller.pollin(i)) {
+                        receive(feeds.get(i));
+                    }
+                }
+                Runnable reply;
+                while ((reply = snapshotReplies.poll()) != null) {
+                    reply.run();
+                }
+                long now = System.currentTimeMillis();
+                for (Feed feed : feeds) {
+                    checkStale(feed, now);
+                }
+            }
+        } catch (RuntimeException e) {
+            if (running) {
+                EventLog.error("[FEED] Subscriber stopped: {}", e.getMessage());
+            }
+        } finally {
+            poller.close();
+            feeds.forEach(feed -> feed.socket.close());
+        }
+    }
+
+    private void receive(Feed feed) {
+        byte[] frame;
+        while ((frame = feed.socket.recv(ZMQ.DONTWAIT)) != null) {
+            FeedMessage message;
+            try {
+                message = FeedMessage.decode(frame);
+            } catch (IllegalArgumentException e) {
+                EventLog.warn("[FEED] Dropped malformed message from {}: {}", feed.endpoint, e.getMessage());
+                continue;
+            }
+            feed.lastHeard = System.currentTimeMillis();
+            feed.unsupported = false;
+            onMessage(feed, message);
+        }
+    }
+
+    private void onMessage(Feed feed, FeedMessage message) {
+        if (!feed.synced) {
+            if (feed.buffered.size() >= MAX_BUFFERED) {
+                // Lücke ist ohnehin sicher; nach dem Snapshot wird neu synchronisiert
+                feed.buffered.clear();
+            }
+            feed.buffered.add(message);
+            requestSnapshot(feed);
+            return;
+        }
+        if (message.epoch != feed.epoch) {
+            resync(feed, "seller restarted", message);
+            return;
+        }
+        if (message.sequence <= feed.lastSequence) {
+            return;
+        }
+        if (message.type == FeedMessage.HEARTBEAT || message.sequence != feed.lastSequence + 1) {
+            resync(feed, "gap after " + feed.lastSequence + ", seller at " + message.sequence, message);
+            return;
+        }
+        apply(feed, message);
+    }
+
+    private void apply(Feed feed, FeedMessage message) {
+        cache.update(feed.endpoint, message.product, message.available);
+        feed.lastSequence = message.sequence;
+        updates.incrementAndGet();
+    }
+
+    private void resync(Feed feed, String reason, FeedMessage trigger) {
+        gaps.incrementAndGet();
+        EventLog.info("[FEED] 🔁 Resync with {}: {}", feed.endpoint, reason);
+        feed.synced = false;
+        cache.setFeedLive(feed.endpoint, false);
+        feed.buffered.clear();
+        if (trigger.type == FeedMessage.STOCK) {
+            feed.buffered.add(trigger);
+        }
+        requestSnapshot(feed);
+    }
+
+    private void checkStale(Feed feed, long now) {
+        if (feed.synced && now - feed.lastHeard > staleAfterMs) {
+            EventLog.warn("[FEED] ⚠️ No feed message from {} for {}ms, falling back to reply hints",
+                          feed.endpoint, now - feed.lastHeard);
+            feed.synced = false;
+            cache.setFeedLive(feed.endpoint, false);
+            feed.buffered.clear();
+        }
+        // Seller ohne Feed (ältere Version) nicht dauernd fragen; eine Feed-Nachricht hebt das auf
+        if (!feed.synced && !feed.unsupported && now - feed.lastRequest >= staleAfterMs) {
+            requestSnapshot(feed);
+        }
+    }
+
+    /**
+     * Über den normalen Request-Kanal; die Antwort wird im Subscriber-Thread verarbeitet
+     */
+    private void requestSnapshot(Feed feed) {
+        if (feed.snapshotPending) {
+            return;
+        }
+        feed.snapshotPending = true;
+        feed.lastRequest = System.currentTimeMillis();
+        channel.send(feed.endpoint, FeedMessage.SNAPSHOT_REQUEST, timeoutMs).whenComplete((reply, error) ->
+                snapshotReplies.add(() -> onSnapshot(feed, reply, error)));
+    }
+
+    private void onSnapshot(Feed feed, String reply, Throwable error) {
+        feed.snapshotPending = false;
+        if (error != null || !running) {
+            return;
+        }
+        FeedMessage.Snapshot snapshot;
+        try {
+            snapshot = FeedMessage.decodeSnapshot(reply);
+        } catch (IllegalArgumentException e) {
+            if (reply.startsWith("ERROR:")) {
+                feed.unsupported = true;
+                EventLog.info("[FEED] {} has no inventory feed ({}), using reply hints only", feed.endpoint, reply);
+            }
+            return;
+        }
+
+        for (Map.Entry<String, Integer> entry : snapshot.available.entrySet()) {
+            cache.update(feed.endpoint, entry.getKey(), entry.getValue());
+        }
+        feed.epoch = snapshot.epoch;
+        feed.lastSequence = snapshot.sequence;
+        feed.lastHeard = System.currentTimeMillis();
+        snapshots.incrementAndGet();
+
+        // Gepufferte Nachrichten nach dem Snapshot nachspielen
+        Deque<FeedMessage> buffered = feed.buffered;
+        feed.buffered = new ArrayDeque<>();
+        feed.synced = true;
+        for (FeedMessage message : buffered) {
+            if (message.epoch != feed.epoch) {
+                continue;
+            }
+            onMessage(feed, message);
+            if (!feed.synced) {
+                return;
+            }
+        }
+        cache.setFeedLive(feed.endpoint, true);
+        EventLog.info("[FEED] ✅ Synced with {} at sequence {} ({} product(s), {} buffered)",
+                      feed.endpoint, feed.lastSequence, snapshot.available.size(), buffered.size());
+    }
+
+    public long getUpdates() { return updates.get(); }
+    public long getGaps() { return gaps.get(); }
+    public long getSnapshots() { return snapshots.get(); }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            subscriber.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InventoryFeedSubscriber{sellers=%d, updates=%d, gaps=%d, snapshots=%d}",
+                           sellerEndpoints.size(), updates.get(), gaps.get(), snapshots.get());
+    }
+
+    /**
+     * Zustand pro Seller; nur vom Subscriber-Thread benutzt
+     */
+    private static class Feed {
+        final String endpoint;
+        final ZMQ.Socket socket;
+        long epoch = -1;
+        long lastSequence = 0;
+        long lastHeard = 0;
+        long lastRequest = 0;
+        boolean synced = false;
+        boolean snapshotPending = false;
+        boolean unsupported = false;
+        Deque<FeedMessage> buffered = new ArrayDeque<>();
+
+        Feed(String endpoint, ZMQ.Socket socket) {
+            this.endpoint = endpoint;
+            this.socket = socket;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package marketplace;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Targeted fan-out: ranks sellers by an EWMA of their response time divided
+ * by their recent success rate, then contacts only as many of the best ones
+ * as are expected to cover the quantity, plus safetyMargin extra sellers.
+ * Stock hints from the availability cache refine how much each seller is
+ * expected to grant; sellers without a hint are assumed to cover it all.
+ */
+public class LatencyWeightedSelector implements SellerSelector {
+    private static final double MIN_SUCCESS_RATE = 0.05;
+
+    private final int safetyMargin;
+    private final double alpha;
+    private final AvailabilityCache availabilityCache;
+    private final Map<String, SellerStats> stats = new ConcurrentHashMap<>();
+
+    public LatencyWeightedSelector(int safetyMargin, double alpha, AvailabilityCache availabilityCache) {
+        this.safetyMargin = Math.max(0, safetyMargin);
+        this.alpha = alpha;
+        this.availabilityCache = availabilityCache;
+    }
+
+    @Override
+    public Selection select(List<String> candidates, String product, int quantity) {
+        List<String> ranked = new ArrayList<>(candidates);
+        ranked.sort(Comparator.comparingDouble(this::score));
+
+        int expected = 0;
+        int primaryCount = 0;
+        while (primaryCount < ranked.size() && expected < quantity) {
+            expected += expectedGrant(ranked.get(primaryCount), product, quantity);
+            primaryCount++;
+        }
+        primaryCount = Math.min(ranked.size(), primaryCount + safetyMargin);
+
+        return new Selection(ranked.subList(0, primaryCount), ranked.subList(primaryCount, ranked.size()));
+    }
+
+    @Override
+    public void recordResponse(String endpoint, long latencyMs, boolean success) {
+        stats.computeIfAbsent(endpoint, e -> new SellerStats()).update(latencyMs, success, alpha);
+    }
+
+    /**
+     * Kleiner ist besser; unbekannte Seller starten mit 0 und werden so erst einmal ausprobiert
+     */
+    private double score(String endpoint) {
+        SellerStats s = stats.get(endpoint);
+        return s == null ? 0 : s.score();
+    }
+
+    private int expectedGrant(String endpoint, String product, int quantity) {
+        int hint = availabilityCache != null ? availabilityCache.getAvailable(endpoint, product) : -1;
+        return hint >= 0 ? Math.min(hint, quantity) : quantity;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("LatencyWeightedSelector{margin=" + safetyMargin);
+        stats.forEach((endpoint, s) -> sb.append(", ").append(endpoint).append('=').append(s));
+        return sb.append('}').toString();
+    }
+
+    private static class SellerStats {
+        private double ewmaLatencyMs = -1;
+        private double successRate = 1.0;
+
+        synchronized void update(long latencyMs, boolean success, double alpha) {
+            ewmaLatencyMs = ewmaLatencyMs < 0 ? latencyMs : alpha * latencyMs + (1 - alpha) * ewmaLatencyMs;
+            successRate = alpha * (success ? 1.0 : 0.0) + (1 - alpha) * successRate;
+        }
+
+        synchronized double score() {
+            return Math.max(0, ewmaLatencyMs) / Math.max(MIN_SUCCESS_RATE, successRate);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format("%.0fms/%.0f%%", ewmaLatencyMs, successRate * 100);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package marketplace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import model.Order;
+import monitoring.EventLog;
+import monitoring.Latencies;
+import monitoring.LatencyHistogram;
+
+/**
+ * Open-loop load generator for the marketplace.
+ *
+ * Arrivals are scheduled on their own clock (fixed rate or Poisson) and never
+ * wait for earlier orders to finish; at most max_in_flight sagas run at once
+ * and the rest queue. Latency is measured from the scheduled arrival time, so
+ * queueing delay shows up in the numbers instead of silently lowering the
+ * offered load.
+ */
+public class LoadGenerator {
+    private final Marketplace marketplace;
+    private final MarketplaceConfig.OrderSettings settings;
+    private final List<String> products;
+    private final Random random = new Random();
+    private final double[] popularityCdf;
+
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicInteger maxInFlightSeen = new AtomicInteger(0);
+    private final AtomicInteger successful = new AtomicInteger(0);
+    private final AtomicInteger failed = new AtomicInteger(0);
+    // Wie ProcessMonitor: Bestellung aus Kundensicht, hier inklusive Wartezeit vor dem Start
+    private final LatencyHistogram latency = Latencies.histogram("order");
+
+    public LoadGenerator(Marketplace marketplace, MarketplaceConfig config) {
+        this.marketplace = marketplace;
+        this.settings = config.orders;
+        this.products = config.products;
+        this.popularityCdf = buildPopularityCdf(products.size(), settings.popularity, settings.zipf_exponent);
+    }
+
+    /**
+     * Generiert max_orders Bestellungen und wartet, bis alle abgeschlossen sind
+     */
+    public Report run() throws InterruptedException {
+        int totalOrders = settings.max_orders;
+        double meanInterArrivalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, settings.arrival_rate_ms));
+        boolean poisson = "poisson".equalsIgnoreCase(settings.arrival);
+
+        ExecutorService orderExecutor = Executors.newFixedThreadPool(Math.max(1, settings.max_in_flight));
+        CountDownLatch done = new CountDownLatch(totalOrders);
+
+        System.out.println(String.format("🚀 Load generator: %d orders, %s arrivals, target %.2f orders/s, max %d in flight, %s popularity",
+                totalOrders, poisson ? "poisson" : "fixed", targetRate(), settings.max_in_flight, settings.popularity));
+
+        long startNanos = System.nanoTime();
+        long nextArrival = startNanos;
+
+        for (int i = 0; i < totalOrders; i++) {
+            long delay = nextArrival - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedException("Load generation interrupted");
+            }
+
+            final long scheduledAt = nextArrival;
+            final List<Order.LineItem> basket = nextBasket();
+
+            orderExecutor.execute(() -> {
+                int current = inFlight.incrementAndGet();
+                maxInFlightSeen.accumulateAndGet(current, Math::max);
+                try {
+                    if (marketplace.placeOrder(basket)) {
+                        successful.incrementAndGet();
+                    } else {
+                        failed.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                } finally {
+                    inFlight.decrementAndGet();
+                    latency.recordSince(scheduledAt);
+                    done.countDown();
+                }
+            });
+
+            // Ankunftszeitpunkte unabhängig von Abschlusszeiten (open loop)
+            nextArrival += poisson
+                    ? (long) (-Math.log(1.0 - random.nextDouble()) * meanInterArrivalNanos)
+                    : (long) meanInterArrivalNanos;
+        }
+        long lastArrivalNanos = System.nanoTime();
+
+        done.await();
+        long endNanos = System.nanoTime();
+        orderExecutor.shutdown();
+
+        return new Report(totalOrders, successful.get(), failed.get(), maxInFlightSeen.get(),
+                targetRate(), lastArrivalNanos - startNanos, endNanos - startNanos,
+                latency.snapshot());
+    }
+
+    private double targetRate() {
+        return 1000.0 / Math.max(1, settings.arrival_rate_ms);
+    }
+
+    /**
+     * 1..max_line_items verschiedene Produkte, jeweils 1..max_quantity Stück
+     */
+    private List<Order.LineItem> nextBasket() {
+        int lines = random.nextInt(Math.max(1, Math.min(settings.max_line_items, products.size()))) + 1;
+        List<Order.LineItem> basket = new ArrayList<>(lines);
+        List<String> chosen = new ArrayList<>(lines);
+        while (chosen.size() < lines) {
+            String product = nextProduct();
+            if (!chosen.contains(product)) {
+                chosen.add(product);
+                basket.add(new Order.LineItem(product, random.nextInt(Math.max(1, settings.max_quantity)) + 1));
+            }
+        }
+        return basket;
+    }
+
+    private String nextProduct() {
+        double u = random.nextDouble();
+        int index = Arrays.binarySearch(popularityCdf, u);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return products.get(Math.min(index, products.size() - 1));
+    }
+
+    /**
+     * Kumulative Verteilung über die Produktliste: uniform oder Zipf (Rang 1 = erstes Produkt)
+     */
+    private static double[] buildPopularityCdf(int n, String popularity, double exponent) {
+        double[] weights = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            weights[i] = "zipf".equalsIgnoreCase(popularity) ? 1.0 / Math.pow(i + 1, exponent) : 1.0;
+            sum += weights[i];
+        }
+        double[] cdf = new double[n];
+        double acc = 0;
+        for (int i = 0; i < n; i++) {
+            acc += weights[i] / sum;
+            cdf[i] = acc;
+        }
+        return cdf;
+    }
+
+    /**
+     * Ergebnis eines Lastlaufs
+     */
+    public static class Report {
+        public final int orders;
+        public final int successful;
+        public final int failed;
+        public final int maxInFlight;
+        public final double targetRate;
+        public final double offeredRate;
+        public final double achievedThroughput;
+        private final LatencyHistogram.Snapshot latency;
+
+        Report(int orders, int successful, int failed, int maxInFlight, double targetRate,
+               long arrivalSpanNanos, long totalNanos, LatencyHistogram.Snapshot latency) {
+            this.orders = orders;
+            this.successful = successful;
+            this.failed = failed;
+            this.maxInFlight = maxInFlight;
+            this.targetRate = targetRate;
+            // n Ankünfte spannen n-1 Intervalle auf
+            this.offeredRate = arrivalSpanNanos > 0 ? (orders - 1) * 1e9 / arrivalSpanNanos : 0;
+            this.achievedThroughput = totalNanos > 0 ? orders * 1e9 / totalNanos : 0;
+            this.latency = latency;
+        }
+
+        /**
+         * Perzentil in ms (auf 1% genau, siehe LatencyHistogram)
+         */
+        public long percentile(double p) {
+            return latency.percentileMicros(p) / 1000;
+        }
+
+        public void print() {
+            EventLog.flush();
+            System.out.println("\n" + "=".repeat(50));
+            System.out.println("LOAD GENERATOR REPORT");
+            System.out.println("=".repeat(50));
+            System.out.println(String.format("Orders: %d total, %d successful, %d failed", orders, successful, failed));
+            System.out.println(String.format("Target rate:   %.2f orders/s", targetRate));
+            System.out.println(String.format("Offered rate:  %.2f orders/s", offeredRate));
+            System.out.println(String.format("Throughput:    %.2f orders/s (%.1f%% of target)",
+                    achievedThroughput, targetRate > 0 ? achievedThroughput * 100.0 / targetRate : 0));
+            System.out.println(String.format("Max in flight: %d", maxInFlight));
+            System.out.println(String.format("Latency (incl. queueing): p50=%dms p90=%dms p99=%dms p99.9=%dms max=%dms",
+                    percentile(50), percentile(90), percentile(99), percentile(99.9), latency.getMaxMicros() / 1000));
+            System.out.println("=".repeat(50));
+        }
+    }
+}
@@ -1,32 +1,209 @@
 package marketplace;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
 
-import org.zeromq.ZMQ;
-
-import messaging.MessageUtils;
+import messaging.BatchMessage;
+import messaging.BatchingChannel;
+import messaging.ConnectionPool;
+import messaging.DealerChannel;
+import messaging.ReqChannel;
+import messaging.RetryingChannel;
+import messaging.SellerChannel;
+import messaging.WireCodec;
+import messaging.WireMessage;
 import model.Order;
+import monitoring.EventLog;
+import monitoring.Latencies;
+import monitoring.LatencyHistogram;
+import monitoring.MetricsRegistry;
+import monitoring.MetricsServer;
+import monitoring.RateMeter;
+import model.Order.Outcome;
 import model.Order.Status;
 
 public class Marketplace {
+    private static final int RECOVERY_ATTEMPTS = 3;
+
     private final List<String> sellerEndpoints;
-    private final ExecutorService executor = Executors.newFixedThreadPool(10);
+    private final ExecutorService executor;
+    private final SellerChannel channel;
+    private final AvailabilityCache availabilityCache;
+    private final InventoryFeedSubscriber feedSubscriber;
+    private final SellerSelector sellerSelector;
+    private final Map<String, CircuitBreaker> circuitBreakers = new LinkedHashMap<>();
+    private final ScheduledExecutorService healthProber;
+    private final int maxQueuedWhileOpen;
+    private final Map<String, AtomicInteger> queuedWhileOpen = new ConcurrentHashMap<>();
+    private final SagaLog sagaLog;
+    private final MetricsServer metricsServer;
+    private final boolean binaryWire;
+    private final Map<String, Boolean> binaryPeers = new ConcurrentHashMap<>();
+    private final Set<String> negotiating = ConcurrentHashMap.newKeySet();
     private final int timeoutMs;
     private final String marketplaceId;
+    private final AtomicLong phaseTwoLatencyTotal = new AtomicLong(0);
+    private final AtomicLong phaseTwoCount = new AtomicLong(0);
+    private final AtomicLong messagesSent = new AtomicLong(0);
+    private final AtomicLong sagasCompleted = new AtomicLong(0);
+    private final AtomicLong busyRejections = new AtomicLong(0);
+    private final AtomicLong sagasCommitted = new AtomicLong(0);
+    private final AtomicInteger sagasInFlight = new AtomicInteger(0);
+    private final RateMeter sagaRate = new RateMeter(10);
+    private final Map<String, AtomicLong> sellerTimeouts = new ConcurrentHashMap<>();
+    // Perzentile statt Mittelwerte: ganze Saga und jede Seller-Rundreise pro Phase
+    private final LatencyHistogram sagaLatency = Latencies.histogram("saga");
+    private final PhaseLatency reserveLatency = new PhaseLatency("reserve");
+    private final PhaseLatency commitLatency = new PhaseLatency("commit");
+    private final PhaseLatency rollbackLatency = new PhaseLatency("rollback");
 
     public Marketplace(List<String> sellerEndpoints, String marketplaceId) {
         this(sellerEndpoints, 2000, marketplaceId);
     }
 
     public Marketplace(List<String> sellerEndpoints, int timeoutMs, String marketplaceId) {
+        this(sellerEndpoints, timeoutMs, marketplaceId, new MarketplaceConfig());
+    }
+
+    public Marketplace(MarketplaceConfig config) {
+        this(config.sellers, config.orders.timeout_ms, config.marketplace.name, config);
+    }
+
+    /**
+     * @param settings liefert die optionalen Abschnitte (messaging, availability, selection, ...)
+     */
+    private Marketplace(List<String> sellerEndpoints, int timeoutMs, String marketplaceId,
+                        MarketplaceConfig settings) {
         this.sellerEndpoints = sellerEndpoints;
         this.timeoutMs = timeoutMs;
         this.marketplaceId = marketplaceId != null ? marketplaceId : "MP-" + System.currentTimeMillis();
+        MarketplaceConfig.SimulationSettings simulation = settings.simulation;
+        if (simulation != null) {
+            EventLog.configure(simulation.effectiveLogLevel(), simulation.log_buffer_size);
+        }
+        this.executor = createExecutor(settings.executor);
+        MarketplaceConfig.MessagingSettings messaging = settings.messaging;
+        MarketplaceConfig.AvailabilitySettings availability = settings.availability;
+
+        SellerChannel transport;
+        if ("async".equalsIgnoreCase(messaging.mode)) {
+            transport = new DealerChannel();
+        } else {
+            transport = new ReqChannel(new ConnectionPool(messaging.pool_max_idle), executor);
+        }
+        if (messaging.batch_enabled) {
+            transport = new BatchingChannel(transport, messaging.batch_max_ops, messaging.batch_flush_ms);
+        }
+        // Wiederholungen sind sicher, weil Seller doppelte (orderId, Operation) aus ihrem Antwort-Cache beantworten
+        this.channel = messaging.retry_attempts > 1
+                ? new RetryingChannel(transport, messaging.retry_attempts, messaging.retry_timeout_ms,
+                                      messaging.retry_backoff_ms)
+                : transport;
+
+        // Binärformat erst nach Aushandlung pro Seller, bis dahin Text
+        this.binaryWire = "binary".equalsIgnoreCase(messaging.wire_format);
+        if (binaryWire) {
+            sellerEndpoints.forEach(this::negotiateWireFormat);
+        }
+
+        this.availabilityCache = availability.enabled
+                ? new AvailabilityCache(availability.ttl_ms, availability.probe_interval_ms, availability.max_entries)
+                : null;
+        this.feedSubscriber = availabilityCache != null && availability.feed_enabled
+                ? new InventoryFeedSubscriber(sellerEndpoints, channel, timeoutMs, availabilityCache,
+                                              availability.feed_port_offset, availability.feed_timeout_ms)
+                : null;
+
+        this.sellerSelector = "targeted".equalsIgnoreCase(settings.selection.strategy)
+                ? new LatencyWeightedSelector(settings.selection.safety_margin, settings.selection.ewma_alpha,
+                                              availabilityCache)
+                : new BroadcastSelector();
+
+        MarketplaceConfig.CircuitBreakerSettings breaker = settings.circuit_breaker;
+        this.maxQueuedWhileOpen = breaker.max_queued_while_open;
+        if (breaker.enabled) {
+            for (String endpoint : sellerEndpoints) {
+                circuitBreakers.put(endpoint, new CircuitBreaker(endpoint, breaker.consecutive_failures,
+                        breaker.error_rate_threshold, breaker.window_size, breaker.open_ms));
+            }
+            this.healthProber = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "circuit-breaker-probe");
+                t.setDaemon(true);
+                return t;
+            });
+            healthProber.scheduleWithFixedDelay(this::probeOpenCircuits, breaker.probe_interval_ms,
+                                                breaker.probe_interval_ms, TimeUnit.MILLISECONDS);
+        } else {
+            this.healthProber = null;
+        }
+
+        MarketplaceConfig.SagaLogSettings log = settings.saga_log;
+        if (log.enabled) {
+            try {
+                this.sagaLog = new SagaLog(Paths.get(log.directory, this.marketplaceId).toString(),
+                                           log.segment_bytes, log.fsync);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open saga log in " + log.directory, e);
+            }
+            recoverInDoubtSagas(log.recovery_timeout_ms);
+        } else {
+            this.sagaLog = null;
+        }
+
+        // Zuletzt: alle Komponenten, deren Zähler der Endpunkt liest, existieren jetzt
+        this.metricsServer = settings.metrics.enabled ? startMetrics(settings.metrics.port) : null;
+    }
+
+    private MetricsServer startMetrics(int port) {
+        MetricsRegistry registry = new MetricsRegistry("marketplace");
+        registerMetrics(registry);
+        try {
+            MetricsServer server = new MetricsServer(port, registry);
+            System.out.println("📊 Metrics at http://0.0.0.0:" + server.getPort() + "/metrics");
+            return server;
+        } catch (IOException e) {
+            // Ohne Metriken weiterarbeiten statt keine Bestellungen anzunehmen
+            System.out.println("⚠️ Metrics endpoint not started on port " + port + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * fixed: begrenzter Pool, jeder blockierende Seller-Aufruf belegt einen Plattform-Thread;
+     * virtual: ein virtueller Thread pro Aufruf, blockierendes recv gibt den Träger-Thread frei
+     */
+    public static ExecutorService createExecutor(MarketplaceConfig.ExecutorSettings settings) {
+        if ("virtual".equalsIgnoreCase(settings.type)) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return Executors.newFixedThreadPool(Math.max(1, settings.pool_size));
     }
 
     // Backward compatibility
@@ -41,38 +218,133 @@ public class Marketplace {
     /**
      * KORREKTE SAGA-Implementierung mit "ALLES-ODER-NICHTS" Semantik
      * Kunde bekommt entweder die KOMPLETTE Bestellung oder gar nichts
+     *
+     * @return true wenn die Bestellung committet wurde
+     */
+    public boolean placeOrder(String product, int quantity) {
+        return placeOrder(List.of(new Order.LineItem(product, quantity)));
+    }
+
+    /**
+     * Warenkorb als EINE Saga: jeder Seller bekommt alle Positionen in einer Nachricht,
+     * COMMIT nur wenn jede Position vollständig reserviert ist, sonst ROLLBACK von allem
+     *
+     * @return true wenn der gesamte Warenkorb committet wurde
      */
-    public void placeOrder(String product, int quantity) {
-        Order order = new Order(product, quantity, marketplaceId);
-        System.out.println("=== Starting SAGA transaction for order: " + order.getId() + " ===");
-        System.out.println("    Marketplace: " + marketplaceId);
-        System.out.println("    Product: " + product + ", Quantity: " + quantity);
-        System.out.println("    SAGA Rule: Customer gets ALL " + quantity + " items or NONE");
+    public boolean placeOrder(List<Order.LineItem> items) {
+        sagasInFlight.incrementAndGet();
+        try {
+            return runSaga(items);
+        } finally {
+            sagasInFlight.decrementAndGet();
+        }
+    }
+
+    private boolean runSaga(List<Order.LineItem> items) {
+        Order order = new Order(items, marketplaceId);
+        EventLog.info("=== SAGA {} started on {}: {} (customer gets ALL or NONE) ===",
+                      order.getId(), marketplaceId, order.getItems());
 
         long sagaStartTime = System.currentTimeMillis();
+        long sagaStartNanos = System.nanoTime();
+
+        // WAL-Regel: BEGIN muss dauerhaft sein, bevor irgendein Seller reserviert
+        if (sagaLog != null && !awaitDurable(sagaLog.logBegin(order.getId(), order.getItems()))) {
+            EventLog.error("❌ SAGA ABORTED: could not write BEGIN for {} to saga log", order.getId());
+            return false;
+        }
 
         // Phase 1: RESERVE - Send reservation requests to all sellers
-        List<Future<ReserveResult>> futures = sellerEndpoints.stream()
-                .map(endpoint -> executor.submit(() -> reserve(endpoint, order)))
-                .collect(Collectors.toList());
+        // Eine einzige Deadline für die gesamte Reservierungsphase (nicht N x timeout)
+        long deadline = sagaStartTime + timeoutMs;
+        ReserveRequests requests = new ReserveRequests(order);
+        List<String> candidates = new ArrayList<>();
+        for (String endpoint : sellerEndpoints) {
+            if (!isAvailable(endpoint)) {
+                EventLog.debug("🔌 Skipping {} (circuit open)", endpoint);
+                continue;
+            }
+            boolean[] lines = linesToRequest(endpoint, order);
+            if (lines == null) {
+                EventLog.debug("⏭️ Skipping {} (known to be out of {})", endpoint, order.getItems());
+                continue;
+            }
+            requests.eligible.put(endpoint, lines);
+            candidates.add(endpoint);
+        }
 
-        // Collect responses with timeout
-        for (int i = 0; i < futures.size(); i++) {
+        // Auswahlstrategie: erste Welle sofort, Reserve-Seller nur bei Fehlmenge; wessen
+        // Menge laut Bestandshinweis schon von früheren Sellern der Welle kommt, wartet als Reserve
+        SellerSelector.Selection selection = sellerSelector.select(candidates, order.getItems());
+        Deque<String> backup = new ArrayDeque<>();
+        int outstanding = 0;
+        for (String endpoint : selection.primary) {
+            if (requests.start(endpoint)) {
+                outstanding++;
+            } else {
+                backup.add(endpoint);
+            }
+        }
+        backup.addAll(selection.backup);
+
+        // Quorum: entscheiden sobald jede Position gedeckt ist oder Erfolg unmöglich ist
+        // (jeder ausstehende Seller könnte noch die angefragte Menge liefern)
+        while (!order.isCovered() && (outstanding > 0 || !backup.isEmpty())) {
+            if (outstanding == 0) {
+                // Nichts mehr unterwegs: ein Reserve-Seller ohne etwas zu fragen fällt weg
+                if (requests.start(backup.poll())) {
+                    outstanding++;
+                }
+                continue;
+            }
+
+            long remaining = deadline - System.currentTimeMillis();
+            SellerReply reply = null;
             try {
-                ReserveResult result = futures.get(i).get(timeoutMs, TimeUnit.MILLISECONDS);
-                String endpoint = sellerEndpoints.get(i);
-                
-                if (result.success) {
-                    order.setStatus(endpoint, Status.CONFIRMED);
-                    System.out.println("✅ Seller " + endpoint + " CONFIRMED reservation");
-                } else {
-                    order.setStatus(endpoint, Status.REJECTED);
-                    System.out.println("❌ Seller " + endpoint + " REJECTED reservation: " + result.reason);
+                reply = remaining > 0 ? requests.replies.poll(remaining, TimeUnit.MILLISECONDS) : null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (reply == null) {
+                EventLog.warn("⏰ Reserve deadline reached for {} with {} seller(s) outstanding", order.getId(), outstanding);
+                break;
+            }
+            outstanding--;
+            requests.answered(reply.endpoint);
+
+            if (isAnyConfirmed(reply.results)) {
+                order.setStatus(reply.endpoint, Status.CONFIRMED);
+                for (int line = 0; line < reply.results.length; line++) {
+                    int granted = granted(reply.results, line);
+                    if (granted > 0) {
+                        order.setGranted(reply.endpoint, line, granted);
+                        if (sagaLog != null) {
+                            sagaLog.logReserved(order.getId(), reply.endpoint, line, granted);
+                        }
+                    }
                 }
-            } catch (Exception e) {
-                String endpoint = sellerEndpoints.get(i);
-                System.out.println("⏰ Timeout/Error for seller " + endpoint + ": " + e.getMessage());
-                order.setStatus(endpoint, Status.REJECTED);
+                EventLog.debug("✅ Seller {} CONFIRMED reservation: {}", reply.endpoint, describe(reply.results));
+            } else {
+                order.setStatus(reply.endpoint, Status.REJECTED);
+                EventLog.debug("❌ Seller {} REJECTED reservation: {}", reply.endpoint, describe(reply.results));
+            }
+
+            // Fehlmenge: nächsten Reserve-Seller nachziehen statt auf das Ende der Welle zu warten
+            // (nicht, solange ausstehende Seller sie laut Bestandshinweis noch decken)
+            if (!order.isCovered() && !backup.isEmpty() && requests.start(backup.peek())) {
+                EventLog.debug("📣 Escalating to backup seller {}", backup.poll());
+                outstanding++;
+            }
+        }
+
+        // Noch ausstehende Antworten: späte Bestätigungen im Hintergrund freigeben
+        List<CompletableFuture<Boolean>> lateReleases = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<ReserveResult[]>> entry : requests.futures.entrySet()) {
+            if (order.getStatus(entry.getKey()) == Status.PENDING) {
+                String endpoint = entry.getKey();
+                lateReleases.add(entry.getValue().thenCompose(results -> isAnyConfirmed(results)
+                        ? releaseLateReservation(endpoint, order, results)
+                        : CompletableFuture.completedFuture(true)));
             }
         }
 
@@ -80,183 +352,812 @@ public class Marketplace {
         long confirmedCount = order.getSellerStatus().values().stream()
                 .mapToLong(status -> status == Status.CONFIRMED ? 1 : 0)
                 .sum();
+        int grantedCount = 0;
+        int neededCount = 0;
+        for (int line = 0; line < order.getLineCount(); line++) {
+            grantedCount += Math.min(order.getTotalGranted(line), order.getItems().get(line).quantity);
+            neededCount += order.getItems().get(line).quantity;
+        }
 
-        // KRITISCHE ÄNDERUNG: Nur COMMIT wenn ALLE benötigten Items verfügbar sind
-        if (confirmedCount >= quantity) {
-            System.out.println("🎉 SAGA SUCCESS: " + confirmedCount + " seller(s) confirmed, " + 
-                             quantity + " needed. Customer gets ALL " + quantity + " items!");
-            System.out.println("📝 Proceeding with ATOMIC COMMIT...");
-            commitCompleteOrder(order, quantity);
+        // KRITISCHE ÄNDERUNG: Nur COMMIT wenn ALLE Positionen vollständig verfügbar sind
+        boolean success = order.isCovered();
+        PhaseTwo phaseTwo;
+        if (success) {
+            EventLog.info("🎉 SAGA SUCCESS {}: {} item(s) reserved by {} seller(s), {} needed -> ATOMIC COMMIT",
+                          order.getId(), grantedCount, confirmedCount, neededCount);
+            phaseTwo = commitCompleteOrder(order);
+            success = !isCommitRejected(phaseTwo);
         } else {
-            System.out.println("❌ SAGA FAILURE: Only " + confirmedCount + " seller(s) confirmed, but " + 
-                             quantity + " needed. Customer gets NOTHING!");
-            System.out.println("🔄 Proceeding with ATOMIC ROLLBACK...");
-            rollbackCompleteOrder(order);
+            EventLog.info("❌ SAGA FAILURE {}: only {} item(s) reserved by {} seller(s), {} needed -> ATOMIC ROLLBACK",
+                          order.getId(), grantedCount, confirmedCount, neededCount);
+            phaseTwo = rollbackCompleteOrder(order);
         }
+        logSagaEnd(order, phaseTwo, lateReleases);
         
+        sagasCompleted.incrementAndGet();
+        if (success) {
+            sagasCommitted.incrementAndGet();
+        }
+        sagaRate.mark();
+        sagaLatency.recordSince(sagaStartNanos);
         long totalTime = System.currentTimeMillis() - sagaStartTime;
-        System.out.println("=== SAGA transaction completed for order: " + order.getId() + 
-                         " (total time: " + totalTime + "ms) ===\n");
+        EventLog.info("=== SAGA {} completed in {}ms ===", order.getId(), totalTime);
+        return success;
     }
 
     /**
-     * Reservierung bei einem einzelnen Seller
+     * Positionen, nach denen ein Seller gefragt wird; null wenn er bekanntermaßen keine davon hat
      */
-    private ReserveResult reserve(String endpoint, Order order) {
-        try (ZMQ.Socket socket = MessageUtils.createSocket("REQ", false, endpoint)) {
-            socket.setReceiveTimeOut(timeoutMs);
-            socket.setSendTimeOut(1000);
-            
-            String msg = String.format("RESERVE:%s:%s:%d", order.getId(), order.getProduct(), 1); // Jeder Seller reserviert 1 Stück
-            
-            long startTime = System.currentTimeMillis();
-            socket.send(msg);
-            
-            String reply = socket.recvStr();
+    private boolean[] linesToRequest(String endpoint, Order order) {
+        boolean[] lines = new boolean[order.getLineCount()];
+        boolean any = false;
+        for (int line = 0; line < lines.length; line++) {
+            String product = order.getItems().get(line).product;
+            lines[line] = availabilityCache == null || !availabilityCache.shouldSkip(endpoint, product);
+            any |= lines[line];
+        }
+        return any ? lines : null;
+    }
+
+    /**
+     * Reservierung bei einem einzelnen Seller (asynchron über den SellerChannel); alle
+     * angefragten Positionen gehen in einer Nachricht raus
+     *
+     * @param asks angefragte Menge pro Position, 0 = nicht anfragen
+     * @return Ergebnis pro Position, null für nicht angefragte Positionen
+     */
+    private CompletableFuture<ReserveResult[]> reserve(String endpoint, Order order, int[] asks) {
+        // Teilreservierungen erlaubt -> Aufteilung auf möglichst wenige Seller
+        List<WireMessage> messages = new ArrayList<>(asks.length);
+        for (int line = 0; line < asks.length; line++) {
+            if (asks[line] > 0) {
+                Order.LineItem item = order.getItems().get(line);
+                messages.add(WireMessage.reserve(order.getLineId(line), item.product, asks[line], true));
+            }
+        }
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        return sendToSeller(endpoint, messages).handle((replies, error) -> {
+            reserveLatency.record(endpoint, startNanos);
             long responseTime = System.currentTimeMillis() - startTime;
-            
-            if (reply != null) {
-                System.out.println("RESERVE response from " + endpoint + ": " + reply + 
-                                 " (took " + responseTime + "ms)");
-                
-                // ROBUST PARSING - handle corrupted messages
-                try {
-                    String cleanReply = reply.replaceAll("[^\\p{Print}]", "").trim();
-                    
-                    if (cleanReply.startsWith("CONFIRMED")) {
-                        return new ReserveResult(true, "Confirmed");
-                    } else if (cleanReply.startsWith("REJECTED")) {
-                        return new ReserveResult(false, "Rejected by seller");
-                    } else if (cleanReply.isEmpty() || cleanReply.length() < 3) {
-                        System.out.println("⚠️ CORRUPTED MESSAGE from " + endpoint + 
-                                         ": Raw bytes: " + java.util.Arrays.toString(reply.getBytes()));
-                        return new ReserveResult(false, "Corrupted message received");
-                    } else {
-                        return new ReserveResult(false, "Unexpected response: " + cleanReply);
+            ReserveResult[] results = new ReserveResult[asks.length];
+            if (error != null) {
+                sellerSelector.recordResponse(endpoint, responseTime, false);
+                ReserveResult timeout = new ReserveResult(false, "No response (timeout)");
+                for (int line = 0; line < asks.length; line++) {
+                    if (asks[line] > 0) {
+                        results[line] = timeout;
                     }
-                } catch (Exception parseError) {
-                    System.out.println("❌ PARSE ERROR for response from " + endpoint + 
-                                     ": " + parseError.getMessage());
-                    return new ReserveResult(false, "Parse error: " + parseError.getMessage());
                 }
-            } else {
-                return new ReserveResult(false, "No response (timeout)");
+                return results;
+            }
+            EventLog.debug("RESERVE response from {}: {} (took {}ms)", endpoint, replies, responseTime);
+            int next = 0;
+            for (int line = 0; line < asks.length; line++) {
+                if (asks[line] > 0) {
+                    WireMessage reply = replies.get(next++);
+                    recordStockHint(endpoint, order.getItems().get(line).product, reply);
+                    results[line] = parseReserveReply(endpoint, reply, asks[line]);
+                }
+            }
+            sellerSelector.recordResponse(endpoint, responseTime, isAnyConfirmed(results));
+            return results;
+        });
+    }
+
+    private static boolean isAnyConfirmed(ReserveResult[] results) {
+        for (ReserveResult result : results) {
+            if (result != null && result.success) {
+                return true;
             }
-        } catch (Exception e) {
-            return new ReserveResult(false, "Communication error: " + e.getMessage());
         }
+        return false;
+    }
+
+    private static int granted(ReserveResult[] results, int line) {
+        return results[line] != null && results[line].success ? results[line].granted : 0;
+    }
+
+    private static String describe(ReserveResult[] results) {
+        if (results.length == 1) {
+            return results[0].success ? String.valueOf(results[0].granted) : results[0].reason;
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int line = 0; line < results.length; line++) {
+            sb.append(line == 0 ? "" : ", ").append('#').append(line + 1).append('=');
+            ReserveResult result = results[line];
+            sb.append(result == null ? "not asked" : result.success ? String.valueOf(result.granted) : result.reason);
+        }
+        return sb.toString();
     }
 
     /**
-     * ATOMIC COMMIT: Committet nur die benötigte Anzahl von Sellern
-     * Überschüssige Reservierungen werden zurückgegeben
+     * CONFIRMED[granted] | PARTIAL(granted, requested) | REJECTED | BUSY | ERROR
      */
-    private void commitCompleteOrder(Order order, int neededQuantity) {
-        System.out.println("📝 Starting ATOMIC COMMIT phase for " + order.getId());
-        System.out.println("    Committing exactly " + neededQuantity + " items");
-        
-        int committed = 0;
-        
-        for (String endpoint : sellerEndpoints) {
-            Status status = order.getStatus(endpoint);
-            
-            if (status == Status.CONFIRMED && committed < neededQuantity) {
-                // Committen - dieser Seller wird verwendet
-                commit(endpoint, order);
-                committed++;
-                System.out.println("    ✅ COMMITTED item " + committed + "/" + neededQuantity + 
-                                 " from " + endpoint);
-            } else if (status == Status.CONFIRMED && committed >= neededQuantity) {
-                // Überschüssige Reservierung freigeben
-                rollback(endpoint, order);
-                System.out.println("    🔄 RELEASED surplus reservation from " + endpoint);
+    private ReserveResult parseReserveReply(String endpoint, WireMessage reply, int requested) {
+        switch (reply.op) {
+            case CONFIRMED:
+                // Ältere Seller antworten ohne Menge und reservieren immer die volle Anfrage
+                return new ReserveResult(true, "Confirmed", reply.granted >= 0 ? reply.granted : requested);
+            case PARTIAL:
+                return new ReserveResult(true, "Partially confirmed", reply.granted);
+            case REJECTED:
+                return new ReserveResult(false, "Rejected by seller");
+            case BUSY:
+                // Seller überlastet: sofort zum nächsten Seller statt auf den Timeout zu warten
+                busyRejections.incrementAndGet();
+                return new ReserveResult(false, "Seller busy");
+            case ERROR:
+                EventLog.warn("⚠️ ERROR reply from {}: {}", endpoint, reply.text);
+                return new ReserveResult(false, "Seller error: " + reply.text);
+            default:
+                return new ReserveResult(false, "Unexpected response: " + reply);
+        }
+    }
+
+    /**
+     * Mehrere Operationen (z.B. alle Positionen eines Warenkorbs) als eine Nachricht
+     */
+    private CompletableFuture<List<WireMessage>> sendToSeller(String endpoint, List<WireMessage> messages) {
+        messagesSent.incrementAndGet();
+        CompletableFuture<List<WireMessage>> future = trackCircuit(endpoint, send(endpoint, messages));
+        future.whenComplete((replies, error) -> {
+            // Nur ausgebliebene Antworten; Verbindungs- oder Codec-Fehler sind keine Timeouts
+            if (isTimeout(error)) {
+                sellerTimeouts.computeIfAbsent(endpoint, e -> new AtomicLong()).incrementAndGet();
+            }
+        });
+        return future;
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof TimeoutException;
+    }
+
+    private <T> CompletableFuture<T> trackCircuit(String endpoint, CompletableFuture<T> future) {
+        CircuitBreaker breaker = circuitBreakers.get(endpoint);
+        if (breaker != null) {
+            // Jede Antwort (auch REJECTED) zeigt, dass der Seller lebt; nur Timeouts/Fehler zählen
+            future.whenComplete((reply, error) -> {
+                if (error != null) {
+                    breaker.recordFailure();
+                } else {
+                    breaker.recordSuccess();
+                }
+            });
+        }
+        return future;
+    }
+
+    /**
+     * Binär an Seller, die es angeboten haben, sonst als Textzeile; die Antwort wird in
+     * dem Format gelesen, in dem sie ankommt
+     */
+    private CompletableFuture<WireMessage> send(String endpoint, WireMessage msg) {
+        byte[] payload = useBinary(endpoint)
+                ? WireCodec.encode(msg)
+                : msg.toString().getBytes(StandardCharsets.UTF_8);
+        return sendBytes(endpoint, payload).thenApply(WireCodec::decodeAny);
+    }
+
+    /**
+     * Eine Operation wie gehabt, mehrere als BATCH-Frame; der Seller antwortet mit
+     * einem Batch gleicher Länge und Reihenfolge
+     */
+    private CompletableFuture<List<WireMessage>> send(String endpoint, List<WireMessage> messages) {
+        if (messages.size() == 1) {
+            return send(endpoint, messages.get(0)).thenApply(List::of);
+        }
+        byte[] payload;
+        if (useBinary(endpoint)) {
+            List<byte[]> parts = new ArrayList<>(messages.size());
+            for (WireMessage message : messages) {
+                parts.add(WireCodec.encode(message));
+            }
+            payload = WireCodec.encodeBatch(parts);
+        } else {
+            List<String> parts = new ArrayList<>(messages.size());
+            for (WireMessage message : messages) {
+                parts.add(message.toString());
+            }
+            payload = BatchMessage.encode(parts).getBytes(StandardCharsets.UTF_8);
+        }
+        return sendBytes(endpoint, payload)
+                .thenApply(reply -> decodeBatchReply(reply, messages.size()));
+    }
+
+    /**
+     * Seller mit offenem oder halboffenem Breaker bekommen nur Phase-2-Schritte und Proben;
+     * davon stehen höchstens max_queued_while_open gleichzeitig aus, alles darüber scheitert
+     * sofort, statt sich vor einem toten Seller zu stauen
+     */
+    private CompletableFuture<byte[]> sendBytes(String endpoint, byte[] payload) {
+        if (isAvailable(endpoint)) {
+            return channel.sendBytes(endpoint, payload, timeoutMs);
+        }
+        AtomicInteger queued = queuedWhileOpen.computeIfAbsent(endpoint, e -> new AtomicInteger());
+        if (queued.incrementAndGet() > maxQueuedWhileOpen) {
+            queued.decrementAndGet();
+            return CompletableFuture.failedFuture(new IllegalStateException(
+                    "Circuit of " + endpoint + " is open, " + maxQueuedWhileOpen + " messages already queued"));
+        }
+        return channel.sendBytes(endpoint, payload, timeoutMs)
+                .whenComplete((reply, error) -> queued.decrementAndGet());
+    }
+
+    /**
+     * @throws IllegalArgumentException wenn die Anzahl der Antworten nicht passt
+     */
+    private static List<WireMessage> decodeBatchReply(byte[] reply, int expected) {
+        List<WireMessage> replies = new ArrayList<>(expected);
+        if (WireCodec.isBatch(reply)) {
+            for (byte[] part : WireCodec.decodeBatch(reply)) {
+                replies.add(WireCodec.decodeAny(part));
+            }
+        } else {
+            String text = new String(reply, StandardCharsets.UTF_8);
+            if (!BatchMessage.isBatch(text)) {
+                // Antwort auf den ganzen Batch (z.B. beschädigter Frame) gilt für jede Operation
+                return Collections.nCopies(expected, WireCodec.decodeAny(reply));
+            }
+            for (String line : BatchMessage.decode(text)) {
+                replies.add(WireCodec.parseText(line));
+            }
+        }
+        if (replies.size() != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " replies, got " + replies.size());
+        }
+        return replies;
+    }
+
+    private boolean useBinary(String endpoint) {
+        if (!binaryWire) {
+            return false;
+        }
+        Boolean binary = binaryPeers.get(endpoint);
+        if (binary == null) {
+            negotiateWireFormat(endpoint);
+            return false;
+        }
+        return binary;
+    }
+
+    /**
+     * HEALTH_CHECK als Text: neue Seller hängen ihre Wire-Version an ("HEALTHY:wire=1"),
+     * alte antworten nur "HEALTHY" und bleiben beim Textformat. Ohne Antwort wird beim
+     * nächsten Senden erneut gefragt.
+     */
+    private void negotiateWireFormat(String endpoint) {
+        if (!negotiating.add(endpoint)) {
+            return;
+        }
+        channel.send(endpoint, "HEALTH_CHECK", timeoutMs).whenComplete((reply, error) -> {
+            if (error == null) {
+                boolean binary = wireVersion(reply) >= WireCodec.VERSION;
+                binaryPeers.put(endpoint, binary);
+                EventLog.info("🔤 Wire format for {}: {}", endpoint, binary ? "binary v" + WireCodec.VERSION : "text");
+            }
+            negotiating.remove(endpoint);
+        });
+    }
+
+    private static int wireVersion(String healthReply) {
+        int index = healthReply.indexOf("wire=");
+        if (index < 0) {
+            return 0;
+        }
+        int end = index + 5;
+        while (end < healthReply.length() && Character.isDigit(healthReply.charAt(end))) {
+            end++;
+        }
+        return end > index + 5 ? Integer.parseInt(healthReply.substring(index + 5, end)) : 0;
+    }
+
+    private boolean isAvailable(String endpoint) {
+        CircuitBreaker breaker = circuitBreakers.get(endpoint);
+        return breaker == null || breaker.allowRequest();
+    }
+
+    /**
+     * Schickt je offenem Breaker nach Ablauf von open_ms genau eine HEALTH_CHECK-Probe
+     */
+    private void probeOpenCircuits() {
+        for (CircuitBreaker breaker : circuitBreakers.values()) {
+            if (!breaker.tryStartProbe()) {
+                continue;
+            }
+            send(breaker.getEndpoint(), WireMessage.healthCheck()).whenComplete((reply, error) ->
+                    breaker.recordProbeResult(error == null && reply.op == WireMessage.Op.HEALTHY));
+        }
+    }
+
+    /**
+     * Übernimmt den Bestandshinweis (avail) aus einer Seller-Antwort in den Cache
+     */
+    private void recordStockHint(String endpoint, String product, WireMessage reply) {
+        if (availabilityCache != null && reply.available >= 0) {
+            availabilityCache.update(endpoint, product, reply.available);
+        }
+    }
+
+    /**
+     * Gibt eine nach der Entscheidung eingetroffene Bestätigung frei (nicht-blockierend,
+     * läuft ggf. im I/O-Thread des Channels)
+     */
+    private CompletableFuture<Boolean> releaseLateReservation(String endpoint, Order order, ReserveResult[] results) {
+        List<SagaLog.Step> steps = new ArrayList<>();
+        for (int line = 0; line < results.length; line++) {
+            if (granted(results, line) > 0) {
+                steps.add(new SagaLog.Step(endpoint, line, false, granted(results, line)));
+            }
+        }
+        long startNanos = System.nanoTime();
+        List<WireMessage> messages = toMessages(order, steps);
+        return sendToSeller(endpoint, messages).handle((replies, error) -> {
+            rollbackLatency.record(endpoint, startNanos);
+            if (error == null) {
+                recordStockHints(endpoint, order, steps, replies);
+                EventLog.debug("🔄 RELEASED late reservation from {}: {}", endpoint, replies);
+                return true;
+            }
+            EventLog.warn("⚠️ No response releasing late reservation of {} from {}", order.getId(), endpoint);
+            return false;
+        }).thenCompose(released -> released || sagaLog == null
+                ? CompletableFuture.completedFuture(released)
+                : recoveryStep(order.getId(), endpoint, messages));
+    }
+
+    /**
+     * ATOMIC COMMIT: Committet je Position die benötigte Menge bei möglichst wenigen Sellern
+     * (größte Reservierungen zuerst). Überschüssige Reservierungen werden zurückgegeben,
+     * ein nicht benötigter Rest beim letzten Seller gibt dieser beim COMMIT selbst frei.
+     * COMMIT und CANCEL gehen parallel raus und teilen sich eine Phase-2-Deadline.
+     */
+    private PhaseTwo commitCompleteOrder(Order order) {
+        EventLog.debug("📝 Starting ATOMIC COMMIT phase for {}: committing exactly {}", order.getId(), order.getItems());
+        long phaseStart = System.currentTimeMillis();
+
+        List<SagaLog.Step> plan = new ArrayList<>();
+        for (int line = 0; line < order.getLineCount(); line++) {
+            final int current = line;
+            int neededQuantity = order.getItems().get(line).quantity;
+            List<String> holders = new ArrayList<>();
+            for (String endpoint : sellerEndpoints) {
+                if (order.getStatus(endpoint) == Status.CONFIRMED && order.getGranted(endpoint, line) > 0) {
+                    holders.add(endpoint);
+                }
+            }
+            holders.sort(Comparator.comparingInt((String endpoint) -> order.getGranted(endpoint, current)).reversed());
+
+            int committed = 0;
+            for (String endpoint : holders) {
+                int granted = order.getGranted(endpoint, line);
+
+                if (committed < neededQuantity) {
+                    // Committen - dieser Seller wird verwendet
+                    int take = Math.min(granted, neededQuantity - committed);
+                    plan.add(new SagaLog.Step(endpoint, line, true, take));
+                    committed += take;
+                    EventLog.debug("✅ COMMITTING {} item(s), {}/{} from {}", take, committed, neededQuantity, endpoint);
+                } else {
+                    // Überschüssige Reservierung freigeben
+                    plan.add(new SagaLog.Step(endpoint, line, false, granted));
+                    EventLog.debug("🔄 RELEASING surplus reservation of {} from {}", granted, endpoint);
+                }
             }
         }
         
-        System.out.println("💚 ATOMIC COMMIT SUCCESSFUL: Customer receives " + committed + 
-                         " items as ordered!");
+        logDecision(order, true, plan);
+        PhaseTwo phaseTwo = executePlan(order, plan);
+        awaitPhaseTwo(order, phaseTwo, phaseStart);
+        if (isCommitRejected(phaseTwo)) {
+            EventLog.warn("💥 COMMIT REJECTED {}: a seller no longer held the reservation (phase 2: {}ms, {})",
+                          order.getId(), order.getPhaseTwoLatencyMs(), order.getPhaseTwoOutcomes().toString());
+        } else if (EventLog.isEnabled(EventLog.Level.INFO)) {
+            EventLog.info("💚 ATOMIC COMMIT SUCCESSFUL {}: customer receives {} (phase 2: {}ms, {})",
+                          order.getId(), order.getItems(), order.getPhaseTwoLatencyMs(),
+                          order.getPhaseTwoOutcomes().toString());
+        }
+        return phaseTwo;
+    }
+
+    /**
+     * true wenn ein Seller ein COMMIT abgelehnt hat (Lease abgelaufen oder unbekannt);
+     * ausstehende Antworten (TIMEOUT) zählen nicht, die wiederholt recoveryStep
+     */
+    private static boolean isCommitRejected(PhaseTwo phaseTwo) {
+        for (Map.Entry<String, CompletableFuture<Outcome>> entry : phaseTwo.outcomes.entrySet()) {
+            if (entry.getValue().getNow(Outcome.TIMEOUT) == Outcome.FAILED
+                    && phaseTwo.steps.get(entry.getKey()).stream().anyMatch(step -> step.commit)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
-     * ATOMIC ROLLBACK: Alle Reservierungen werden rückgängig gemacht
+     * ATOMIC ROLLBACK: Alle Reservierungen werden parallel rückgängig gemacht
      */
-    private void rollbackCompleteOrder(Order order) {
-        System.out.println("↩️ Starting ATOMIC ROLLBACK phase for " + order.getId());
-        System.out.println("    Rolling back ALL reservations");
+    private PhaseTwo rollbackCompleteOrder(Order order) {
+        EventLog.debug("↩️ Starting ATOMIC ROLLBACK phase for {}: rolling back ALL reservations", order.getId());
+        long phaseStart = System.currentTimeMillis();
         
-        int rolledBack = 0;
+        List<SagaLog.Step> plan = new ArrayList<>();
         
         for (String endpoint : sellerEndpoints) {
-            Status status = order.getStatus(endpoint);
-            if (status == Status.CONFIRMED) {
-                rollback(endpoint, order);
-                rolledBack++;
-                System.out.println("    🔄 ROLLED BACK reservation " + rolledBack + 
-                                 " from " + endpoint);
+            if (order.getStatus(endpoint) != Status.CONFIRMED) {
+                continue;
+            }
+            for (int line = 0; line < order.getLineCount(); line++) {
+                if (order.getGranted(endpoint, line) > 0) {
+                    plan.add(new SagaLog.Step(endpoint, line, false, order.getGranted(endpoint, line)));
+                    EventLog.debug("🔄 ROLLING BACK reservation {} from {}", plan.size(), endpoint);
+                }
             }
         }
         
-        System.out.println("💔 ATOMIC ROLLBACK COMPLETE: Customer receives NOTHING (as per SAGA rules)");
+        logDecision(order, false, plan);
+        PhaseTwo phaseTwo = executePlan(order, plan);
+        awaitPhaseTwo(order, phaseTwo, phaseStart);
+        EventLog.info("💔 ATOMIC ROLLBACK COMPLETE {}: customer receives NOTHING (phase 2: {}ms)",
+                      order.getId(), order.getPhaseTwoLatencyMs());
+        return phaseTwo;
     }
 
     /**
-     * Einzelnen Seller committen
+     * Schickt die COMMIT/CANCEL-Schritte parallel los, alle Schritte eines Sellers in einer Nachricht
      */
-    private void commit(String endpoint, Order order) {
-        try (ZMQ.Socket socket = MessageUtils.createSocket("REQ", false, endpoint)) {
-            socket.setReceiveTimeOut(timeoutMs);
-            socket.setSendTimeOut(1000);
-            
-            String msg = String.format("COMMIT:%s:%s:%d", order.getId(), order.getProduct(), 1);
-            
-            long startTime = System.currentTimeMillis();
-            socket.send(msg);
-            
-            String reply = socket.recvStr();
-            long responseTime = System.currentTimeMillis() - startTime;
-            
-            if (reply != null) {
-                System.out.println("COMMIT response from " + endpoint + ": " + reply + 
-                                 " (took " + responseTime + "ms)");
-            } else {
-                System.out.println("⚠️ No COMMIT response from " + endpoint + " (timeout)");
+    private PhaseTwo executePlan(Order order, List<SagaLog.Step> plan) {
+        PhaseTwo phaseTwo = new PhaseTwo();
+        for (SagaLog.Step step : plan) {
+            phaseTwo.steps.computeIfAbsent(step.endpoint, e -> new ArrayList<>()).add(step);
+        }
+        phaseTwo.steps.forEach((endpoint, steps) ->
+                phaseTwo.outcomes.put(endpoint, completeAtSeller(endpoint, order, steps)));
+        return phaseTwo;
+    }
+
+    /**
+     * WAL-Regel: die Entscheidung muss dauerhaft sein, bevor COMMIT/CANCEL rausgehen
+     */
+    private void logDecision(Order order, boolean commit, List<SagaLog.Step> plan) {
+        if (sagaLog != null && !awaitDurable(sagaLog.logDecision(order.getId(), commit, plan))) {
+            EventLog.warn("⚠️ Decision for {} is not durable, proceeding without crash safety", order.getId());
+        }
+    }
+
+    /**
+     * END, sobald alle Phase-2-Schritte und späten Freigaben erledigt oder aufgegeben sind.
+     * Unbeantwortete oder fehlgeschlagene Schritte wiederholt recoveryStep im Hintergrund,
+     * der SAGA-Thread wartet nicht darauf. Nur ein Absturz davor lässt die Saga im Log,
+     * sonst würde sie das älteste Segment für immer festhalten.
+     */
+    private void logSagaEnd(Order order, PhaseTwo phaseTwo, List<CompletableFuture<Boolean>> lateReleases) {
+        if (sagaLog == null) {
+            return;
+        }
+        List<CompletableFuture<Boolean>> pending = new ArrayList<>(lateReleases);
+        // Die Phase-2-Futures laufen über die Deadline hinaus weiter, bis der Channel antwortet oder aufgibt
+        phaseTwo.outcomes.forEach((endpoint, outcome) -> pending.add(outcome.thenCompose(result ->
+                result == Outcome.COMMITTED || result == Outcome.RELEASED
+                        ? CompletableFuture.completedFuture(true)
+                        : recoveryStep(order.getId(), endpoint, toMessages(order, phaseTwo.steps.get(endpoint))))));
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0])).thenRun(() -> {
+            if (!pending.stream().allMatch(CompletableFuture::join)) {
+                EventLog.warn("⚠️ Gave up on unfinished steps of {}; seller leases release what is still held",
+                              order.getId());
             }
+            sagaLog.logEnd(order.getId());
+        });
+    }
+
+    private static boolean awaitDurable(CompletableFuture<Void> durable) {
+        try {
+            durable.join();
+            return true;
         } catch (Exception e) {
-            System.out.println("❌ Error during COMMIT to " + endpoint + ": " + e.getMessage());
+            return false;
         }
     }
 
     /**
-     * Einzelnen Seller rollback
+     * Schließt Sagas aus dem vorherigen Lauf ab: mit protokollierter Entscheidung werden
+     * die offenen Schritte wiederholt, ohne Entscheidung wird kompensiert. Zusätzlich geht an
+     * jeden übrigen Seller ein CANCEL mit Menge 0, der nur eine evtl. noch gehaltene
+     * Reservierung freigibt. Alle Sagas laufen parallel; was nach recoveryTimeoutMs
+     * noch nicht fertig ist, läuft im Hintergrund weiter und schreibt dann END.
      */
-    private void rollback(String endpoint, Order order) {
-        try (ZMQ.Socket socket = MessageUtils.createSocket("REQ", false, endpoint)) {
-            socket.setReceiveTimeOut(timeoutMs);
-            socket.setSendTimeOut(1000);
-            
-            String msg = String.format("CANCEL:%s:%s:%d", order.getId(), order.getProduct(), 1);
-            
-            long startTime = System.currentTimeMillis();
-            socket.send(msg);
-            
-            String reply = socket.recvStr();
-            long responseTime = System.currentTimeMillis() - startTime;
-            
-            if (reply != null) {
-                System.out.println("ROLLBACK response from " + endpoint + ": " + reply + 
-                                 " (took " + responseTime + "ms)");
+    private void recoverInDoubtSagas(int recoveryTimeoutMs) {
+        List<SagaLog.InDoubtSaga> inDoubt = sagaLog.getInDoubtSagas();
+        if (inDoubt.isEmpty()) {
+            return;
+        }
+        System.out.println("🩹 Recovering " + inDoubt.size() + " in-doubt saga(s) from saga log");
+        long start = System.currentTimeMillis();
+
+        List<CompletableFuture<Boolean>> recoveries = new ArrayList<>();
+        for (SagaLog.InDoubtSaga saga : inDoubt) {
+            recoveries.add(recoverSaga(saga));
+        }
+        try {
+            CompletableFuture.allOf(recoveries.toArray(new CompletableFuture<?>[0]))
+                    .get(recoveryTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.out.println("⏰ Saga recovery deadline reached");
+        }
+
+        // Nicht fertige Wiederherstellungen laufen weiter und schreiben END, sobald sie enden
+        int completed = 0;
+        int compensated = 0;
+        int givenUp = 0;
+        int running = 0;
+        for (int i = 0; i < inDoubt.size(); i++) {
+            CompletableFuture<Boolean> recovery = recoveries.get(i);
+            if (!recovery.isDone()) {
+                running++;
+            } else if (!recovery.join()) {
+                givenUp++;
+            } else if (Boolean.TRUE.equals(inDoubt.get(i).decision)) {
+                completed++;
             } else {
-                System.out.println("⚠️ No ROLLBACK response from " + endpoint + " (timeout)");
+                compensated++;
+            }
+        }
+        System.out.println("🩹 Saga recovery: " + completed + " completed, " + compensated + " compensated, " +
+                         givenUp + " given up, " + running + " still retrying in background (" +
+                         (System.currentTimeMillis() - start) + "ms)");
+    }
+
+    private CompletableFuture<Boolean> recoverSaga(SagaLog.InDoubtSaga saga) {
+        List<CompletableFuture<Boolean>> steps = new ArrayList<>();
+        Set<String> planned = new LinkedHashSet<>();
+
+        if (saga.decision != null) {
+            Map<String, List<SagaLog.Step>> pending = new LinkedHashMap<>();
+            for (SagaLog.Step step : saga.plan) {
+                planned.add(step.endpoint);
+            }
+            for (SagaLog.Step step : saga.pendingSteps()) {
+                pending.computeIfAbsent(step.endpoint, e -> new ArrayList<>()).add(step);
+            }
+            pending.forEach((endpoint, sellerSteps) ->
+                    steps.add(recoveryStep(saga.orderId, endpoint, toMessages(saga.orderId, saga.items, sellerSteps))));
+        }
+
+        Set<String> others = new LinkedHashSet<>(sellerEndpoints);
+        others.addAll(saga.reserved.keySet());
+        others.removeAll(planned);
+        for (String endpoint : others) {
+            List<SagaLog.Step> release = new ArrayList<>();
+            for (int line = 0; line < saga.items.size(); line++) {
+                release.add(new SagaLog.Step(endpoint, line, false, 0));
+            }
+            steps.add(recoveryStep(saga.orderId, endpoint, toMessages(saga.orderId, saga.items, release)));
+        }
+
+        // END auch nach dem Aufgeben: sonst würde jeder Neustart dieselbe Saga erneut versuchen
+        return CompletableFuture.allOf(steps.toArray(new CompletableFuture<?>[0])).thenApply(ignored -> {
+            boolean resolved = steps.stream().allMatch(CompletableFuture::join);
+            if (!resolved) {
+                EventLog.warn("⚠️ Gave up recovering {}; seller leases release what is still held", saga.orderId);
+            }
+            sagaLog.logEnd(saga.orderId);
+            return resolved;
+        });
+    }
+
+    /**
+     * Ein Wiederholungsschritt (alle Positionen eines Sellers), für die Wiederherstellung nach
+     * einem Neustart und für unerledigte Phase-2-Schritte; Seller-Schritte sind idempotent,
+     * daher darf wiederholt werden
+     *
+     * @return false, wenn auch der letzte Versuch nicht die erwartete Antwort bekam
+     */
+    private CompletableFuture<Boolean> recoveryStep(String orderId, String endpoint, List<WireMessage> messages) {
+        return recoveryStep(orderId, endpoint, messages, RECOVERY_ATTEMPTS);
+    }
+
+    private CompletableFuture<Boolean> recoveryStep(String orderId, String endpoint, List<WireMessage> messages,
+                                                    int attemptsLeft) {
+        return send(endpoint, messages).handle((replies, error) -> error == null && isExpected(messages, replies))
+                .thenCompose(ok -> {
+                    if (ok) {
+                        sagaLog.logStepDone(orderId, endpoint);
+                        return CompletableFuture.completedFuture(true);
+                    }
+                    return attemptsLeft > 1
+                            ? recoveryStep(orderId, endpoint, messages, attemptsLeft - 1)
+                            : CompletableFuture.completedFuture(false);
+                });
+    }
+
+    /**
+     * COMMIT erwartet COMMITTED mit gebuchter Menge; COMMITTED(0) schicken ältere Seller,
+     * wenn sie die Reservierung nicht (mehr) kennen. Antworten ohne Menge (Textformat) gelten.
+     */
+    private static boolean isExpected(List<WireMessage> requests, List<WireMessage> replies) {
+        for (int i = 0; i < requests.size(); i++) {
+            WireMessage reply = replies.get(i);
+            boolean expected = requests.get(i).op == WireMessage.Op.COMMIT
+                    ? reply.op == WireMessage.Op.COMMITTED && reply.granted != 0
+                    : reply.op == WireMessage.Op.ROLLED_BACK;
+            if (!expected) {
+                return false;
             }
+        }
+        return true;
+    }
+
+    /**
+     * Wartet bis zur Phase-2-Deadline auf alle COMMIT/CANCEL-Antworten und
+     * überträgt die Ergebnisse in die Order (nur im SAGA-Thread)
+     */
+    private void awaitPhaseTwo(Order order, PhaseTwo phaseTwo, long phaseStart) {
+        Map<String, CompletableFuture<Outcome>> outcomes = phaseTwo.outcomes;
+        // Seller mit offenem Breaker bekommen die Nachricht trotzdem (begrenzt), aber niemand wartet darauf
+        List<CompletableFuture<Outcome>> awaited = new ArrayList<>();
+        for (Map.Entry<String, CompletableFuture<Outcome>> entry : outcomes.entrySet()) {
+            if (isAvailable(entry.getKey())) {
+                awaited.add(entry.getValue());
+            }
+        }
+
+        try {
+            CompletableFuture.allOf(awaited.toArray(new CompletableFuture<?>[0]))
+                    .get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
-            System.out.println("❌ Error during ROLLBACK to " + endpoint + ": " + e.getMessage());
+            EventLog.warn("⏰ Phase 2 deadline reached for {}", order.getId());
+        }
+
+        for (Map.Entry<String, CompletableFuture<Outcome>> entry : outcomes.entrySet()) {
+            order.setOutcome(entry.getKey(), entry.getValue().getNow(Outcome.TIMEOUT));
+        }
+
+        long latency = System.currentTimeMillis() - phaseStart;
+        order.setPhaseTwoLatencyMs(latency);
+        phaseTwoLatencyTotal.addAndGet(latency);
+        phaseTwoCount.incrementAndGet();
+    }
+
+    /**
+     * COMMIT bzw. CANCEL aller Positionen eines Sellers; COMMITTED wenn dabei etwas
+     * committet wurde, RELEASED wenn nur freigegeben wurde
+     */
+    private CompletableFuture<Outcome> completeAtSeller(String endpoint, Order order, List<SagaLog.Step> steps) {
+        boolean commits = steps.stream().anyMatch(step -> step.commit);
+        String phase = commits ? "COMMIT" : "ROLLBACK";
+        long startTime = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        List<WireMessage> messages = toMessages(order, steps);
+        return sendToSeller(endpoint, messages).handle((replies, error) -> {
+            (commits ? commitLatency : rollbackLatency).record(endpoint, startNanos);
+            if (error != null) {
+                EventLog.warn("⚠️ No {} response for {} from {} (timeout)", phase, order.getId(), endpoint);
+                return Outcome.TIMEOUT;
+            }
+            long responseTime = System.currentTimeMillis() - startTime;
+            EventLog.debug("{} response from {}: {} (took {}ms)", phase, endpoint, replies, responseTime);
+            recordStockHints(endpoint, order, steps, replies);
+            if (!isExpected(messages, replies)) {
+                return Outcome.FAILED;
+            }
+            if (sagaLog != null) {
+                sagaLog.logStepDone(order.getId(), endpoint);
+            }
+            return commits ? Outcome.COMMITTED : Outcome.RELEASED;
+        });
+    }
+
+    private static List<WireMessage> toMessages(Order order, List<SagaLog.Step> steps) {
+        return toMessages(order.getId(), order.getItems(), steps);
+    }
+
+    private static List<WireMessage> toMessages(String orderId, List<Order.LineItem> items, List<SagaLog.Step> steps) {
+        List<WireMessage> messages = new ArrayList<>(steps.size());
+        for (SagaLog.Step step : steps) {
+            String lineId = Order.lineId(orderId, step.line, items.size());
+            String product = items.get(step.line).product;
+            messages.add(step.commit
+                    ? WireMessage.commit(lineId, product, step.quantity)
+                    : WireMessage.cancel(lineId, product, step.quantity));
+        }
+        return messages;
+    }
+
+    private void recordStockHints(String endpoint, Order order, List<SagaLog.Step> steps, List<WireMessage> replies) {
+        for (int i = 0; i < steps.size(); i++) {
+            recordStockHint(endpoint, order.getItems().get(steps.get(i).line).product, replies.get(i));
+        }
+    }
+
+    public double getMessagesPerOrder() {
+        long sagas = sagasCompleted.get();
+        return sagas > 0 ? (double) messagesSent.get() / sagas : 0;
+    }
+
+    public long getBusyRejections() {
+        return busyRejections.get();
+    }
+
+    public long getAveragePhaseTwoLatencyMs() {
+        long count = phaseTwoCount.get();
+        return count > 0 ? phaseTwoLatencyTotal.get() / count : 0;
+    }
+
+    /**
+     * Meldet Sagas, Seller-Timeouts, Breaker und Cache beim Metrik-Endpunkt an; gelesen
+     * wird nur beim Scrape, aus den Zählern, die der Marketplace ohnehin führt
+     */
+    private void registerMetrics(MetricsRegistry registry) {
+        registry.counter("sagas_total", "Completed sagas by outcome", "outcome", () -> Map.of(
+                "committed", sagasCommitted.get(),
+                "rolled_back", sagasCompleted.get() - sagasCommitted.get()));
+        registry.gauge("orders_per_second", "Completed sagas per second over the last 10s", sagaRate::perSecond);
+        registry.gauge("sagas_in_flight", "Sagas currently running", sagasInFlight::get);
+        registry.counter("seller_messages_total", "Messages sent to sellers (a batch counts once)", messagesSent::get);
+        registry.counter("seller_timeouts_total", "Seller round trips without a reply", "seller", () -> {
+            Map<String, Long> timeouts = new TreeMap<>();
+            for (String endpoint : sellerEndpoints) {
+                AtomicLong count = sellerTimeouts.get(endpoint);
+                timeouts.put(endpoint, count != null ? count.get() : 0);
+            }
+            return timeouts;
+        });
+        registry.counter("seller_busy_rejections_total", "Reservations a seller rejected as BUSY", busyRejections::get);
+        if (!circuitBreakers.isEmpty()) {
+            registry.gauge("seller_circuit_open", "1 while the seller's circuit breaker is not closed", "seller", () -> {
+                Map<String, Integer> open = new TreeMap<>();
+                circuitBreakers.forEach((endpoint, breaker) ->
+                        open.put(endpoint, breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1));
+                return open;
+            });
+            registry.counter("seller_circuit_opened_total", "Circuit breaker transitions to OPEN", "seller",
+                    () -> breakerCounts(CircuitBreaker::getTimesOpened));
+            registry.counter("seller_circuit_half_opened_total", "Circuit breaker transitions to HALF_OPEN", "seller",
+                    () -> breakerCounts(CircuitBreaker::getTimesHalfOpened));
+            registry.counter("seller_circuit_closed_total", "Circuit breaker transitions to CLOSED", "seller",
+                    () -> breakerCounts(CircuitBreaker::getTimesClosed));
         }
     }
 
+    private Map<String, Long> breakerCounts(ToLongFunction<CircuitBreaker> count) {
+        Map<String, Long> counts = new TreeMap<>();
+        circuitBreakers.forEach((endpoint, breaker) -> counts.put(endpoint, count.applyAsLong(breaker)));
+        return counts;
+    }
+
+    public SellerChannel getChannel() {
+        return channel;
+    }
+
+    public AvailabilityCache getAvailabilityCache() {
+        return availabilityCache;
+    }
+
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        return circuitBreakers;
+    }
+
     /**
      * Clean shutdown
      */
     public void stop() {
+        if (healthProber != null) {
+            healthProber.shutdownNow();
+        }
+        if (feedSubscriber != null) {
+            feedSubscriber.close();
+        }
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
         executor.shutdown();
         try {
             if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -266,6 +1167,141 @@ public class Marketplace {
             executor.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        channel.close();
+        // Abschlussstatistik erst nach den gepufferten Ereignissen
+        EventLog.flush();
+        if (sagaLog != null) {
+            sagaLog.close();
+            System.out.println("Saga log: " + sagaLog);
+        }
+        System.out.println("Channel stats: " + channel);
+        if (availabilityCache != null) {
+            System.out.println("Availability cache: " + availabilityCache);
+        }
+        if (feedSubscriber != null) {
+            System.out.println("Inventory feed: " + feedSubscriber);
+        }
+        System.out.println("Seller selection: " + sellerSelector + ", " + 
+                         String.format("%.2f", getMessagesPerOrder()) + " messages/order, " +
+                         busyRejections.get() + " busy rejection(s)");
+        if (!circuitBreakers.isEmpty()) {
+            System.out.println("Circuit breakers: " + circuitBreakers.values());
+        }
+        System.out.println("Phase 2 latency: avg " + getAveragePhaseTwoLatencyMs() + "ms over " + 
+                         phaseTwoCount.get() + " saga(s)");
+    }
+
+    /**
+     * Histogramm einer Phase über alle Seller plus eines pro Seller-Endpoint;
+     * Timeouts zählen mit ihrer Wartezeit, sie sind der Tail
+     */
+    private static class PhaseLatency {
+        final LatencyHistogram all;
+        final Map<String, LatencyHistogram> perSeller = new ConcurrentHashMap<>();
+
+        PhaseLatency(String phase) {
+            this.all = Latencies.histogram(phase);
+        }
+
+        void record(String endpoint, long startNanos) {
+            long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos);
+            all.record(micros);
+            LatencyHistogram seller = perSeller.get(endpoint);
+            if (seller == null) {
+                seller = perSeller.computeIfAbsent(endpoint, e -> Latencies.histogram(all.getName(), e));
+            }
+            seller.record(micros);
+        }
+    }
+
+    /**
+     * RESERVE-Anfragen einer Saga, nur im SAGA-Thread benutzt. Ein Seller wird nur nach der
+     * Menge gefragt, die noch fehlt, höchstens nach seinem Bestandshinweis. Was ausstehende
+     * Seller laut Hinweis liefern können, zählt dabei schon als gedeckt, damit eine Bestellung
+     * über q Stück nicht bei jedem Seller q Stück bis Phase 2 festhält. Seller ohne gültigen
+     * Hinweis werden wie bisher nach der ganzen Fehlmenge gefragt.
+     */
+    private class ReserveRequests {
+        final Order order;
+        final Map<String, boolean[]> eligible = new HashMap<>();
+        final BlockingQueue<SellerReply> replies = new LinkedBlockingQueue<>();
+        final Map<String, CompletableFuture<ReserveResult[]>> futures = new LinkedHashMap<>();
+        // Pro Position: per Hinweis zugesagte Menge der noch ausstehenden Seller
+        private final int[] expected;
+        private final Map<String, int[]> expectedBy = new HashMap<>();
+
+        ReserveRequests(Order order) {
+            this.order = order;
+            this.expected = new int[order.getLineCount()];
+        }
+
+        /**
+         * @return false, wenn es bei diesem Seller gerade nichts zu fragen gibt (nichts gesendet)
+         */
+        boolean start(String endpoint) {
+            boolean[] lines = eligible.get(endpoint);
+            int[] asks = new int[order.getLineCount()];
+            int[] promised = new int[asks.length];
+            boolean any = false;
+            for (int line = 0; line < asks.length; line++) {
+                Order.LineItem item = order.getItems().get(line);
+                int missing = item.quantity - order.getTotalGranted(line) - expected[line];
+                if (!lines[line] || missing <= 0) {
+                    continue;
+                }
+                int hint = availabilityCache != null ? availabilityCache.getAvailable(endpoint, item.product) : -1;
+                // Hinweis 0 heißt hier: Probe fällig (sonst hätte der Cache den Seller übersprungen)
+                if (hint > 0) {
+                    asks[line] = Math.min(hint, missing);
+                    promised[line] = asks[line];
+                    expected[line] += asks[line];
+                } else {
+                    asks[line] = missing;
+                }
+                any = true;
+            }
+            if (!any) {
+                return false;
+            }
+            expectedBy.put(endpoint, promised);
+            CompletableFuture<ReserveResult[]> future = reserve(endpoint, order, asks);
+            future.thenAccept(results -> replies.add(new SellerReply(endpoint, results)));
+            futures.put(endpoint, future);
+            return true;
+        }
+
+        /**
+         * Antwort ist da: ab jetzt zählt die tatsächlich reservierte Menge statt der Zusage
+         */
+        void answered(String endpoint) {
+            int[] promised = expectedBy.remove(endpoint);
+            if (promised != null) {
+                for (int line = 0; line < promised.length; line++) {
+                    expected[line] -= promised[line];
+                }
+            }
+        }
+    }
+
+    /**
+     * Phase-2-Schritte und ihre (noch laufenden) Ergebnisse pro Seller
+     */
+    private static class PhaseTwo {
+        final Map<String, List<SagaLog.Step>> steps = new LinkedHashMap<>();
+        final Map<String, CompletableFuture<Outcome>> outcomes = new LinkedHashMap<>();
+    }
+
+    /**
+     * Reserve-Antwort eines bestimmten Sellers (für die Quorum-Auswertung)
+     */
+    private static class SellerReply {
+        final String endpoint;
+        final ReserveResult[] results; // pro Position, null = nicht angefragt
+
+        SellerReply(String endpoint, ReserveResult[] results) {
+            this.endpoint = endpoint;
+            this.results = results;
+        }
     }
 
     /**
@@ -274,10 +1310,16 @@ public class Marketplace {
     private static class ReserveResult {
         final boolean success;
         final String reason;
+        final int granted;
 
         ReserveResult(boolean success, String reason) {
+            this(success, reason, 0);
+        }
+
+        ReserveResult(boolean success, String reason, int granted) {
             this.success = success;
             this.reason = reason;
+            this.granted = granted;
         }
     }
 }
\ No newline at end of file
@@ -13,6 +13,13 @@ public class MarketplaceConfig {
     public List<String> sellers;
     public List<String> products;
     public SimulationSettings simulation;
+    public ExecutorSettings executor = new ExecutorSettings();
+    public MessagingSettings messaging = new MessagingSettings();
+    public AvailabilitySettings availability = new AvailabilitySettings();
+    public SelectionSettings selection = new SelectionSettings();
+    public CircuitBreakerSettings circuit_breaker = new CircuitBreakerSettings();
+    public SagaLogSettings saga_log = new SagaLogSettings();
+    public MetricsSettings metrics = new MetricsSettings();
 
     public static class MarketplaceInfo {
         public int port;
@@ -23,12 +30,86 @@ public class MarketplaceConfig {
         public int arrival_rate_ms;
         public int max_orders;
         public int timeout_ms;
+
+        // Lastgenerator (mode: load) - arrival_rate_ms ist dann der mittlere Ankunftsabstand
+        public String mode = "sequential";      // sequential | load
+        public String arrival = "fixed";        // fixed | poisson
+        public int max_in_flight = 20;
+        public String popularity = "uniform";   // uniform | zipf
+        public double zipf_exponent = 1.0;
+        public int max_quantity = 3;
+        public int max_line_items = 1;          // Positionen pro Bestellung: 1..N verschiedene Produkte in einer Saga
+    }
+
+    public static class ExecutorSettings {
+        public String type = "fixed";       // fixed = Thread-Pool, virtual = ein virtueller Thread pro Aufgabe
+        public int pool_size = 10;          // nur für fixed
+    }
+
+    public static class MessagingSettings {
+        public String mode = "sync";            // sync = REQ/REP, async = DEALER/ROUTER mit Correlation-IDs
+        public int pool_max_idle = 16;          // nur sync: max. ungenutzte REQ-Sockets pro Seller
+        public boolean batch_enabled = false;   // Operationen pro Seller zu BATCH-Nachrichten bündeln
+        public int batch_max_ops = 32;          // Flush sobald so viele Operationen warten ...
+        public int batch_flush_ms = 2;          // ... oder spätestens nach diesem Zeitfenster
+        public int retry_attempts = 1;          // Versuche pro Anfrage innerhalb von timeout_ms (1 = keine Wiederholung)
+        public int retry_timeout_ms = 1000;     // Timeout eines einzelnen Versuchs
+        public int retry_backoff_ms = 50;       // Basis für exponentielles Backoff mit Jitter
+        public String wire_format = "text";     // binary = Binärformat nach Aushandlung per HEALTH_CHECK, text = nur Textzeilen
+    }
+
+    public static class AvailabilitySettings {
+        public boolean enabled = false;         // ausverkaufte Seller beim Fan-out überspringen
+        public int ttl_ms = 10000;              // Gültigkeit eines Bestandshinweises
+        public int probe_interval_ms = 2000;    // trotzdem ab und zu nachfragen (Nachlieferung?)
+        public int max_entries = 10000;
+        public boolean feed_enabled = false;    // Bestandsänderungen per PUB/SUB-Feed der Seller übernehmen
+        public int feed_port_offset = 1000;     // Feed-Port = Seller-Port + Offset
+        public int feed_timeout_ms = 3000;      // ohne Feed-Nachricht (auch Heartbeat) zurück auf ttl_ms
+    }
+
+    public static class SelectionSettings {
+        public String strategy = "broadcast";   // broadcast = alle Seller, targeted = EWMA-gewichtete Auswahl
+        public int safety_margin = 1;           // targeted: zusätzliche Seller über den erwarteten Bedarf hinaus
+        public double ewma_alpha = 0.2;         // targeted: Gewicht neuer Messungen
+    }
+
+    public static class CircuitBreakerSettings {
+        public boolean enabled = false;
+        public int consecutive_failures = 3;       // Timeouts in Folge bis OPEN
+        public double error_rate_threshold = 0.5;  // Fehlerrate im Fenster bis OPEN
+        public int window_size = 20;               // letzte N Aufrufe pro Seller
+        public int open_ms = 5000;                 // Wartezeit bis zur HEALTH_CHECK-Probe
+        public int probe_interval_ms = 1000;       // wie oft offene Breaker geprüft werden
+        public int max_queued_while_open = 1000;   // max. offene Phase-2-Schritte/Proben je nicht geschlossenem Breaker
+    }
+
+    public static class SagaLogSettings {
+        public boolean enabled = false;
+        public String directory = "saga-log";           // Unterordner pro Marketplace-Name
+        public long segment_bytes = 16 * 1024 * 1024;   // Segmentgröße vor Rotation
+        public boolean fsync = true;                    // BEGIN/DECISION erst nach force() bestätigen
+        public int recovery_timeout_ms = 5000;          // Wartezeit der Wiederherstellung beim Start
+    }
+
+    public static class MetricsSettings {
+        public boolean enabled = false;     // Prometheus-Textformat unter http://<host>:<port>/metrics
+        public int port = 9090;
     }
 
     public static class SimulationSettings {
         public boolean enable_logging;
         public String log_level;
         public boolean performance_monitoring;
+        public int log_buffer_size = 65536;   // Ereignisse im Ringpuffer des EventLog, bei vollem Puffer wird verworfen
+        public long latency_report_interval_ms = 10000; // mit performance_monitoring: Perzentile pro Intervall ins Log, 0 = nur am Ende
+
+        /**
+         * enable_logging: false lässt nur Warnungen und Fehler durch
+         */
+        public String effectiveLogLevel() {
+            return enable_logging ? log_level : "WARN";
+        }
     }
 
     public static MarketplaceConfig load(String filePath) {
@@ -68,6 +149,18 @@ public class MarketplaceConfig {
         config.simulation.enable_logging = true;
         config.simulation.log_level = "INFO";
         config.simulation.performance_monitoring = true;
+
+        config.executor = new ExecutorSettings();
+        config.messaging = new MessagingSettings();
+        config.messaging.retry_attempts = 3;
+        config.messaging.wire_format = "binary";
+        config.availability = new AvailabilitySettings();
+        config.availability.enabled = true;
+        config.selection = new SelectionSettings();
+        config.circuit_breaker = new CircuitBreakerSettings();
+        config.circuit_breaker.enabled = true;
+        config.saga_log = new SagaLogSettings();
+        config.metrics = new MetricsSettings();
         
         return config;
     }
@@ -0,0 +1,529 @@
+package marketplace;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+import model.Order;
+
+/**
+ * Append-only write-ahead log of saga state transitions.
+ *
+ * Records are small binary frames [length, crc32, type, orderId, payload]
+ * written by a single writer thread. Everything queued while the previous
+ * fsync was running goes out with one write and one force() (group commit),
+ * so callers waiting for durability share the cost of the sync.
+ *
+ * Only BEGIN (before any RESERVE is sent) and DECISION (before any COMMIT or
+ * CANCEL is sent) have to be durable; all other records ride along with the
+ * next sync. BEGIN carries every line item of the basket, and each step of
+ * a DECISION carries the index of the line it belongs to. The log is split
+ * into segments that are deleted once every saga starting in them has ended.
+ */
+public class SagaLog implements AutoCloseable {
+    private static final int MAGIC = 0x534C4F47; // "SLOG"
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 5;
+    private static final int MAX_BATCH = 4096;
+
+    static final byte BEGIN = 1;
+    static final byte RESERVED = 2;
+    static final byte DECISION = 3;
+    static final byte STEP_DONE = 4;
+    static final byte END = 5;
+
+    private static final Append SHUTDOWN = new Append((byte) 0, "", new byte[0], null);
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final boolean fsync;
+    private final BlockingQueue<Append> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Nur vom Writer-Thread benutzt
+    private FileChannel segment;
+    private long segmentSeq;
+    private long segmentSize;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+    private final Map<String, Long> liveSagas = new HashMap<>();
+
+    private final List<InDoubtSaga> inDoubt;
+
+    private final AtomicLong records = new AtomicLong(0);
+    private final AtomicLong syncs = new AtomicLong(0);
+    private final AtomicLong bytesWritten = new AtomicLong(0);
+    private final AtomicLong segmentsDeleted = new AtomicLong(0);
+
+    /**
+     * Öffnet das Log, liest vorhandene Segmente ein und beginnt ein neues Segment
+     */
+    public SagaLog(String directory, long segmentBytes, boolean fsync) throws IOException {
+        this.directory = Paths.get(directory);
+        this.segmentBytes = segmentBytes;
+        this.fsync = fsync;
+        Files.createDirectories(this.directory);
+
+        TreeMap<Long, Path> segments = listSegments();
+        Map<String, InDoubtSaga> sagas = new LinkedHashMap<>();
+        for (Map.Entry<Long, Path> entry : segments.entrySet()) {
+            replaySegment(entry.getKey(), entry.getValue(), sagas);
+        }
+        this.inDoubt = new ArrayList<>(sagas.values());
+        for (InDoubtSaga saga : inDoubt) {
+            liveSagas.put(saga.orderId, saga.firstSegment);
+        }
+
+        openSegment(segments.isEmpty() ? 1 : segments.lastKey() + 1);
+        deleteObsoleteSegments();
+
+        this.writer = new Thread(this::writeLoop, "saga-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Sagas ohne END-Eintrag aus dem vorherigen Lauf
+     */
+    public List<InDoubtSaga> getInDoubtSagas() {
+        return inDoubt;
+    }
+
+    public CompletableFuture<Void> logBegin(String orderId, List<Order.LineItem> items) {
+        RecordBuilder record = new RecordBuilder(BEGIN, orderId);
+        record.putShort(items.size());
+        for (Order.LineItem item : items) {
+            record.putString(item.product).putInt(item.quantity);
+        }
+        return append(record, true);
+    }
+
+    public void logReserved(String orderId, String endpoint, int line, int granted) {
+        RecordBuilder record = new RecordBuilder(RESERVED, orderId);
+        record.putString(endpoint).putInt(granted).putShort(line);
+        append(record, false);
+    }
+
+    public CompletableFuture<Void> logDecision(String orderId, boolean commit, List<Step> plan) {
+        RecordBuilder record = new RecordBuilder(DECISION, orderId);
+        record.putByte((byte) (commit ? 1 : 0)).putShort(plan.size());
+        for (Step step : plan) {
+            record.putString(step.endpoint).putShort(step.line).putByte((byte) (step.commit ? 1 : 0))
+                  .putInt(step.quantity);
+        }
+        return append(record, true);
+    }
+
+    public void logStepDone(String orderId, String endpoint) {
+        RecordBuilder record = new RecordBuilder(STEP_DONE, orderId);
+        record.putString(endpoint);
+        append(record, false);
+    }
+
+    public void logEnd(String orderId) {
+        append(new RecordBuilder(END, orderId), false);
+    }
+
+    private CompletableFuture<Void> append(RecordBuilder record, boolean durable) {
+        CompletableFuture<Void> future = durable ? new CompletableFuture<>() : null;
+        if (!running) {
+            if (future != null) {
+                future.completeExceptionally(new IllegalStateException("Saga log is closed"));
+            }
+            return future;
+        }
+        queue.add(new Append(record.type, record.orderId, record.toFrame(), future));
+        return future;
+    }
+
+    private void writeLoop() {
+        List<Append> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                // Kein interrupt() zum Beenden: ein unterbrochenes force() schließt den FileChannel
+                stopping = batch.remove(SHUTDOWN);
+                if (stopping) {
+                    queue.drainTo(batch);
+                }
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.out.println("❌ Saga log write failed: " + e.getMessage());
+                for (Append append : batch) {
+                    if (append.durable != null) {
+                        append.durable.completeExceptionally(e);
+                    }
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<Append> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            buffer.clear();
+            boolean needsSync = false;
+            for (Append append : batch) {
+                if (buffer.remaining() < append.frame.length) {
+                    flushBuffer();
+                    if (buffer.capacity() < append.frame.length) {
+                        buffer = ByteBuffer.allocateDirect(append.frame.length);
+                    }
+                }
+                buffer.put(append.frame);
+                needsSync |= append.durable != null;
+                trackLiveness(append);
+            }
+            flushBuffer();
+
+            // Ein force() für alle wartenden Aufrufer dieses Durchlaufs
+            if (fsync && needsSync) {
+                segment.force(false);
+                syncs.incrementAndGet();
+            }
+            records.addAndGet(batch.size());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        for (Append append : batch) {
+            if (append.durable != null) {
+                append.durable.complete(null);
+            }
+        }
+
+        if (segmentSize >= segmentBytes) {
+            rotate();
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            int written = segment.write(buffer);
+            segmentSize += written;
+            bytesWritten.addAndGet(written);
+        }
+        buffer.clear();
+    }
+
+    private void trackLiveness(Append append) {
+        if (append.type == BEGIN) {
+            liveSagas.put(append.orderId, segmentSeq);
+        } else if (append.type == END) {
+            liveSagas.remove(append.orderId);
+        }
+    }
+
+    private void rotate() {
+        try {
+            if (fsync) {
+                segment.force(false);
+            }
+            segment.close();
+            openSegment(segmentSeq + 1);
+            deleteObsoleteSegments();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void openSegment(long seq) throws IOException {
+        segmentSeq = seq;
+        segment = FileChannel.open(segmentPath(seq), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).put(VERSION);
+        header.flip();
+        segment.write(header);
+        segmentSize = HEADER_BYTES;
+    }
+
+    /**
+     * Segmente vor dem ältesten noch offenen Saga-Beginn werden nicht mehr gebraucht
+     */
+    private void deleteObsoleteSegments() throws IOException {
+        long oldestNeeded = segmentSeq;
+        for (long seq : liveSagas.values()) {
+            oldestNeeded = Math.min(oldestNeeded, seq);
+        }
+        for (Map.Entry<Long, Path> entry : listSegments().headMap(oldestNeeded).entrySet()) {
+            Files.deleteIfExists(entry.getValue());
+            segmentsDeleted.incrementAndGet();
+        }
+    }
+
+    private TreeMap<Long, Path> listSegments() throws IOException {
+        TreeMap<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "saga-*.log")) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    segments.put(Long.parseLong(name.substring(5, name.length() - 4)), path);
+                } catch (NumberFormatException ignored) {
+                    // fremde Datei
+                }
+            }
+        }
+        return segments;
+    }
+
+    private Path segmentPath(long seq) {
+        return directory.resolve(String.format("saga-%020d.log", seq));
+    }
+
+    private void replaySegment(long seq, Path path, Map<String, InDoubtSaga> sagas) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.remaining() < HEADER_BYTES || data.getInt() != MAGIC || data.get() != VERSION) {
+            System.out.println("⚠️ Saga log segment " + path + " has no valid header, skipping");
+            return;
+        }
+
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= 8) {
+            int length = data.getInt();
+            int checksum = data.getInt();
+            if (length <= 0 || length > data.remaining()) {
+                // Abgeschnittener Eintrag am Segmentende (Absturz während des Schreibens)
+                System.out.println("⚠️ Saga log segment " + path + " ends with a torn record");
+                return;
+            }
+            crc.reset();
+            crc.update(data.array(), data.position(), length);
+            if ((int) crc.getValue() != checksum) {
+                System.out.println("⚠️ Saga log segment " + path + " has a corrupt record, ignoring the rest");
+                return;
+            }
+
+            ByteBuffer body = data.slice(data.position(), length);
+            data.position(data.position() + length);
+            applyRecord(seq, body, sagas);
+        }
+    }
+
+    private static void applyRecord(long seq, ByteBuffer body, Map<String, InDoubtSaga> sagas) {
+        byte type = body.get();
+        String orderId = getString(body);
+
+        if (type == BEGIN) {
+            int count = body.getShort();
+            List<Order.LineItem> items = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                items.add(new Order.LineItem(getString(body), body.getInt()));
+            }
+            sagas.put(orderId, new InDoubtSaga(orderId, items, seq));
+            return;
+        }
+        InDoubtSaga saga = sagas.get(orderId);
+        if (saga == null) {
+            return;
+        }
+        switch (type) {
+            case RESERVED:
+                saga.reserved.merge(getString(body), body.getInt(), Integer::sum);
+                break;
+            case DECISION: {
+                saga.decision = body.get() == 1;
+                int steps = body.getShort();
+                saga.plan.clear();
+                for (int i = 0; i < steps; i++) {
+                    String endpoint = getString(body);
+                    int line = body.getShort();
+                    saga.plan.add(new Step(endpoint, line, body.get() == 1, body.getInt()));
+                }
+                break;
+            }
+            case STEP_DONE:
+                saga.done.add(getString(body));
+                break;
+            case END:
+                sagas.remove(orderId);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public long getRecords() { return records.get(); }
+    public long getSyncs() { return syncs.get(); }
+
+    public double getRecordsPerSync() {
+        long count = syncs.get();
+        return count > 0 ? (double) records.get() / count : 0;
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        queue.add(SHUTDOWN);
+        try {
+            writer.join(2000);
+            if (fsync) {
+                segment.force(false);
+            }
+            segment.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("⚠️ Saga log close failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SagaLog{records=%d, syncs=%d, records/sync=%.1f, bytes=%d, segment=%d, segmentsDeleted=%d}",
+                           records.get(), syncs.get(), getRecordsPerSync(), bytesWritten.get(),
+                           segmentSeq, segmentsDeleted.get());
+    }
+
+    /**
+     * Phase-2-Schritt: COMMIT oder CANCEL einer Menge einer Position bei einem Seller
+     */
+    public static class Step {
+        public final String endpoint;
+        public final int line;
+        public final boolean commit;
+        public final int quantity;
+
+        public Step(String endpoint, int line, boolean commit, int quantity) {
+            this.endpoint = endpoint;
+            this.line = line;
+            this.commit = commit;
+            this.quantity = quantity;
+        }
+    }
+
+    /**
+     * Rekonstruierter Zustand einer nicht abgeschlossenen Saga
+     */
+    public static class InDoubtSaga {
+        public final String orderId;
+        public final List<Order.LineItem> items;
+        public final Map<String, Integer> reserved = new LinkedHashMap<>();
+        public final List<Step> plan = new ArrayList<>();
+        public final Set<String> done = new HashSet<>();
+        public Boolean decision; // null = keine Entscheidung protokolliert
+        final long firstSegment;
+
+        InDoubtSaga(String orderId, List<Order.LineItem> items, long firstSegment) {
+            this.orderId = orderId;
+            this.items = items;
+            this.firstSegment = firstSegment;
+        }
+
+        public Collection<Step> pendingSteps() {
+            List<Step> pending = new ArrayList<>();
+            for (Step step : plan) {
+                if (!done.contains(step.endpoint)) {
+                    pending.add(step);
+                }
+            }
+            return pending;
+        }
+    }
+
+    private static class Append {
+        final byte type;
+        final String orderId;
+        final byte[] frame;
+        final CompletableFuture<Void> durable;
+
+        Append(byte type, String orderId, byte[] frame, CompletableFuture<Void> durable) {
+            this.type = type;
+            this.orderId = orderId;
+            this.frame = frame;
+            this.durable = durable;
+        }
+    }
+
+    /**
+     * Baut einen Eintrag im Aufrufer-Thread, damit der Writer nur noch kopiert
+     */
+    private static class RecordBuilder {
+        final byte type;
+        final String orderId;
+        private ByteBuffer body = ByteBuffer.allocate(128);
+
+        RecordBuilder(byte type, String orderId) {
+            this.type = type;
+            this.orderId = orderId;
+            putByte(type).putString(orderId);
+        }
+
+        RecordBuilder putByte(byte value) {
+            ensure(1).put(value);
+            return this;
+        }
+
+        RecordBuilder putShort(int value) {
+            ensure(2).putShort((short) value);
+            return this;
+        }
+
+        RecordBuilder putInt(int value) {
+            ensure(4).putInt(value);
+            return this;
+        }
+
+        RecordBuilder putString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(2 + bytes.length).putShort((short) bytes.length).put(bytes);
+            return this;
+        }
+
+        private ByteBuffer ensure(int bytes) {
+            if (body.remaining() < bytes) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(body.capacity() * 2, body.position() + bytes));
+                body.flip();
+                bigger.put(body);
+                body = bigger;
+            }
+            return body;
+        }
+
+        byte[] toFrame() {
+            CRC32 crc = new CRC32();
+            crc.update(body.array(), 0, body.position());
+            ByteBuffer frame = ByteBuffer.allocate(8 + body.position());
+            frame.putInt(body.position()).putInt((int) crc.getValue()).put(body.array(), 0, body.position());
+            return frame.array();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package marketplace;
+
+import java.util.List;
+
+import model.Order;
+
+/**
+ * Strategy deciding which sellers receive the RESERVE of an order.
+ *
+ * The primary sellers are contacted immediately; the backup sellers are only
+ * contacted if the primary wave cannot reserve the full quantity.
+ */
+public interface SellerSelector {
+
+    Selection select(List<String> candidates, String product, int quantity);
+
+    /**
+     * Warenkorb: jede Position muss gedeckt sein, daher gilt die Auswahl der
+     * anspruchsvollsten Position (die meisten Seller in der ersten Welle)
+     */
+    default Selection select(List<String> candidates, List<Order.LineItem> items) {
+        Selection widest = null;
+        for (Order.LineItem item : items) {
+            Selection selection = select(candidates, item.product, item.quantity);
+            if (widest == null || selection.primary.size() > widest.primary.size()) {
+                widest = selection;
+            }
+        }
+        return widest;
+    }
+
+    /**
+     * Rückmeldung nach jeder RESERVE-Antwort (oder jedem Timeout)
+     */
+    void recordResponse(String endpoint, long latencyMs, boolean success);
+
+    class Selection {
+        public final List<String> primary;
+        public final List<String> backup;
+
+        public Selection(List<String> primary, List<String> backup) {
+            this.primary = primary;
+            this.backup = backup;
+        }
+    }
+}
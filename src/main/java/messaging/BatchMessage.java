@@ -0,0 +1,51 @@
+package messaging;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Batch frame carrying many single-line operations in one ZeroMQ message:
+ *
+ *   BATCH:&lt;n&gt;\n&lt;op 1&gt;\n...\n&lt;op n&gt;
+ *
+ * Replies use the same layout with one reply line per operation, in order.
+ */
+public final class BatchMessage {
+    public static final String PREFIX = "BATCH:";
+
+    private BatchMessage() {
+    }
+
+    public static boolean isBatch(String message) {
+        return message != null && message.startsWith(PREFIX);
+    }
+
+    public static String encode(List<String> parts) {
+        StringBuilder sb = new StringBuilder(PREFIX).append(parts.size());
+        for (String part : parts) {
+            sb.append('\n').append(part);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Zerlegt einen Batch in seine Einzelteile
+     *
+     * @throws IllegalArgumentException wenn Header und Anzahl der Zeilen nicht zusammenpassen
+     */
+    public static List<String> decode(String message) {
+        String[] lines = message.split("\n");
+        int count;
+        try {
+            count = Integer.parseInt(lines[0].substring(PREFIX.length()).trim());
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid batch header: " + lines[0]);
+        }
+        if (count != lines.length - 1) {
+            throw new IllegalArgumentException("Batch header announces " + count + 
+                                               " parts but contains " + (lines.length - 1));
+        }
+        return new ArrayList<>(Arrays.asList(lines).subList(1, lines.length));
+    }
+}
@@ -0,0 +1,253 @@
+package messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import monitoring.EventLog;
+
+/**
+ * Coalesces outgoing operations per seller into BATCH frames.
+ *
+ * Operations for the same endpoint are collected until either maxOps are
+ * queued or flushWindowMs passed since the first one, then sent as one
+ * message over the wrapped channel. The batched reply is split again and
+ * each caller's future is completed with its own reply. Binary operations
+ * travel in a binary BATCH frame, text operations in a text one; the two
+ * are never mixed in one frame. HEALTH_CHECK and INVENTORY_SNAPSHOT always
+ * go out on their own: circuit-breaker probes and wire-format negotiation
+ * must not depend on how a seller handles batches.
+ */
+public class BatchingChannel implements SellerChannel {
+    private final SellerChannel delegate;
+    private final int maxOps;
+    private final long flushWindowMs;
+    private final ScheduledExecutorService flusher;
+    private final Map<String, EndpointQueue> queues = new ConcurrentHashMap<>();
+
+    private final AtomicLong batchesSent = new AtomicLong(0);
+    private final AtomicLong opsSent = new AtomicLong(0);
+
+    public BatchingChannel(SellerChannel delegate, int maxOps, long flushWindowMs) {
+        this.delegate = delegate;
+        this.maxOps = Math.max(1, maxOps);
+        this.flushWindowMs = Math.max(0, flushWindowMs);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "batch-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public CompletableFuture<byte[]> sendBytes(String endpoint, byte[] payload, long timeoutMs) {
+        if (WireCodec.isBatch(payload) || isTextBatch(payload) || isControl(payload)) {
+            // Bereits gebündelt (nicht verschachteln) oder Steuernachricht
+            return delegate.sendBytes(endpoint, payload, timeoutMs);
+        }
+
+        Op op = new Op(payload, timeoutMs);
+        op.future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+
+        EndpointQueue queue = queues.computeIfAbsent(endpoint, EndpointQueue::new);
+        List<Op> ready = queue.add(op);
+        if (ready != null) {
+            transmit(endpoint, ready);
+        }
+        return op.future;
+    }
+
+    private void transmit(String endpoint, List<Op> ops) {
+        opsSent.addAndGet(ops.size());
+
+        List<Op> binary = new ArrayList<>(ops.size());
+        List<Op> text = new ArrayList<>();
+        for (Op op : ops) {
+            (WireCodec.isBinary(op.payload) ? binary : text).add(op);
+        }
+        transmitGroup(endpoint, binary, true);
+        transmitGroup(endpoint, text, false);
+    }
+
+    private void transmitGroup(String endpoint, List<Op> ops, boolean binary) {
+        if (ops.isEmpty()) {
+            return;
+        }
+        if (ops.size() == 1) {
+            // Einzelne Operation ohne Batch-Overhead senden
+            Op op = ops.get(0);
+            delegate.sendBytes(endpoint, op.payload, op.timeoutMs).whenComplete((reply, error) -> {
+                if (error != null) {
+                    op.future.completeExceptionally(error);
+                } else {
+                    op.future.complete(reply);
+                }
+            });
+            return;
+        }
+
+        batchesSent.incrementAndGet();
+        long timeoutMs = 0;
+        for (Op op : ops) {
+            timeoutMs = Math.max(timeoutMs, op.timeoutMs);
+        }
+
+        delegate.sendBytes(endpoint, encodeBatch(ops, binary), timeoutMs).whenComplete((reply, error) -> {
+            if (error != null) {
+                ops.forEach(op -> op.future.completeExceptionally(error));
+                return;
+            }
+            try {
+                List<byte[]> replies = decodeBatch(reply, binary);
+                if (replies.size() != ops.size()) {
+                    throw new IllegalArgumentException("Expected " + ops.size() + " replies, got " + replies.size());
+                }
+                for (int i = 0; i < ops.size(); i++) {
+                    ops.get(i).future.complete(replies.get(i));
+                }
+            } catch (IllegalArgumentException e) {
+                EventLog.warn("⚠️ Malformed batch reply from {}: {}", endpoint, e.getMessage());
+                ops.forEach(op -> op.future.completeExceptionally(e));
+            }
+        });
+    }
+
+    private static byte[] encodeBatch(List<Op> ops, boolean binary) {
+        if (binary) {
+            List<byte[]> payloads = new ArrayList<>(ops.size());
+            for (Op op : ops) {
+                payloads.add(op.payload);
+            }
+            return WireCodec.encodeBatch(payloads);
+        }
+        List<String> messages = new ArrayList<>(ops.size());
+        for (Op op : ops) {
+            messages.add(new String(op.payload, StandardCharsets.UTF_8));
+        }
+        return BatchMessage.encode(messages).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<byte[]> decodeBatch(byte[] reply, boolean binary) {
+        if (binary) {
+            return WireCodec.decodeBatch(reply);
+        }
+        List<String> lines = BatchMessage.decode(new String(reply, StandardCharsets.UTF_8));
+        List<byte[]> replies = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            replies.add(line.getBytes(StandardCharsets.UTF_8));
+        }
+        return replies;
+    }
+
+    /**
+     * HEALTH_CHECK (Text oder binär) und INVENTORY_SNAPSHOT
+     */
+    private static boolean isControl(byte[] payload) {
+        if (WireCodec.isBinary(payload)) {
+            return payload[2] == WireMessage.Op.HEALTH_CHECK.code;
+        }
+        return startsWith(payload, "HEALTH_CHECK") || startsWith(payload, FeedMessage.SNAPSHOT_REQUEST);
+    }
+
+    private static boolean isTextBatch(byte[] payload) {
+        return startsWith(payload, BatchMessage.PREFIX);
+    }
+
+    private static boolean startsWith(byte[] payload, String text) {
+        byte[] prefix = text.getBytes(StandardCharsets.US_ASCII);
+        if (payload.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (payload[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBatchesSent() { return batchesSent.get(); }
+    public long getOpsSent() { return opsSent.get(); }
+
+    @Override
+    public void close() {
+        // Restliche Operationen noch rausschicken
+        for (Map.Entry<String, EndpointQueue> entry : queues.entrySet()) {
+            List<Op> ready = entry.getValue().drain();
+            if (ready != null) {
+                transmit(entry.getKey(), ready);
+            }
+        }
+        flusher.shutdownNow();
+        delegate.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BatchingChannel{batches=%d, ops=%d, maxOps=%d, flushWindow=%dms, delegate=%s}",
+                           batchesSent.get(), opsSent.get(), maxOps, flushWindowMs, delegate);
+    }
+
+    /**
+     * Warteschlange eines Sellers bis zum nächsten Flush (Größe oder Zeitfenster)
+     */
+    private class EndpointQueue {
+        private final String endpoint;
+        private List<Op> ops = new ArrayList<>();
+        private ScheduledFuture<?> timer;
+
+        EndpointQueue(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        synchronized List<Op> add(Op op) {
+            ops.add(op);
+            if (ops.size() >= maxOps || flushWindowMs == 0) {
+                return drain();
+            }
+            if (timer == null) {
+                timer = flusher.schedule(this::flushOnTimer, flushWindowMs, TimeUnit.MILLISECONDS);
+            }
+            return null;
+        }
+
+        synchronized List<Op> drain() {
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+            if (ops.isEmpty()) {
+                return null;
+            }
+            List<Op> ready = ops;
+            ops = new ArrayList<>();
+            return ready;
+        }
+
+        private void flushOnTimer() {
+            List<Op> ready = drain();
+            if (ready != null) {
+                transmit(endpoint, ready);
+            }
+        }
+    }
+
+    private static class Op {
+        final byte[] payload;
+        final long timeoutMs;
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+
+        Op(byte[] payload, long timeoutMs) {
+            this.payload = payload;
+            this.timeoutMs = timeoutMs;
+        }
+    }
+}
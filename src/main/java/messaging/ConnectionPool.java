@@ -0,0 +1,128 @@
+package messaging;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.zeromq.ZMQ;
+
+/**
+ * Pool of long-lived REQ sockets per seller endpoint.
+ *
+ * A socket is owned by exactly one thread between checkout() and checkin(),
+ * the concurrent deque hands it over safely between executor threads.
+ * A REQ socket that timed out is stuck in "expecting reply" state and must
+ * be given back via invalidate() so it is closed instead of reused.
+ */
+public class ConnectionPool {
+    private final Map<String, Deque<ZMQ.Socket>> idleSockets = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> idleCounts = new ConcurrentHashMap<>();
+    private final int maxIdlePerEndpoint;
+    private volatile boolean closed = false;
+
+    private final AtomicLong hits = new AtomicLong(0);
+    private final AtomicLong misses = new AtomicLong(0);
+    private final AtomicLong invalidated = new AtomicLong(0);
+
+    public ConnectionPool() {
+        this(16);
+    }
+
+    public ConnectionPool(int maxIdlePerEndpoint) {
+        this.maxIdlePerEndpoint = maxIdlePerEndpoint;
+    }
+
+    /**
+     * Liefert einen verbundenen REQ-Socket (aus dem Pool oder neu erstellt)
+     */
+    public ZMQ.Socket checkout(String endpoint) {
+        if (closed) {
+            throw new IllegalStateException("Connection pool is closed");
+        }
+
+        ZMQ.Socket socket = idle(endpoint).pollFirst();
+        if (socket != null) {
+            idleCount(endpoint).decrementAndGet();
+            hits.incrementAndGet();
+            return socket;
+        }
+
+        misses.incrementAndGet();
+        return MessageUtils.createSocket("REQ", false, endpoint);
+    }
+
+    /**
+     * Gibt einen gesunden Socket (Antwort wurde empfangen) an den Pool zurück
+     */
+    public void checkin(String endpoint, ZMQ.Socket socket) {
+        if (socket == null) {
+            return;
+        }
+        if (closed || idleCount(endpoint).incrementAndGet() > maxIdlePerEndpoint) {
+            if (!closed) {
+                idleCount(endpoint).decrementAndGet();
+            }
+            closeQuietly(socket);
+            return;
+        }
+        // LIFO: zuletzt benutzte Verbindung ist am wahrscheinlichsten noch warm
+        idle(endpoint).offerFirst(socket);
+    }
+
+    /**
+     * Verwirft einen Socket nach Timeout/Fehler (REQ-Zustandsmaschine ist dann blockiert)
+     */
+    public void invalidate(ZMQ.Socket socket) {
+        if (socket == null) {
+            return;
+        }
+        invalidated.incrementAndGet();
+        closeQuietly(socket);
+    }
+
+    public void close() {
+        closed = true;
+        for (Deque<ZMQ.Socket> sockets : idleSockets.values()) {
+            ZMQ.Socket socket;
+            while ((socket = sockets.pollFirst()) != null) {
+                closeQuietly(socket);
+            }
+        }
+        idleCounts.clear();
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getInvalidated() { return invalidated.get(); }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total > 0 ? hits.get() * 100.0 / total : 0;
+    }
+
+    private Deque<ZMQ.Socket> idle(String endpoint) {
+        return idleSockets.computeIfAbsent(endpoint, e -> new ConcurrentLinkedDeque<>());
+    }
+
+    private AtomicInteger idleCount(String endpoint) {
+        return idleCounts.computeIfAbsent(endpoint, e -> new AtomicInteger(0));
+    }
+
+    private static void closeQuietly(ZMQ.Socket socket) {
+        try {
+            socket.setLinger(0);
+            socket.close();
+        } catch (Exception ignored) {
+            // Socket war bereits geschlossen
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool{hits=%d, misses=%d, hitRate=%.1f%%, invalidated=%d}",
+                           hits.get(), misses.get(), getHitRate(), invalidated.get());
+    }
+}
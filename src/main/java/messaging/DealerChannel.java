@@ -0,0 +1,231 @@
+package messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.zeromq.ZMQ;
+
+import monitoring.EventLog;
+
+/**
+ * Asynchronous DEALER transport with correlation IDs.
+ *
+ * One I/O thread owns a single DEALER socket per seller endpoint. Requests are
+ * sent as [empty, correlationId, body] and may be pipelined without waiting
+ * for earlier replies; replies are matched back to their futures by
+ * correlation ID, in whatever order the sellers answer. A lost reply only
+ * times out its own future instead of wedging the connection. Sends never
+ * block: once a seller's send queue is full (SNDHWM), further requests to it
+ * fail right away with a TimeoutException instead of stalling the I/O thread
+ * for every other seller.
+ */
+public class DealerChannel implements SellerChannel {
+    private static final AtomicInteger INSTANCES = new AtomicInteger(0);
+    private static final byte[] WAKE = new byte[] { 1 };
+    private static final int SEND_HIGH_WATER_MARK = 1000;
+
+    private final Queue<Outbound> outbound = new ConcurrentLinkedQueue<>();
+    private final Map<String, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong correlationIds = new AtomicLong(0);
+    private final AtomicBoolean wakePending = new AtomicBoolean(false);
+    private final ZMQ.Socket wakeSender;
+    private final Thread ioThread;
+    private volatile boolean running = true;
+
+    private final AtomicLong sent = new AtomicLong(0);
+    private final AtomicLong received = new AtomicLong(0);
+    private final AtomicLong lateReplies = new AtomicLong(0);
+    private final AtomicLong refusedSends = new AtomicLong(0);
+
+    public DealerChannel() {
+        String wakeEndpoint = "inproc://dealer-channel-wake-" + INSTANCES.incrementAndGet();
+        ZMQ.Socket wakeReceiver = MessageUtils.createSocket("PAIR", true, wakeEndpoint);
+        this.wakeSender = MessageUtils.createSocket("PAIR", false, wakeEndpoint);
+
+        this.ioThread = new Thread(() -> ioLoop(wakeReceiver), "dealer-channel-io");
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+    }
+
+    @Override
+    public CompletableFuture<byte[]> sendBytes(String endpoint, byte[] payload, long timeoutMs) {
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new IllegalStateException("Channel is closed"));
+            return future;
+        }
+
+        String correlationId = Long.toString(correlationIds.incrementAndGet(), 36);
+        pending.put(correlationId, future);
+        future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+              .whenComplete((reply, error) -> pending.remove(correlationId));
+
+        outbound.add(new Outbound(endpoint, correlationId, payload));
+        wakeUp();
+        return future;
+    }
+
+    /**
+     * Weckt den I/O-Thread auf; höchstens ein Signal pro Drain-Durchlauf
+     */
+    private void wakeUp() {
+        if (wakePending.compareAndSet(false, true)) {
+            synchronized (wakeSender) {
+                wakeSender.send(WAKE, ZMQ.DONTWAIT);
+            }
+        }
+    }
+
+    private void ioLoop(ZMQ.Socket wakeReceiver) {
+        ZMQ.Poller poller = MessageUtils.getContext().createPoller(8);
+        int wakeIndex = poller.register(wakeReceiver, ZMQ.Poller.POLLIN);
+        Map<String, ZMQ.Socket> dealers = new HashMap<>();
+        Map<Integer, ZMQ.Socket> indexToDealer = new HashMap<>();
+
+        try {
+            while (running && !Thread.currentThread().isInterrupted()) {
+                poller.poll(100);
+
+                if (poller.pollin(wakeIndex)) {
+                    while (wakeReceiver.recv(ZMQ.DONTWAIT) != null) {
+                        // Signale verwerfen
+                    }
+                }
+                // Zurücksetzen VOR dem Drain, damit kein Auftrag ohne Signal liegen bleibt
+                wakePending.set(false);
+
+                Outbound out;
+                while ((out = outbound.poll()) != null) {
+                    ZMQ.Socket dealer = dealers.get(out.endpoint);
+                    if (dealer == null) {
+                        dealer = MessageUtils.createSocket("DEALER", false, out.endpoint, SEND_HIGH_WATER_MARK);
+                        dealer.setLinger(0);
+                        dealers.put(out.endpoint, dealer);
+                        indexToDealer.put(poller.register(dealer, ZMQ.Poller.POLLIN), dealer);
+                    }
+                    transmit(dealer, out);
+                }
+
+                for (Map.Entry<Integer, ZMQ.Socket> entry : indexToDealer.entrySet()) {
+                    if (poller.pollin(entry.getKey())) {
+                        drainReplies(entry.getValue());
+                    }
+                }
+            }
+        } catch (Exception e) {
+            if (running) {
+                EventLog.error("❌ DealerChannel I/O loop failed: {}", e.getMessage());
+            }
+        } finally {
+            for (ZMQ.Socket dealer : dealers.values()) {
+                dealer.close();
+            }
+            wakeReceiver.close();
+            failPending(new IllegalStateException("Channel closed"));
+        }
+    }
+
+    /**
+     * Nicht-blockierend: bei voller Sendewarteschlange scheitert nur diese Anfrage.
+     * Nimmt ZeroMQ den ersten Frame an, nimmt es auch den Rest der Nachricht an.
+     */
+    private void transmit(ZMQ.Socket dealer, Outbound out) {
+        boolean ok = dealer.send(ZMQ.MESSAGE_SEPARATOR, ZMQ.SNDMORE | ZMQ.DONTWAIT)
+                  && dealer.send(out.correlationId, ZMQ.SNDMORE | ZMQ.DONTWAIT)
+                  && dealer.send(out.payload, ZMQ.DONTWAIT);
+        if (ok) {
+            sent.incrementAndGet();
+        } else {
+            refusedSends.incrementAndGet();
+            CompletableFuture<byte[]> future = pending.remove(out.correlationId);
+            if (future != null) {
+                future.completeExceptionally(new TimeoutException("Send to " + out.endpoint
+                        + " refused, send queue full"));
+            }
+        }
+    }
+
+    private void drainReplies(ZMQ.Socket dealer) {
+        byte[] first;
+        while ((first = dealer.recv(ZMQ.DONTWAIT)) != null) {
+            List<byte[]> frames = new ArrayList<>();
+            frames.add(first);
+            while (dealer.hasReceiveMore()) {
+                frames.add(dealer.recv(0));
+            }
+
+            // Erwartet: [leer, correlationId, antwort]
+            if (frames.size() < 3 || frames.get(0).length != 0) {
+                EventLog.warn("⚠️ DealerChannel dropped malformed reply ({} frames)", frames.size());
+                continue;
+            }
+            received.incrementAndGet();
+
+            String correlationId = new String(frames.get(1), StandardCharsets.UTF_8);
+            CompletableFuture<byte[]> future = pending.remove(correlationId);
+            if (future == null) {
+                // Antwort kam nach dem Timeout an
+                lateReplies.incrementAndGet();
+                continue;
+            }
+            future.complete(frames.get(2));
+        }
+    }
+
+    private void failPending(Exception cause) {
+        for (CompletableFuture<byte[]> future : pending.values()) {
+            future.completeExceptionally(cause);
+        }
+        pending.clear();
+        outbound.clear();
+    }
+
+    public int getInFlight() { return pending.size(); }
+    public long getSent() { return sent.get(); }
+    public long getReceived() { return received.get(); }
+    public long getLateReplies() { return lateReplies.get(); }
+    public long getRefusedSends() { return refusedSends.get(); }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            ioThread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (wakeSender) {
+            wakeSender.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DealerChannel{sent=%d, received=%d, inFlight=%d, lateReplies=%d, refused=%d}",
+                           sent.get(), received.get(), pending.size(), lateReplies.get(), refusedSends.get());
+    }
+
+    private static class Outbound {
+        final String endpoint;
+        final String correlationId;
+        final byte[] payload;
+
+        Outbound(String endpoint, String correlationId, byte[] payload) {
+            this.endpoint = endpoint;
+            this.correlationId = correlationId;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package messaging;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Messages of the seller inventory feed (PUB/SUB).
+ *
+ * A seller publishes one STOCK message whenever a product's availability
+ * changes, and a HEARTBEAT when nothing changed for a while. Both carry
+ * the publisher's epoch (its start time). Every STOCK message gets the next
+ * sequence number, and HEARTBEAT repeats the latest one. A subscriber
+ * therefore notices lost messages, including a lost last message, and
+ * publisher restarts. STOCK carries the absolute availability, not a
+ * difference, so applying one twice or late is harmless:
+ *
+ *   [0xA9, type, epoch:8, seq:8, (product:u16+UTF-8, available:4)]
+ *
+ * A subscriber that joins late or lost its place asks the seller for a
+ * snapshot over the normal request channel ("INVENTORY_SNAPSHOT") and
+ * gets the full view as of one sequence number:
+ *
+ *   SNAPSHOT:epoch=&lt;e&gt;;seq=&lt;s&gt;;laptop=50,tablet=3
+ */
+public final class FeedMessage {
+    public static final String SNAPSHOT_REQUEST = "INVENTORY_SNAPSHOT";
+    public static final String SNAPSHOT_PREFIX = "SNAPSHOT:";
+
+    public static final byte STOCK = 1;
+    public static final byte HEARTBEAT = 2;
+    private static final byte MAGIC = (byte) 0xA9;
+
+    public final byte type;
+    public final long epoch;
+    public final long sequence;
+    public final String product;
+    public final int available;
+
+    private FeedMessage(byte type, long epoch, long sequence, String product, int available) {
+        this.type = type;
+        this.epoch = epoch;
+        this.sequence = sequence;
+        this.product = product;
+        this.available = available;
+    }
+
+    public static byte[] encodeStock(long epoch, long sequence, String product, int available) {
+        byte[] name = product.getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(18 + 2 + name.length + 4)
+                .put(MAGIC).put(STOCK).putLong(epoch).putLong(sequence)
+                .putShort((short) name.length).put(name).putInt(available)
+                .array();
+    }
+
+    public static byte[] encodeHeartbeat(long epoch, long sequence) {
+        return ByteBuffer.allocate(18).put(MAGIC).put(HEARTBEAT).putLong(epoch).putLong(sequence).array();
+    }
+
+    /**
+     * @throws IllegalArgumentException bei fremdem oder abgeschnittenem Frame
+     */
+    public static FeedMessage decode(byte[] frame) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(frame);
+            if (buffer.get() != MAGIC) {
+                throw new IllegalArgumentException("Not a feed message");
+            }
+            byte type = buffer.get();
+            long epoch = buffer.getLong();
+            long sequence = buffer.getLong();
+            if (type == HEARTBEAT) {
+                return new FeedMessage(type, epoch, sequence, null, -1);
+            }
+            if (type != STOCK) {
+                throw new IllegalArgumentException("Unknown feed message type " + type);
+            }
+            byte[] name = new byte[buffer.getShort() & 0xFFFF];
+            buffer.get(name);
+            return new FeedMessage(type, epoch, sequence, new String(name, StandardCharsets.UTF_8), buffer.getInt());
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated feed message", e);
+        }
+    }
+
+    public static String encodeSnapshot(long epoch, long sequence, Map<String, Integer> available) {
+        StringBuilder sb = new StringBuilder(SNAPSHOT_PREFIX)
+                .append("epoch=").append(epoch).append(";seq=").append(sequence).append(';');
+        boolean first = true;
+        for (Map.Entry<String, Integer> entry : available.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            sb.append(entry.getKey()).append('=').append(entry.getValue());
+            first = false;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Zerlegt eine Snapshot-Antwort
+     *
+     * @throws IllegalArgumentException wenn die Antwort kein gültiger Snapshot ist
+     */
+    public static Snapshot decodeSnapshot(String reply) {
+        if (reply == null || !reply.startsWith(SNAPSHOT_PREFIX)) {
+            throw new IllegalArgumentException("Not a snapshot: " + reply);
+        }
+        String[] parts = reply.substring(SNAPSHOT_PREFIX.length()).split(";", 3);
+        if (parts.length < 2 || !parts[0].startsWith("epoch=") || !parts[1].startsWith("seq=")) {
+            throw new IllegalArgumentException("Invalid snapshot header: " + reply);
+        }
+        try {
+            Map<String, Integer> available = new LinkedHashMap<>();
+            if (parts.length == 3 && !parts[2].isEmpty()) {
+                for (String item : parts[2].split(",")) {
+                    int eq = item.lastIndexOf('=');
+                    available.put(item.substring(0, eq), Integer.parseInt(item.substring(eq + 1)));
+                }
+            }
+            return new Snapshot(Long.parseLong(parts[0].substring(6)), Long.parseLong(parts[1].substring(4)),
+                                available);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid snapshot: " + reply, e);
+        }
+    }
+
+    /**
+     * Vollständiger Bestand eines Sellers, gültig ab der angegebenen Sequenznummer
+     */
+    public static final class Snapshot {
+        public final long epoch;
+        public final long sequence;
+        public final Map<String, Integer> available;
+
+        Snapshot(long epoch, long sequence, Map<String, Integer> available) {
+            this.epoch = epoch;
+            this.sequence = sequence;
+            this.available = available;
+        }
+    }
+
+    /**
+     * Feed-Adresse eines Sellers: gleicher Host, Port um portOffset verschoben
+     * (tcp://seller1:5555 -> tcp://seller1:6555)
+     */
+    public static String feedEndpoint(String endpoint, int portOffset) {
+        int colon = endpoint.lastIndexOf(':');
+        int port = Integer.parseInt(endpoint.substring(colon + 1));
+        return endpoint.substring(0, colon + 1) + (port + portOffset);
+    }
+}
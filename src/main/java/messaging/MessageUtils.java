@@ -7,14 +7,36 @@ public class MessageUtils {
     private static final ZContext context = new ZContext();
 
     public static ZMQ.Socket createSocket(String type, boolean bind, String endpoint) {
+        return createSocket(type, bind, endpoint, 0);
+    }
+
+    /**
+     * @param highWaterMark Obergrenze für Nachrichten in den Sende- und Empfangspuffern, 0 = ZeroMQ-Standard
+     */
+    public static ZMQ.Socket createSocket(String type, boolean bind, String endpoint, int highWaterMark) {
         ZMQ.Socket socket;
         if ("REQ".equals(type)) {
             socket = context.createSocket(ZMQ.REQ);
         } else if ("REP".equals(type)) {
             socket = context.createSocket(ZMQ.REP);
+        } else if ("DEALER".equals(type)) {
+            socket = context.createSocket(ZMQ.DEALER);
+        } else if ("ROUTER".equals(type)) {
+            socket = context.createSocket(ZMQ.ROUTER);
+        } else if ("PAIR".equals(type)) {
+            socket = context.createSocket(ZMQ.PAIR);
+        } else if ("PUB".equals(type)) {
+            socket = context.createSocket(ZMQ.PUB);
+        } else if ("SUB".equals(type)) {
+            socket = context.createSocket(ZMQ.SUB);
         } else {
             throw new IllegalArgumentException("Unsupported type: " + type);
         }
+        if (highWaterMark > 0) {
+            // Muss vor bind/connect gesetzt sein
+            socket.setSndHWM(highWaterMark);
+            socket.setRcvHWM(highWaterMark);
+        }
 
         if (bind) {
             socket.bind(endpoint);
@@ -23,4 +45,8 @@ public class MessageUtils {
         }
         return socket;
     }
-}
\ No newline at end of file
+
+    public static ZContext getContext() {
+        return context;
+    }
+}
@@ -0,0 +1,73 @@
+package messaging;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeoutException;
+
+import org.zeromq.ZMQ;
+
+/**
+ * Synchronous REQ/REP transport: every request blocks one executor thread
+ * on a pooled REQ socket until the reply (or the timeout) arrives.
+ */
+public class ReqChannel implements SellerChannel {
+    private final ConnectionPool connectionPool;
+    private final ExecutorService executor;
+
+    public ReqChannel(ConnectionPool connectionPool, ExecutorService executor) {
+        this.connectionPool = connectionPool;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<byte[]> sendBytes(String endpoint, byte[] payload, long timeoutMs) {
+        return CompletableFuture.supplyAsync(() -> {
+            byte[] reply = request(endpoint, payload, timeoutMs);
+            if (reply == null) {
+                throw new CompletionException(new TimeoutException("No reply from " + endpoint));
+            }
+            return reply;
+        }, executor);
+    }
+
+    /**
+     * Request/Reply über einen gepoolten REQ-Socket, liefert null bei Timeout
+     */
+    private byte[] request(String endpoint, byte[] payload, long timeoutMs) {
+        ZMQ.Socket socket = connectionPool.checkout(endpoint);
+        boolean healthy = false;
+        try {
+            socket.setReceiveTimeOut((int) timeoutMs);
+            socket.setSendTimeOut(1000);
+
+            if (!socket.send(payload, 0)) {
+                return null;
+            }
+            byte[] reply = socket.recv(0);
+            healthy = reply != null;
+            return reply;
+        } finally {
+            // Nach Timeout ist der REQ-Socket unbrauchbar (wartet noch auf Antwort) -> verwerfen
+            if (healthy) {
+                connectionPool.checkin(endpoint, socket);
+            } else {
+                connectionPool.invalidate(socket);
+            }
+        }
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    @Override
+    public void close() {
+        connectionPool.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ReqChannel{" + connectionPool + "}";
+    }
+}
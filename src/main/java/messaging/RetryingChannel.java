@@ -0,0 +1,133 @@
+package messaging;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Retries unanswered requests after a short per-attempt timeout, with backoff.
+ *
+ * The caller's timeout is the total budget. Each attempt waits at most
+ * attemptTimeoutMs for its reply. After that, the request is sent again
+ * after an exponentially growing, jittered backoff, up to maxAttempts times.
+ * Only the last attempt may wait until the overall deadline. A blocking
+ * transport (REQ/REP) therefore holds one thread and one socket per request
+ * at a time, not one per attempt. Attempts overlap only while a failed
+ * attempt's backoff is running. Whichever reply arrives first wins. The
+ * request fails only when its last outstanding attempt has failed. This is
+ * safe because sellers answer a repeated (orderId, operation) from their
+ * response cache instead of applying it twice.
+ */
+public class RetryingChannel implements SellerChannel {
+    private final SellerChannel delegate;
+    private final int maxAttempts;
+    private final long attemptTimeoutMs;
+    private final long backoffMs;
+
+    private final AtomicLong requests = new AtomicLong(0);
+    private final AtomicLong retries = new AtomicLong(0);
+    private final AtomicLong answeredByRetry = new AtomicLong(0);
+    private final AtomicLong timedOut = new AtomicLong(0);
+
+    public RetryingChannel(SellerChannel delegate, int maxAttempts, long attemptTimeoutMs, long backoffMs) {
+        this.delegate = delegate;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.attemptTimeoutMs = attemptTimeoutMs;
+        this.backoffMs = backoffMs;
+    }
+
+    @Override
+    public CompletableFuture<byte[]> sendBytes(String endpoint, byte[] payload, long timeoutMs) {
+        requests.incrementAndGet();
+        Request request = new Request(endpoint, payload, System.currentTimeMillis() + timeoutMs);
+        attempt(request, 1);
+        return request.result;
+    }
+
+    private void attempt(Request request, int attempt) {
+        long now = System.currentTimeMillis();
+        long remaining = request.deadline - now;
+        if (remaining <= 0) {
+            request.lastSent = true;
+            if (request.outstanding.get() == 0) {
+                request.fail(new TimeoutException("No reply within the retry budget"));
+            }
+            return;
+        }
+
+        // Letzter Versuch: kein weiterer passt mehr vor die Deadline, er bekommt das restliche Budget
+        long backoff = backoffMs << (attempt - 1);
+        long delay = attemptTimeoutMs + backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        boolean last = attempt >= maxAttempts || now + delay >= request.deadline;
+        long timeout = last ? remaining : Math.min(attemptTimeoutMs, remaining);
+        request.outstanding.incrementAndGet();
+        if (last) {
+            request.lastSent = true;
+        }
+
+        delegate.sendBytes(request.endpoint, request.payload, timeout).whenComplete((reply, error) -> {
+            if (error == null) {
+                if (request.result.complete(reply) && attempt > 1) {
+                    answeredByRetry.incrementAndGet();
+                }
+            } else if (request.outstanding.decrementAndGet() == 0 && request.lastSent) {
+                // Kein Versuch mehr unterwegs und keiner mehr geplant
+                request.fail(error);
+            }
+        });
+
+        if (last) {
+            return;
+        }
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+            if (!request.result.isDone()) {
+                retries.incrementAndGet();
+                attempt(request, attempt + 1);
+            }
+        });
+    }
+
+    public long getRetries() { return retries.get(); }
+    public long getAnsweredByRetry() { return answeredByRetry.get(); }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RetryingChannel{requests=%d, retries=%d, answeredByRetry=%d, timedOut=%d} -> %s",
+                           requests.get(), retries.get(), answeredByRetry.get(), timedOut.get(), delegate);
+    }
+
+    /**
+     * Zustand einer Anfrage über alle Versuche
+     */
+    private final class Request {
+        final String endpoint;
+        final byte[] payload;
+        final long deadline;
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        final AtomicInteger outstanding = new AtomicInteger(0);
+        volatile boolean lastSent;
+
+        Request(String endpoint, byte[] payload, long deadline) {
+            this.endpoint = endpoint;
+            this.payload = payload;
+            this.deadline = deadline;
+        }
+
+        void fail(Throwable error) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            if (result.completeExceptionally(cause) && cause instanceof TimeoutException) {
+                timedOut.incrementAndGet();
+            }
+        }
+    }
+}
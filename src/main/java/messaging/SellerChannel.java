@@ -0,0 +1,27 @@
+package messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Transport for request/reply messages between a marketplace and its sellers.
+ *
+ * The returned future completes with the raw reply, or exceptionally with a
+ * TimeoutException when no reply arrived within timeoutMs. Payloads are raw
+ * bytes so binary frames (see WireCodec) and legacy text lines share the
+ * same transport.
+ */
+public interface SellerChannel {
+
+    CompletableFuture<byte[]> sendBytes(String endpoint, byte[] payload, long timeoutMs);
+
+    /**
+     * Textnachricht (UTF-8), z.B. für Peers ohne Binärformat
+     */
+    default CompletableFuture<String> send(String endpoint, String message, long timeoutMs) {
+        return sendBytes(endpoint, message.getBytes(StandardCharsets.UTF_8), timeoutMs)
+                .thenApply(reply -> new String(reply, StandardCharsets.UTF_8));
+    }
+
+    void close();
+}
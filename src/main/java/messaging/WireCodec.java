@@ -0,0 +1,505 @@
+package messaging;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+/**
+ * Versioned binary wire format for marketplace/seller messages, plus the
+ * legacy text format for peers that do not speak it.
+ *
+ * Binary layout (all integers as unsigned LEB128 varints):
+ *
+ *   [0xA7 magic][version][opcode][fields...][crc32c, 4 bytes big-endian]
+ *
+ * Strings are a varint (byte length + 1, 0 = absent) followed by UTF-8;
+ * counts that may be absent (-1) are likewise shifted by one. The checksum covers
+ * everything before it, so a damaged frame is rejected as a whole instead of
+ * being "repaired" by stripping characters. The magic byte can never start a
+ * text message, which is how a seller tells both formats apart and answers
+ * in the one it was asked in. Decoding reads straight from the received
+ * byte[] without intermediate strings, splits or regular expressions.
+ *
+ * A BATCH frame nests complete binary messages:
+ *   [magic][version][BATCH][count][len, message]...[crc32c]
+ */
+public final class WireCodec {
+    public static final byte MAGIC = (byte) 0xA7;
+    public static final int VERSION = 1;
+    public static final String BUSY_TEXT = "REJECTED:BUSY";
+    private static final int OP_BATCH = 32;
+    private static final int HEADER_BYTES = 3;
+    private static final int CRC_BYTES = 4;
+    private static final int FLAG_PARTIAL = 1;
+
+    private WireCodec() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length >= HEADER_BYTES + CRC_BYTES && data[0] == MAGIC;
+    }
+
+    public static boolean isBatch(byte[] data) {
+        return isBinary(data) && data[2] == OP_BATCH;
+    }
+
+    /**
+     * Nur der Opcode, ohne Prüfsumme: billig genug für die Lastabwehr vor dem Dekodieren
+     */
+    public static boolean isReserve(byte[] data) {
+        return isBinary(data) && data[2] == WireMessage.Op.RESERVE.code;
+    }
+
+    /**
+     * Nur das Produkt einer RESERVE/COMMIT/CANCEL-Nachricht, ohne Prüfsumme und ohne die
+     * übrigen Felder: billig genug für das Routing; null bei anderen oder abgeschnittenen Frames
+     */
+    public static String peekProduct(byte[] data) {
+        if (!isBinary(data) || (data[2] != WireMessage.Op.RESERVE.code && data[2] != WireMessage.Op.COMMIT.code
+                && data[2] != WireMessage.Op.CANCEL.code)) {
+            return null;
+        }
+        int end = data.length - CRC_BYTES;
+        int pos = HEADER_BYTES;
+        for (int field = 0; field < 2; field++) {
+            int length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (pos >= end || shift > 28) {
+                    return null;
+                }
+                b = data[pos++];
+                length |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            // Länge + 1, 0 = nicht vorhanden
+            if (length == 0 || length - 1 > end - pos) {
+                return null;
+            }
+            if (field == 1) {
+                return new String(data, pos, length - 1, StandardCharsets.UTF_8);
+            }
+            pos += length - 1;
+        }
+        return null;
+    }
+
+    // ---------------------------------------------------------------- binary
+
+    public static byte[] encode(WireMessage message) {
+        Writer out = new Writer(64);
+        out.header(message.op.code);
+        switch (message.op) {
+            case RESERVE:
+                out.string(message.orderId).string(message.product).varint(message.quantity)
+                   .raw(message.partial ? FLAG_PARTIAL : 0);
+                break;
+            case COMMIT:
+            case CANCEL:
+                out.string(message.orderId).string(message.product).varint(message.quantity);
+                break;
+            case CONFIRMED:
+            case COMMITTED:
+                out.string(message.orderId).varint(message.granted + 1).varint(message.available + 1);
+                break;
+            case PARTIAL:
+                out.string(message.orderId).varint(message.granted + 1).varint(message.quantity)
+                   .varint(message.available + 1);
+                break;
+            case REJECTED:
+            case ROLLED_BACK:
+                out.string(message.orderId).varint(message.available + 1);
+                break;
+            case ERROR:
+                out.string(message.text);
+                break;
+            default:
+                // HEALTH_CHECK, HEALTHY, BUSY: nur Header
+                break;
+        }
+        return out.finish();
+    }
+
+    /**
+     * @throws IllegalArgumentException bei falscher Prüfsumme, Version oder abgeschnittenem Frame
+     */
+    public static WireMessage decode(byte[] data) {
+        Reader in = new Reader(data);
+        int opcode = in.header();
+        WireMessage.Op op = WireMessage.Op.fromCode(opcode);
+        switch (op) {
+            case RESERVE: {
+                String orderId = in.string();
+                String product = in.string();
+                int quantity = in.varint();
+                boolean partial = (in.raw() & FLAG_PARTIAL) != 0;
+                return WireMessage.reserve(orderId, product, quantity, partial);
+            }
+            case COMMIT:
+                return WireMessage.commit(in.string(), in.string(), in.varint());
+            case CANCEL:
+                return WireMessage.cancel(in.string(), in.string(), in.varint());
+            case CONFIRMED:
+                return WireMessage.confirmed(in.string(), in.varint() - 1, in.varint() - 1);
+            case COMMITTED:
+                return WireMessage.committed(in.string(), in.varint() - 1, in.varint() - 1);
+            case PARTIAL:
+                return WireMessage.partial(in.string(), in.varint() - 1, in.varint(), in.varint() - 1);
+            case REJECTED:
+                return WireMessage.rejected(in.string(), in.varint() - 1);
+            case ROLLED_BACK:
+                return WireMessage.rolledBack(in.string(), in.varint() - 1);
+            case ERROR:
+                return WireMessage.error(in.string());
+            case HEALTH_CHECK:
+                return WireMessage.healthCheck();
+            case BUSY:
+                return WireMessage.busy();
+            default:
+                return WireMessage.healthy();
+        }
+    }
+
+    public static byte[] encodeBatch(List<byte[]> messages) {
+        int size = HEADER_BYTES + 5 + CRC_BYTES;
+        for (byte[] message : messages) {
+            size += 5 + message.length;
+        }
+        Writer out = new Writer(size);
+        out.header(OP_BATCH).varint(messages.size());
+        for (byte[] message : messages) {
+            out.varint(message.length).bytes(message);
+        }
+        return out.finish();
+    }
+
+    /**
+     * @throws IllegalArgumentException bei falscher Prüfsumme oder Anzahl
+     */
+    public static List<byte[]> decodeBatch(byte[] data) {
+        Reader in = new Reader(data);
+        if (in.header() != OP_BATCH) {
+            throw new IllegalArgumentException("Not a batch frame");
+        }
+        int count = in.varint();
+        List<byte[]> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int length = in.varint();
+            messages.add(in.bytes(length));
+        }
+        return messages;
+    }
+
+    /**
+     * Binär oder Text, je nachdem was ankam; beschädigte Frames werden zu ERROR
+     */
+    public static WireMessage decodeAny(byte[] data) {
+        if (isBinary(data)) {
+            try {
+                return decode(data);
+            } catch (IllegalArgumentException e) {
+                return WireMessage.error("Corrupted message: " + e.getMessage());
+            }
+        }
+        return parseText(new String(data, StandardCharsets.UTF_8));
+    }
+
+    // ------------------------------------------------------------------ text
+
+    public static String toText(WireMessage message) {
+        if (message.op == WireMessage.Op.BUSY) {
+            // Alte Marketplaces lesen das als gewöhnliches REJECTED
+            return BUSY_TEXT;
+        }
+        StringBuilder sb = new StringBuilder(48).append(message.op.name());
+        switch (message.op) {
+            case RESERVE:
+                sb.append(':').append(message.orderId).append(':').append(message.product)
+                  .append(':').append(message.quantity);
+                if (message.partial) {
+                    sb.append(":PARTIAL");
+                }
+                break;
+            case COMMIT:
+            case CANCEL:
+                sb.append(':').append(message.orderId).append(':').append(message.product)
+                  .append(':').append(message.quantity);
+                break;
+            case CONFIRMED:
+            case COMMITTED:
+                appendOrderId(sb, message);
+                if (message.granted >= 0) {
+                    sb.append(':').append(message.granted);
+                }
+                appendAvailable(sb, message);
+                break;
+            case PARTIAL:
+                appendOrderId(sb, message);
+                sb.append(':').append(message.granted).append(':').append(message.quantity);
+                appendAvailable(sb, message);
+                break;
+            case REJECTED:
+            case ROLLED_BACK:
+                appendOrderId(sb, message);
+                appendAvailable(sb, message);
+                break;
+            case ERROR:
+                sb.append(':').append(message.text);
+                break;
+            default:
+                break;
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Liest eine Textzeile in einem Durchlauf (indexOf statt split/Regex).
+     * Unbekannte oder kaputte Zeilen werden zu ERROR.
+     */
+    public static WireMessage parseText(String line) {
+        String text = line.trim();
+        Tokens tokens = new Tokens(text);
+        String head = tokens.next();
+        try {
+            switch (head) {
+                case "RESERVE": {
+                    String orderId = tokens.next();
+                    String product = tokens.next();
+                    int quantity = Integer.parseInt(tokens.next());
+                    return WireMessage.reserve(orderId, product, quantity, "PARTIAL".equals(tokens.next()));
+                }
+                case "COMMIT":
+                    return WireMessage.commit(tokens.next(), tokens.next(), Integer.parseInt(tokens.next()));
+                case "CANCEL":
+                case "ROLLBACK":
+                    return WireMessage.cancel(tokens.next(), tokens.next(), Integer.parseInt(tokens.next()));
+                case "HEALTH_CHECK":
+                    return WireMessage.healthCheck();
+                case "HEALTHY":
+                    return WireMessage.healthy();
+                case "CONFIRMED": {
+                    String orderId = tokens.next();
+                    return WireMessage.confirmed(orderId, tokens.nextCount(), tokens.available());
+                }
+                case "COMMITTED": {
+                    String orderId = tokens.next();
+                    return WireMessage.committed(orderId, tokens.nextCount(), tokens.available());
+                }
+                case "PARTIAL": {
+                    String orderId = tokens.next();
+                    int granted = Integer.parseInt(tokens.next());
+                    int requested = Integer.parseInt(tokens.next());
+                    return WireMessage.partial(orderId, granted, requested, tokens.available());
+                }
+                case "REJECTED": {
+                    String orderId = tokens.next();
+                    if ("BUSY".equals(orderId)) {
+                        return WireMessage.busy();
+                    }
+                    return WireMessage.rejected(orderId, tokens.available());
+                }
+                case "ROLLED_BACK": {
+                    String orderId = tokens.next();
+                    return WireMessage.rolledBack(orderId, tokens.available());
+                }
+                case "ERROR":
+                    return WireMessage.error(tokens.rest());
+                default:
+                    return WireMessage.error("Unexpected message: " + text);
+            }
+        } catch (RuntimeException e) {
+            return WireMessage.error("Parse error in '" + text + "': " + e.getMessage());
+        }
+    }
+
+    private static void appendOrderId(StringBuilder sb, WireMessage message) {
+        if (message.orderId != null) {
+            sb.append(':').append(message.orderId);
+        }
+    }
+
+    private static void appendAvailable(StringBuilder sb, WireMessage message) {
+        if (message.available >= 0) {
+            sb.append(":avail=").append(message.available);
+        }
+    }
+
+    /**
+     * Doppelpunkt-getrennte Felder einer Textzeile, der Reihe nach
+     */
+    private static final class Tokens {
+        private final String text;
+        private int pos = 0;
+
+        Tokens(String text) {
+            this.text = text;
+        }
+
+        String next() {
+            if (pos > text.length()) {
+                return null;
+            }
+            int end = text.indexOf(':', pos);
+            if (end < 0) {
+                end = text.length();
+            }
+            String token = text.substring(pos, end);
+            pos = end + 1;
+            return token;
+        }
+
+        /**
+         * Optionale Menge; fehlt sie oder folgt direkt der Bestandshinweis, ist sie -1
+         */
+        int nextCount() {
+            if (pos > text.length() || text.startsWith("avail=", pos)) {
+                return -1;
+            }
+            return Integer.parseInt(next());
+        }
+
+        int available() {
+            String token = next();
+            return token != null && token.startsWith("avail=") ? Integer.parseInt(token.substring(6)) : -1;
+        }
+
+        String rest() {
+            return pos > text.length() ? "" : text.substring(pos);
+        }
+    }
+
+    private static final class Writer {
+        private byte[] buf;
+        private int pos = 0;
+
+        Writer(int capacity) {
+            this.buf = new byte[capacity];
+        }
+
+        Writer header(int opcode) {
+            return raw(MAGIC).raw(VERSION).raw(opcode);
+        }
+
+        Writer raw(int value) {
+            ensure(1);
+            buf[pos++] = (byte) value;
+            return this;
+        }
+
+        Writer varint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+            return this;
+        }
+
+        Writer string(String value) {
+            if (value == null) {
+                return varint(0);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            return varint(bytes.length + 1).bytes(bytes);
+        }
+
+        Writer bytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+            return this;
+        }
+
+        byte[] finish() {
+            CRC32C crc = new CRC32C();
+            crc.update(buf, 0, pos);
+            int value = (int) crc.getValue();
+            ensure(CRC_BYTES);
+            buf[pos++] = (byte) (value >>> 24);
+            buf[pos++] = (byte) (value >>> 16);
+            buf[pos++] = (byte) (value >>> 8);
+            buf[pos++] = (byte) value;
+            return pos == buf.length ? buf : Arrays.copyOf(buf, pos);
+        }
+
+        private void ensure(int bytes) {
+            if (pos + bytes > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + bytes));
+            }
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private final int end;
+        private int pos = 0;
+
+        Reader(byte[] data) {
+            this.data = data;
+            this.end = data.length - CRC_BYTES;
+        }
+
+        int header() {
+            if (data.length < HEADER_BYTES + CRC_BYTES || data[0] != MAGIC) {
+                throw new IllegalArgumentException("Not a binary frame");
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(data, 0, end);
+            int expected = ((data[end] & 0xFF) << 24) | ((data[end + 1] & 0xFF) << 16)
+                         | ((data[end + 2] & 0xFF) << 8) | (data[end + 3] & 0xFF);
+            if ((int) crc.getValue() != expected) {
+                throw new IllegalArgumentException("checksum mismatch");
+            }
+            if (data[1] != VERSION) {
+                throw new IllegalArgumentException("Unsupported wire version " + data[1]);
+            }
+            pos = HEADER_BYTES;
+            return data[2] & 0xFF;
+        }
+
+        int raw() {
+            check(1);
+            return data[pos++] & 0xFF;
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = raw();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+
+        String string() {
+            int length = varint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            check(length);
+            String value = new String(data, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        byte[] bytes(int length) {
+            check(length);
+            byte[] value = Arrays.copyOfRange(data, pos, pos + length);
+            pos += length;
+            return value;
+        }
+
+        private void check(int bytes) {
+            if (bytes < 0 || pos + bytes > end) {
+                throw new IllegalArgumentException("Truncated frame");
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package messaging;
+
+/**
+ * One decoded protocol message (request or reply), independent of whether it
+ * travelled in the binary wire format or as a legacy text line.
+ *
+ * Unused fields stay at their defaults: null for strings, 0 for counts and
+ * -1 for available/granted when the peer did not send them.
+ */
+public final class WireMessage {
+
+    public enum Op {
+        RESERVE(1), COMMIT(2), CANCEL(3), HEALTH_CHECK(4),
+        CONFIRMED(16), PARTIAL(17), REJECTED(18), COMMITTED(19), ROLLED_BACK(20), HEALTHY(21),
+        BUSY(22), ERROR(31);
+
+        private static final Op[] BY_CODE = new Op[32];
+        static {
+            for (Op op : values()) {
+                BY_CODE[op.code] = op;
+            }
+        }
+
+        public final int code;
+
+        Op(int code) {
+            this.code = code;
+        }
+
+        public static Op fromCode(int code) {
+            Op op = code >= 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+            if (op == null) {
+                throw new IllegalArgumentException("Unknown opcode " + code);
+            }
+            return op;
+        }
+    }
+
+    public final Op op;
+    public final String orderId;
+    public final String product;
+    public final int quantity;      // angefragte Menge (Requests, PARTIAL)
+    public final int granted;       // reservierte/committete Menge, -1 = nicht angegeben
+    public final int available;     // Bestandshinweis des Sellers, -1 = nicht angegeben
+    public final boolean partial;   // RESERVE: Teilreservierung erlaubt
+    public final String text;       // ERROR: Beschreibung
+
+    WireMessage(Op op, String orderId, String product, int quantity, int granted, int available,
+                boolean partial, String text) {
+        this.op = op;
+        this.orderId = orderId;
+        this.product = product;
+        this.quantity = quantity;
+        this.granted = granted;
+        this.available = available;
+        this.partial = partial;
+        this.text = text;
+    }
+
+    public static WireMessage reserve(String orderId, String product, int quantity, boolean partial) {
+        return new WireMessage(Op.RESERVE, orderId, product, quantity, -1, -1, partial, null);
+    }
+
+    public static WireMessage commit(String orderId, String product, int quantity) {
+        return new WireMessage(Op.COMMIT, orderId, product, quantity, -1, -1, false, null);
+    }
+
+    public static WireMessage cancel(String orderId, String product, int quantity) {
+        return new WireMessage(Op.CANCEL, orderId, product, quantity, -1, -1, false, null);
+    }
+
+    public static WireMessage healthCheck() {
+        return new WireMessage(Op.HEALTH_CHECK, null, null, 0, -1, -1, false, null);
+    }
+
+    public static WireMessage confirmed(String orderId, int granted, int available) {
+        return new WireMessage(Op.CONFIRMED, orderId, null, 0, granted, available, false, null);
+    }
+
+    public static WireMessage partial(String orderId, int granted, int requested, int available) {
+        return new WireMessage(Op.PARTIAL, orderId, null, requested, granted, available, false, null);
+    }
+
+    public static WireMessage rejected(String orderId, int available) {
+        return new WireMessage(Op.REJECTED, orderId, null, 0, -1, available, false, null);
+    }
+
+    public static WireMessage committed(String orderId, int committed, int available) {
+        return new WireMessage(Op.COMMITTED, orderId, null, 0, committed, available, false, null);
+    }
+
+    public static WireMessage rolledBack(String orderId, int available) {
+        return new WireMessage(Op.ROLLED_BACK, orderId, null, 0, -1, available, false, null);
+    }
+
+    public static WireMessage healthy() {
+        return new WireMessage(Op.HEALTHY, null, null, 0, -1, -1, false, null);
+    }
+
+    /**
+     * Überlasteter Seller hat die Anfrage nicht bearbeitet (Text: "REJECTED:BUSY")
+     */
+    public static WireMessage busy() {
+        return new WireMessage(Op.BUSY, null, null, 0, -1, -1, false, null);
+    }
+
+    public static WireMessage error(String text) {
+        return new WireMessage(Op.ERROR, null, null, 0, -1, -1, false, text);
+    }
+
+    public boolean isRequest() {
+        return op.code < Op.CONFIRMED.code;
+    }
+
+    /**
+     * Textdarstellung im Legacy-Format (auch für Logausgaben)
+     */
+    @Override
+    public String toString() {
+        return WireCodec.toText(this);
+    }
+}
@@ -1,37 +1,83 @@
 package model;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class Order {
     private final String id;
-    private final String product;
-    private final int quantity;
+    private final List<LineItem> items;   // Warenkorb, mindestens eine Position
     private final String marketplaceId; // NEU: Marketplace-Identifikation
     private final Map<String, Status> sellerStatus = new HashMap<>();
+    private final Map<String, int[]> grantedQuantity = new HashMap<>(); // reservierte Stückzahl pro Seller und Position
+    private final Map<String, Outcome> phaseTwoOutcome = new HashMap<>();  // Ergebnis von COMMIT/CANCEL pro Seller
+    private long phaseTwoLatencyMs = -1;
 
     public enum Status {
         CONFIRMED, REJECTED, PENDING
     }
 
-    public Order(String product, int quantity, String marketplaceId) {
+    public enum Outcome {
+        COMMITTED, RELEASED, TIMEOUT, FAILED
+    }
+
+    /**
+     * Eine Position des Warenkorbs
+     */
+    public static class LineItem {
+        public final String product;
+        public final int quantity;
+
+        public LineItem(String product, int quantity) {
+            this.product = product;
+            this.quantity = quantity;
+        }
+
+        @Override
+        public String toString() {
+            return quantity + "x " + product;
+        }
+    }
+
+    public Order(List<LineItem> items, String marketplaceId) {
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("Order needs at least one line item");
+        }
         // Eindeutige ID mit Marketplace-Prefix
         this.id = marketplaceId + "-" + System.currentTimeMillis() + "-" + 
                  java.util.UUID.randomUUID().toString().substring(0, 8);
-        this.product = product;
-        this.quantity = quantity;
+        this.items = Collections.unmodifiableList(new ArrayList<>(items));
         this.marketplaceId = marketplaceId;
     }
 
+    public Order(String product, int quantity, String marketplaceId) {
+        this(List.of(new LineItem(product, quantity)), marketplaceId);
+    }
+
     // Backward compatibility
     public Order(String product, int quantity) {
         this(product, quantity, "MP-DEFAULT");
     }
 
+    /**
+     * ID einer Position beim Seller: Einzelbestellungen behalten die Order-ID,
+     * Warenkörbe hängen die Positionsnummer an ("MP-1-...-ab12cd34/2")
+     */
+    public static String lineId(String orderId, int line, int lineCount) {
+        return lineCount == 1 ? orderId : orderId + "/" + (line + 1);
+    }
+
     public String getId() { return id; }
-    public String getProduct() { return product; }
-    public int getQuantity() { return quantity; }
     public String getMarketplaceId() { return marketplaceId; }
+    public List<LineItem> getItems() { return items; }
+    public int getLineCount() { return items.size(); }
+    public String getLineId(int line) { return lineId(id, line, items.size()); }
+
+    // Erste Position (bei Einzelbestellungen die einzige)
+    public String getProduct() { return items.get(0).product; }
+    public int getQuantity() { return items.get(0).quantity; }
 
     public void setStatus(String endpoint, Status status) {
         sellerStatus.put(endpoint, status);
@@ -41,6 +87,55 @@ public class Order {
         return sellerStatus.getOrDefault(endpoint, Status.PENDING);
     }
 
+    public void setGranted(String endpoint, int line, int quantity) {
+        grantedQuantity.computeIfAbsent(endpoint, e -> new int[items.size()])[line] = quantity;
+    }
+
+    public int getGranted(String endpoint, int line) {
+        int[] granted = grantedQuantity.get(endpoint);
+        return granted != null ? granted[line] : 0;
+    }
+
+    public int getTotalGranted(int line) {
+        int total = 0;
+        for (int[] granted : grantedQuantity.values()) {
+            total += granted[line];
+        }
+        return total;
+    }
+
+    /**
+     * true wenn jede Position vollständig reserviert ist
+     */
+    public boolean isCovered() {
+        for (int line = 0; line < items.size(); line++) {
+            if (getTotalGranted(line) < items.get(line).quantity) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void setOutcome(String endpoint, Outcome outcome) {
+        phaseTwoOutcome.put(endpoint, outcome);
+    }
+
+    public Outcome getOutcome(String endpoint) {
+        return phaseTwoOutcome.get(endpoint);
+    }
+
+    public Map<String, Outcome> getPhaseTwoOutcomes() {
+        return phaseTwoOutcome;
+    }
+
+    public void setPhaseTwoLatencyMs(long latencyMs) {
+        this.phaseTwoLatencyMs = latencyMs;
+    }
+
+    public long getPhaseTwoLatencyMs() {
+        return phaseTwoLatencyMs;
+    }
+
     public boolean isFullyConfirmed() {
         return sellerStatus.values().stream().allMatch(s -> s == Status.CONFIRMED);
     }
@@ -51,7 +146,6 @@ public class Order {
 
     @Override
     public String toString() {
-        return String.format("Order{id='%s', marketplace='%s', product='%s', qty=%d}", 
-                           id, marketplaceId, product, quantity);
+        return String.format("Order{id='%s', marketplace='%s', items=%s}", id, marketplaceId, items);
     }
 }
\ No newline at end of file
@@ -0,0 +1,334 @@
+package monitoring;
+
+import java.io.PrintStream;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous event log for the request hot paths of both processes.
+ *
+ * Callers do not format anything. They check the level, claim a slot in a
+ * preallocated ring buffer with one CAS, and store the level, timestamp,
+ * thread name, a "{}" template and up to three argument references
+ * (longer argument lists keep their varargs array). A single writer
+ * thread formats the published slots into compact lines and hands them
+ * to stdout in batches:
+ *
+ *   HH:mm:ss.SSS I seller-worker-2 [RESERVE] confirmed order-17 3x laptop
+ *
+ * A full ring never blocks a request. The event is dropped and counted,
+ * and the writer reports the number of lost events. Arguments are
+ * formatted later on the writer thread, so callers pass values or
+ * immutable objects, not state that keeps changing.
+ */
+public final class EventLog {
+    public enum Level {
+        DEBUG('D'), INFO('I'), WARN('W'), ERROR('E'), OFF('-');
+
+        final char tag;
+
+        Level(char tag) {
+            this.tag = tag;
+        }
+
+        /**
+         * Level aus der Konfiguration (z.B. simulation.log_level), unbekannt/leer = INFO
+         */
+        public static Level parse(String name) {
+            if (name == null || name.isBlank()) {
+                return INFO;
+            }
+            switch (name.trim().toUpperCase()) {
+                case "TRACE":
+                case "ALL":
+                case "DEBUG":
+                    return DEBUG;
+                case "WARN":
+                case "WARNING":
+                    return WARN;
+                case "ERROR":
+                case "SEVERE":
+                    return ERROR;
+                case "OFF":
+                case "NONE":
+                    return OFF;
+                default:
+                    return INFO;
+            }
+        }
+    }
+
+    public static final int DEFAULT_CAPACITY = 65536;
+    private static final int MAX_BATCH_CHARS = 64 * 1024;
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private static volatile EventLog instance;
+    private static volatile int threshold = Level.INFO.ordinal();
+
+    private final Slot[] slots;
+    private final int mask;
+    private final PrintStream out;
+    private final AtomicLong head = new AtomicLong(0);   // nächster freier Slot (Produzenten)
+    private final AtomicLong tail = new AtomicLong(0);   // nächster zu formatierender Slot (Writer), davor ist der Ring frei
+    private final AtomicLong written = new AtomicLong(0); // alles davor ist an out übergeben (flush wartet darauf)
+    private final AtomicLong dropped = new AtomicLong(0);
+    // Nur vom Writer-Thread benutzt
+    private long droppedReported = 0;
+    private long zoneOffset;
+    private long offsetValidUntil = Long.MIN_VALUE;
+
+    private EventLog(int capacity, PrintStream out) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1) << 1);
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.out = out;
+        Thread writer = new Thread(this::writeLoop, "event-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Setzt das Level; die Ringgröße gilt nur beim ersten Aufruf im Prozess
+     */
+    public static synchronized void configure(String level, int capacity) {
+        threshold = Level.parse(level).ordinal();
+        if (instance == null) {
+            instance = new EventLog(capacity > 0 ? capacity : DEFAULT_CAPACITY, System.out);
+            // Beim Beenden nichts verlieren: der Writer ist ein Daemon-Thread
+            Runtime.getRuntime().addShutdownHook(new Thread(EventLog::flush, "event-log-flush"));
+        }
+    }
+
+    public static void setLevel(String level) {
+        threshold = Level.parse(level).ordinal();
+    }
+
+    public static boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public static void debug(String template) { log(Level.DEBUG, template, null, null, null, NO_ARGS, 0); }
+    public static void debug(String template, Object a) { log(Level.DEBUG, template, a, null, null, NO_ARGS, 1); }
+    public static void debug(String template, Object a, Object b) { log(Level.DEBUG, template, a, b, null, NO_ARGS, 2); }
+    public static void debug(String template, Object a, Object b, Object c) { log(Level.DEBUG, template, a, b, c, NO_ARGS, 3); }
+    public static void debug(String template, Object... args) { log(Level.DEBUG, template, args); }
+
+    public static void info(String template) { log(Level.INFO, template, null, null, null, NO_ARGS, 0); }
+    public static void info(String template, Object a) { log(Level.INFO, template, a, null, null, NO_ARGS, 1); }
+    public static void info(String template, Object a, Object b) { log(Level.INFO, template, a, b, null, NO_ARGS, 2); }
+    public static void info(String template, Object a, Object b, Object c) { log(Level.INFO, template, a, b, c, NO_ARGS, 3); }
+    public static void info(String template, Object... args) { log(Level.INFO, template, args); }
+
+    public static void warn(String template) { log(Level.WARN, template, null, null, null, NO_ARGS, 0); }
+    public static void warn(String template, Object a) { log(Level.WARN, template, a, null, null, NO_ARGS, 1); }
+    public static void warn(String template, Object a, Object b) { log(Level.WARN, template, a, b, null, NO_ARGS, 2); }
+    public static void warn(String template, Object a, Object b, Object c) { log(Level.WARN, template, a, b, c, NO_ARGS, 3); }
+    public static void warn(String template, Object... args) { log(Level.WARN, template, args); }
+
+    public static void error(String template) { log(Level.ERROR, template, null, null, null, NO_ARGS, 0); }
+    public static void error(String template, Object a) { log(Level.ERROR, template, a, null, null, NO_ARGS, 1); }
+    public static void error(String template, Object a, Object b) { log(Level.ERROR, template, a, b, null, NO_ARGS, 2); }
+    public static void error(String template, Object a, Object b, Object c) { log(Level.ERROR, template, a, b, c, NO_ARGS, 3); }
+    public static void error(String template, Object... args) { log(Level.ERROR, template, args); }
+
+    private static void log(Level level, String template, Object[] args) {
+        int count = args.length;
+        log(level, template, count > 0 ? args[0] : null, count > 1 ? args[1] : null,
+            count > 2 ? args[2] : null, args, count);
+    }
+
+    private static void log(Level level, String template, Object a, Object b, Object c,
+                            Object[] more, int count) {
+        if (level.ordinal() < threshold) {
+            return;
+        }
+        EventLog log = instance;
+        if (log == null) {
+            configure(Level.values()[threshold].name(), DEFAULT_CAPACITY);
+            log = instance;
+        }
+        log.publish(level, template, a, b, c, more, count);
+    }
+
+    /**
+     * Wartet (höchstens 2s), bis alles bisher Geloggte geschrieben ist, z.B. vor Abschlussstatistiken
+     */
+    public static void flush() {
+        EventLog log = instance;
+        if (log != null) {
+            log.awaitWritten(2000);
+        }
+    }
+
+    public static long getDropped() {
+        EventLog log = instance;
+        return log != null ? log.dropped.get() : 0;
+    }
+
+    private void publish(Level level, String template, Object a, Object b, Object c,
+                         Object[] more, int count) {
+        long sequence;
+        do {
+            sequence = head.get();
+            if (sequence - tail.get() >= slots.length) {
+                // Ring voll: lieber ein Ereignis verlieren als die Anfrage aufhalten
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!head.compareAndSet(sequence, sequence + 1));
+
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.level = level;
+        slot.timeMillis = System.currentTimeMillis();
+        slot.thread = Thread.currentThread().getName();
+        slot.template = template;
+        slot.a = a;
+        slot.b = b;
+        slot.c = c;
+        slot.more = more;
+        slot.count = count;
+        slot.published = sequence + 1; // volatile: macht den Slot für den Writer sichtbar
+    }
+
+    private void writeLoop() {
+        StringBuilder batch = new StringBuilder(MAX_BATCH_CHARS);
+        long next = tail.get();
+        int idleSpins = 0;
+        while (true) {
+            Slot slot = slots[(int) (next & mask)];
+            if (slot.published != next + 1) {
+                if (batch.length() > 0) {
+                    write(batch, next);
+                }
+                reportDropped(batch, next);
+                // Kurz spinnen, dann schlafen: wenig Latenz unter Last, kaum CPU im Leerlauf
+                if (++idleSpins > 100) {
+                    LockSupport.parkNanos(1_000_000);
+                } else {
+                    Thread.onSpinWait();
+                }
+                continue;
+            }
+            idleSpins = 0;
+            format(slot, batch);
+            slot.clear();
+            tail.lazySet(++next);
+            if (batch.length() >= MAX_BATCH_CHARS) {
+                write(batch, next);
+            }
+        }
+    }
+
+    /**
+     * @param upTo Sequenz hinter dem letzten Ereignis im Batch; erst nach dem Schreiben sichtbar
+     */
+    private void write(StringBuilder batch, long upTo) {
+        // Ein Block pro Batch; getBytes ist deutlich schneller als der Zeichen-Encoder von print()
+        byte[] bytes = batch.toString().getBytes(out.charset());
+        out.write(bytes, 0, bytes.length);
+        out.flush();
+        batch.setLength(0);
+        written.set(upTo);
+    }
+
+    private void reportDropped(StringBuilder batch, long upTo) {
+        long lost = dropped.get();
+        if (lost > droppedReported) {
+            batch.append("[EVENT_LOG] ").append(lost - droppedReported)
+                 .append(" event(s) dropped, ring buffer full\n");
+            droppedReported = lost;
+            write(batch, upTo);
+        }
+    }
+
+    private void format(Slot slot, StringBuilder line) {
+        appendTime(line, slot.timeMillis);
+        line.append(' ').append(slot.level.tag).append(' ').append(slot.thread).append(' ');
+
+        String template = slot.template;
+        int argument = 0;
+        int from = 0;
+        int at;
+        while ((at = template.indexOf("{}", from)) >= 0) {
+            line.append(template, from, at);
+            if (argument < slot.count) {
+                line.append(slot.arg(argument++));
+            } else {
+                line.append("{}");
+            }
+            from = at + 2;
+        }
+        line.append(template, from, template.length()).append('\n');
+    }
+
+    private void appendTime(StringBuilder line, long millis) {
+        // Zeitzonen-Offset nur einmal pro Minute bestimmen (Sommerzeit), nicht pro Ereignis
+        if (millis >= offsetValidUntil || millis < offsetValidUntil - 60_000) {
+            zoneOffset = TimeZone.getDefault().getOffset(millis);
+            offsetValidUntil = millis - Math.floorMod(millis, 60_000L) + 60_000;
+        }
+        long local = millis + zoneOffset;
+        long ofDay = Math.floorMod(local, 86_400_000L);
+        appendPadded(line, ofDay / 3_600_000, 2).append(':');
+        appendPadded(line, ofDay / 60_000 % 60, 2).append(':');
+        appendPadded(line, ofDay / 1000 % 60, 2).append('.');
+        appendPadded(line, ofDay % 1000, 3);
+    }
+
+    private static StringBuilder appendPadded(StringBuilder line, long value, int digits) {
+        if (digits == 3 && value < 100) {
+            line.append('0');
+        }
+        if (value < 10) {
+            line.append('0');
+        }
+        return line.append(value);
+    }
+
+    private void awaitWritten(long timeoutMs) {
+        long target = head.get();
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        // tail reicht nicht: der Writer gibt Slots frei, bevor ihr Batch geschrieben ist
+        while (written.get() < target && System.currentTimeMillis() < deadline) {
+            LockSupport.parkNanos(500_000);
+        }
+    }
+
+    /**
+     * Ein vorab angelegter Ereignis-Platz; nach dem Schreiben werden die Referenzen gelöscht
+     */
+    private static final class Slot {
+        volatile long published;
+        Level level;
+        long timeMillis;
+        String thread;
+        String template;
+        Object a;
+        Object b;
+        Object c;
+        Object[] more;
+        int count;
+
+        Object arg(int index) {
+            switch (index) {
+                case 0: return a;
+                case 1: return b;
+                case 2: return c;
+                default: return more[index];
+            }
+        }
+
+        void clear() {
+            thread = null;
+            template = null;
+            a = null;
+            b = null;
+            c = null;
+            more = null;
+        }
+    }
+}
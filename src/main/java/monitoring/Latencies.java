@@ -0,0 +1,40 @@
+package monitoring;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Process-wide registry of named latency histograms.
+ *
+ * Names are a phase ("saga", "reserve", "commit", "rollback", "order") or a
+ * phase plus a seller endpoint ("reserve tcp://127.0.0.1:5555"). Sellers
+ * record their own service time under "service-reserve", "service-commit"
+ * and "service-rollback", so the two sides never share a name. A histogram
+ * is created on first use and kept for the life of the process. Hot paths
+ * hold on to the histogram or look it up in a concurrent map. The
+ * ProcessMonitor reports from here, both cumulative and per interval.
+ */
+public final class Latencies {
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+
+    private Latencies() {
+    }
+
+    public static LatencyHistogram histogram(String name) {
+        LatencyHistogram histogram = histograms.get(name);
+        return histogram != null ? histogram : histograms.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    public static LatencyHistogram histogram(String phase, String endpoint) {
+        return histogram(phase + " " + endpoint);
+    }
+
+    /**
+     * Alle Histogramme, nach Namen sortiert
+     */
+    public static List<LatencyHistogram> all() {
+        return new ArrayList<>(histograms.values());
+    }
+}
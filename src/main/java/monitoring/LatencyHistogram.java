@@ -0,0 +1,212 @@
+package monitoring;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram in microseconds, bucketed like HdrHistogram.
+ *
+ * Values below 256µs get one bucket each. Above that, every power of two is
+ * split into 128 equal buckets, so a recorded value is off by less than
+ * 1% (two significant digits) anywhere from 1µs to about 19 hours. Larger
+ * values are clamped to the last bucket. The layout is fixed: 3968 counters
+ * in one AtomicLongArray, allocated once.
+ *
+ * record() takes a few shifts to find the bucket and one atomic increment.
+ * It also adds to a LongAdder for the mean and updates the maximum only
+ * when a new maximum arrives. It never allocates or locks, so it can stay
+ * on in production. Reading copies the counters into a Snapshot. The copy
+ * is not atomic across buckets, so a value recorded meanwhile may or may
+ * not be included. interval() returns only what was recorded since the
+ * previous interval() call.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;       // 128 Buckets pro Zweierpotenz
+    private static final int LINEAR = SUB_COUNT << 1;          // 0..255 µs exakt
+    private static final int MAX_SHIFT = 29;                   // bis 2^36 µs
+    static final int BUCKETS = LINEAR + MAX_SHIFT * SUB_COUNT;
+
+    private final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong(0);
+
+    // Stand beim letzten interval(), nur unter der Sperre von interval() benutzt
+    private final long[] lastInterval = new long[BUCKETS];
+    private long lastIntervalSum = 0;
+
+    public LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(indexOf(value));
+        sum.add(value);
+        if (value > max.get()) {
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Dauer seit einem System.nanoTime()-Startwert
+     */
+    public void recordSince(long startNanos) {
+        record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+    }
+
+    /**
+     * Alles seit dem Start
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+        }
+        return new Snapshot(name, copy, sum.sum(), max.get());
+    }
+
+    /**
+     * Nur was seit dem letzten Aufruf aufgezeichnet wurde; das Maximum ist die
+     * Obergrenze des höchsten belegten Buckets
+     */
+    public synchronized Snapshot interval() {
+        long[] delta = new long[BUCKETS];
+        int highest = -1;
+        for (int i = 0; i < BUCKETS; i++) {
+            long current = counts.get(i);
+            delta[i] = current - lastInterval[i];
+            lastInterval[i] = current;
+            if (delta[i] > 0) {
+                highest = i;
+            }
+        }
+        long currentSum = sum.sum();
+        long intervalSum = currentSum - lastIntervalSum;
+        lastIntervalSum = currentSum;
+        return new Snapshot(name, delta, intervalSum, highest >= 0 ? Math.min(highestValue(highest), max.get()) : 0);
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        if (shift > MAX_SHIFT) {
+            return BUCKETS - 1;
+        }
+        return LINEAR + (shift - 1) * SUB_COUNT + (int) (value >>> shift) - SUB_COUNT;
+    }
+
+    /**
+     * Größter Wert, der im Bucket landet
+     */
+    static long highestValue(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index - LINEAR) / SUB_COUNT + 1;
+        long sub = (index - LINEAR) % SUB_COUNT + SUB_COUNT;
+        return ((sub + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * Unveränderliche Kopie der Zähler
+     */
+    public static final class Snapshot {
+        private final String name;
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(String name, long[] counts, long sum, long max) {
+            this.name = name;
+            this.counts = counts;
+            long total = 0;
+            for (long c : counts) {
+                total += c;
+            }
+            this.count = total;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public long getMaxMicros() { return max; }
+        public long getSumMicros() { return sum; }
+
+        public double getMeanMicros() {
+            return count > 0 ? (double) sum / count : 0;
+        }
+
+        /**
+         * Kleinster Wert, unter dem mindestens percentile % der Aufzeichnungen liegen
+         * (Obergrenze seines Buckets, höchstens das Maximum)
+         */
+        public long percentileMicros(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValue(i), max);
+                }
+            }
+            return max;
+        }
+
+        /**
+         * Anzahl der Werte bis einschließlich jeder Grenze (aufsteigend, in µs), z.B. für
+         * Prometheus-Buckets; ein Bucket zählt erst zur Grenze, wenn er vollständig darunter liegt
+         */
+        public long[] cumulativeCounts(long[] boundsMicros) {
+            long[] cumulative = new long[boundsMicros.length];
+            long seen = 0;
+            int bucket = 0;
+            for (int b = 0; b < boundsMicros.length; b++) {
+                while (bucket < counts.length && highestValue(bucket) <= boundsMicros[b]) {
+                    seen += counts[bucket++];
+                }
+                cumulative[b] = seen;
+            }
+            return cumulative;
+        }
+
+        @Override
+        public String toString() {
+            if (count == 0) {
+                return String.format("%s: no samples", name);
+            }
+            return String.format("%s: n=%d p50=%s p90=%s p99=%s p99.9=%s max=%s", name, count,
+                                 format(percentileMicros(50)), format(percentileMicros(90)),
+                                 format(percentileMicros(99)), format(percentileMicros(99.9)), format(max));
+        }
+
+        static String format(long micros) {
+            if (micros < 1000) {
+                return micros + "µs";
+            }
+            if (micros < 1_000_000) {
+                return String.format("%.1fms", micros / 1000.0);
+            }
+            return String.format("%.2fs", micros / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package monitoring;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Counters, gauges and latency histograms of one process, rendered in the
+ * Prometheus text format (version 0.0.4).
+ *
+ * Components do not push values into this registry. They register
+ * suppliers that read state they keep anyway (atomics, lock-free maps,
+ * LatencyHistogram snapshots). scrape() calls those suppliers on the
+ * scraping thread only, so a scrape never takes a lock a request thread
+ * holds and request threads do no extra work. Every histogram in
+ * monitoring.Latencies that has samples is exported as
+ * &lt;prefix&gt;_latency_seconds. A name
+ * "reserve tcp://host:5555" becomes {phase="reserve",endpoint="tcp://host:5555"}.
+ */
+public final class MetricsRegistry {
+    // Prometheus-Buckets in Sekunden: 0,5ms .. 10s
+    private static final double[] BUCKET_SECONDS = {
+        0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10
+    };
+    private static final long[] BUCKET_MICROS = new long[BUCKET_SECONDS.length];
+    static {
+        for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+            BUCKET_MICROS[i] = Math.round(BUCKET_SECONDS[i] * 1_000_000);
+        }
+    }
+
+    private final String prefix;
+    private final List<Family> families = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param prefix Namensraum aller Metriken, z.B. "marketplace" oder "seller"
+     */
+    public MetricsRegistry(String prefix) {
+        this.prefix = prefix;
+    }
+
+    public void counter(String name, String help, DoubleSupplier value) {
+        families.add(new Family(name, "counter", help, null, () -> Map.of("", value.getAsDouble())));
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value) {
+        families.add(new Family(name, "gauge", help, null, () -> Map.of("", value.getAsDouble())));
+    }
+
+    /**
+     * Ein Wert pro Label-Wert, z.B. pro Seller oder Produkt; die Map wird bei jedem Scrape neu geholt
+     */
+    public void counter(String name, String help, String label, Supplier<Map<String, ? extends Number>> values) {
+        families.add(new Family(name, "counter", help, label, values));
+    }
+
+    public void gauge(String name, String help, String label, Supplier<Map<String, ? extends Number>> values) {
+        families.add(new Family(name, "gauge", help, label, values));
+    }
+
+    /**
+     * Aktueller Stand aller Metriken im Prometheus-Textformat
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : families) {
+            String name = prefix + "_" + family.name;
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, ? extends Number> sample : family.values.get().entrySet()) {
+                out.append(name);
+                if (family.label != null) {
+                    out.append('{').append(family.label).append("=\"").append(escape(sample.getKey())).append("\"}");
+                }
+                out.append(' ').append(format(sample.getValue().doubleValue())).append('\n');
+            }
+        }
+        appendHistograms(out);
+        return out.toString();
+    }
+
+    private void appendHistograms(StringBuilder out) {
+        List<LatencyHistogram.Snapshot> snapshots = new ArrayList<>();
+        for (LatencyHistogram histogram : Latencies.all()) {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            // Histogramme, die dieser Prozess nie benutzt (z.B. "order" im Seller), nicht exportieren
+            if (snapshot.getCount() > 0) {
+                snapshots.add(snapshot);
+            }
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        String name = prefix + "_latency_seconds";
+        out.append("# HELP ").append(name).append(" Latency per phase and endpoint\n");
+        out.append("# TYPE ").append(name).append(" histogram\n");
+        for (LatencyHistogram.Snapshot snapshot : snapshots) {
+            String labels = labels(snapshot.getName());
+            long[] cumulative = snapshot.cumulativeCounts(BUCKET_MICROS);
+            for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+                out.append(name).append("_bucket{").append(labels).append(",le=\"").append(format(BUCKET_SECONDS[i]))
+                   .append("\"} ").append(cumulative[i]).append('\n');
+            }
+            out.append(name).append("_bucket{").append(labels).append(",le=\"+Inf\"} ")
+               .append(snapshot.getCount()).append('\n');
+            out.append(name).append("_sum{").append(labels).append("} ")
+               .append(format(snapshot.getSumMicros() / 1_000_000.0)).append('\n');
+            out.append(name).append("_count{").append(labels).append("} ").append(snapshot.getCount()).append('\n');
+        }
+    }
+
+    /**
+     * "reserve tcp://host:5555" -> phase="reserve",endpoint="tcp://host:5555"
+     */
+    private static String labels(String histogramName) {
+        int space = histogramName.indexOf(' ');
+        if (space < 0) {
+            return "phase=\"" + escape(histogramName) + "\"";
+        }
+        return "phase=\"" + escape(histogramName.substring(0, space)) + "\",endpoint=\""
+               + escape(histogramName.substring(space + 1)) + "\"";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        // Ohne Exponent: "0.0005" statt "5.0E-4"
+        return Double.isFinite(value) ? BigDecimal.valueOf(value).stripTrailingZeros().toPlainString() : Double.toString(value);
+    }
+
+    private static final class Family {
+        final String name;
+        final String type;
+        final String help;
+        final String label;
+        final Supplier<Map<String, ? extends Number>> values;
+
+        Family(String name, String type, String help, String label, Supplier<Map<String, ? extends Number>> values) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+            this.label = label;
+            this.values = values;
+        }
+    }
+}
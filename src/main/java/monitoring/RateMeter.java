@@ -0,0 +1,53 @@
+package monitoring;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Events per second over a sliding window of whole seconds.
+ *
+ * mark() increments the counter of the current second in a small ring,
+ * and a slot still holding an older second is reset first. perSecond()
+ * averages the completed seconds of the window, so the value does not jump
+ * at the start of each second. Both are lock-free. A mark that races with
+ * the reset of its slot can be lost. The result is for dashboards, not
+ * for accounting; exact totals come from counters.
+ */
+public final class RateMeter {
+    private final int windowSeconds;
+    private final int slots;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray seconds;
+
+    public RateMeter(int windowSeconds) {
+        this.windowSeconds = Math.max(1, windowSeconds);
+        // Laufende Sekunde und eine Reserve zusätzlich zum Fenster
+        this.slots = this.windowSeconds + 2;
+        this.counts = new AtomicLongArray(slots);
+        this.seconds = new AtomicLongArray(slots);
+    }
+
+    public void mark() {
+        long now = System.currentTimeMillis() / 1000;
+        int slot = (int) (now % slots);
+        long stamp = seconds.get(slot);
+        if (stamp != now && seconds.compareAndSet(slot, stamp, now)) {
+            counts.set(slot, 0);
+        }
+        counts.incrementAndGet(slot);
+    }
+
+    /**
+     * Durchschnitt über die letzten windowSeconds abgeschlossenen Sekunden
+     */
+    public double perSecond() {
+        long now = System.currentTimeMillis() / 1000;
+        long events = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            long age = now - seconds.get(slot);
+            if (age >= 1 && age <= windowSeconds) {
+                events += counts.get(slot);
+            }
+        }
+        return (double) events / windowSeconds;
+    }
+}
@@ -0,0 +1,124 @@
+package seller;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import messaging.WireCodec;
+import messaging.WireMessage;
+
+/**
+ * Load shedding between the ROUTER frontend and the worker pool.
+ *
+ * The proxy counts requests waiting for a worker and stamps each with its
+ * arrival time. Two limits turn new reservations away with REJECTED:BUSY
+ * before any inventory is touched:
+ *   - maxQueued: above this many waiting requests, the proxy answers a
+ *     reservation at once instead of queueing it;
+ *   - maxAgeMs: a reservation that waited longer than this is answered
+ *     without being processed, because the marketplace has probably given
+ *     up on it already and nobody would commit the stock.
+ * COMMIT, CANCEL, health checks and snapshots are never shed. They finish
+ * or release existing work.
+ */
+public class AdmissionControl {
+    private static final byte[] BUSY_TEXT = WireCodec.BUSY_TEXT.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BUSY_BINARY = WireCodec.encode(WireMessage.busy());
+
+    private final int maxQueued;
+    private final long maxAgeMs;
+    private final AtomicInteger queued = new AtomicInteger(0);
+
+    private final AtomicLong admitted = new AtomicLong(0);
+    private final AtomicLong rejectedQueueFull = new AtomicLong(0);
+    private final AtomicLong rejectedStale = new AtomicLong(0);
+    private final AtomicInteger queuedHighWater = new AtomicInteger(0);
+    private final AtomicLong ageHighWaterMs = new AtomicLong(0);
+
+    /**
+     * @param maxQueued wartende Anfragen, ab denen Reservierungen sofort abgelehnt werden (0 = unbegrenzt)
+     * @param maxAgeMs  Wartezeit, ab der eine Reservierung nicht mehr bearbeitet wird (0 = unbegrenzt)
+     */
+    public AdmissionControl(int maxQueued, long maxAgeMs) {
+        this.maxQueued = maxQueued;
+        this.maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Vom Proxy vor dem Einreihen aufgerufen
+     *
+     * @return null wenn die Anfrage eingereiht werden soll, sonst die sofortige BUSY-Antwort
+     */
+    public byte[] admit(byte[] body) {
+        int depth = queued.get();
+        if (maxQueued > 0 && depth >= maxQueued) {
+            byte[] busy = busyReply(body);
+            if (busy != null) {
+                rejectedQueueFull.incrementAndGet();
+                return busy;
+            }
+        }
+        depth = queued.incrementAndGet();
+        admitted.incrementAndGet();
+        queuedHighWater.accumulateAndGet(depth, Math::max);
+        return null;
+    }
+
+    /**
+     * Vom Worker beim Abholen aufgerufen
+     *
+     * @return true wenn Reservierungen in dieser Anfrage nicht mehr bearbeitet werden sollen
+     */
+    public boolean dequeue(long arrivalMillis) {
+        queued.decrementAndGet();
+        long age = System.currentTimeMillis() - arrivalMillis;
+        ageHighWaterMs.accumulateAndGet(age, Math::max);
+        return maxAgeMs > 0 && age > maxAgeMs;
+    }
+
+    /**
+     * Zählt eine wegen ihres Alters abgelehnte Reservierung
+     */
+    public void recordStale() {
+        rejectedStale.incrementAndGet();
+    }
+
+    /**
+     * BUSY im Format der Anfrage, oder null wenn die Anfrage keine (einzelne) Reservierung ist
+     */
+    public static byte[] busyReply(byte[] body) {
+        if (WireCodec.isBinary(body)) {
+            return WireCodec.isReserve(body) ? BUSY_BINARY : null;
+        }
+        return isReserveText(body) ? BUSY_TEXT : null;
+    }
+
+    private static boolean isReserveText(byte[] body) {
+        return startsWith(body, "RESERVE:") || startsWith(body, "ORDER:");
+    }
+
+    private static boolean startsWith(byte[] body, String prefix) {
+        if (body.length < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (body[i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public int getQueued() { return queued.get(); }
+    public long getAdmitted() { return admitted.get(); }
+    public long getRejectedQueueFull() { return rejectedQueueFull.get(); }
+    public long getRejectedStale() { return rejectedStale.get(); }
+
+    @Override
+    public String toString() {
+        return String.format("Admission{queued=%d (max %d, high-water %d), ageHighWater=%dms (max %dms), " +
+                             "admitted=%d, busyQueueFull=%d, busyStale=%d}",
+                           queued.get(), maxQueued, queuedHighWater.get(), ageHighWaterMs.get(), maxAgeMs,
+                           admitted.get(), rejectedQueueFull.get(), rejectedStale.get());
+    }
+}
@@ -0,0 +1,111 @@
+package seller;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+
+import org.zeromq.ZMQ;
+import messaging.FeedMessage;
+import messaging.MessageUtils;
+
+/**
+ * Publishes a seller's availability changes on a PUB socket.
+ *
+ * Request handlers only mark a product as changed. The feed thread owns
+ * the socket. For each changed product it takes the mark first, then reads
+ * the current availability and publishes it under the next sequence
+ * number. A change that lands after the read marks the product again, so
+ * the last published value is never stale for long. Several changes between
+ * two sends collapse into one message. When nothing changes, a heartbeat
+ * goes out every heartbeatMs.
+ *
+ * snapshot() answers late joiners with every product's availability and
+ * the sequence number it covers (see messaging.FeedMessage).
+ */
+public class InventoryFeed implements AutoCloseable {
+    private final String endpoint;
+    private final ProductInventory inventory;
+    private final long heartbeatMs;
+    private final long epoch = System.currentTimeMillis();
+    private final Set<String> changed = ConcurrentHashMap.newKeySet();
+    private final Thread publisher;
+    private volatile long sequence = 0;
+    private volatile long published = 0;
+    private volatile boolean running = true;
+
+    public InventoryFeed(String endpoint, ProductInventory inventory, long heartbeatMs) {
+        this.endpoint = endpoint;
+        this.inventory = inventory;
+        this.heartbeatMs = Math.max(10, heartbeatMs);
+        this.publisher = new Thread(this::publishLoop, "inventory-feed");
+        this.publisher.setDaemon(true);
+        this.publisher.start();
+    }
+
+    /**
+     * Vom Request-Handler nach jeder Bestandsänderung aufgerufen; blockiert nie
+     */
+    public void changed(String product) {
+        if (changed.add(product)) {
+            LockSupport.unpark(publisher);
+        }
+    }
+
+    /**
+     * Antwort auf INVENTORY_SNAPSHOT; Sequenznummer vor den Beständen lesen, damit
+     * der Snapshot mindestens so neu ist wie alles bis einschließlich dieser Nummer
+     */
+    public String snapshot() {
+        long covered = sequence;
+        Map<String, Integer> available = new TreeMap<>();
+        for (String product : inventory.products()) {
+            available.put(product, Math.max(0, inventory.available(product)));
+        }
+        return FeedMessage.encodeSnapshot(epoch, covered, available);
+    }
+
+    private void publishLoop() {
+        ZMQ.Socket socket = MessageUtils.createSocket("PUB", true, endpoint);
+        try {
+            long lastSend = System.currentTimeMillis();
+            while (running) {
+                boolean sent = false;
+                for (String product : changed) {
+                    changed.remove(product);
+                    long seq = sequence + 1;
+                    sequence = seq;
+                    socket.send(FeedMessage.encodeStock(epoch, seq, product, Math.max(0, inventory.available(product))),
+                                ZMQ.DONTWAIT);
+                    published = seq;
+                    sent = true;
+                }
+                long now = System.currentTimeMillis();
+                if (sent) {
+                    lastSend = now;
+                    continue;
+                }
+                if (now - lastSend >= heartbeatMs) {
+                    socket.send(FeedMessage.encodeHeartbeat(epoch, sequence), ZMQ.DONTWAIT);
+                    lastSend = now;
+                }
+                LockSupport.parkNanos(Math.max(1, heartbeatMs - (now - lastSend)) * 1_000_000);
+            }
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(publisher);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("InventoryFeed{endpoint=%s, epoch=%d, published=%d, pending=%d}",
+                           endpoint, epoch, published, changed.size());
+    }
+}
@@ -0,0 +1,530 @@
+package seller;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of seller inventory mutations with compacted snapshots.
+ *
+ * Callers only enqueue small mutation objects. A single writer thread
+ * encodes them as [length, crc32, type, orderId, product, numbers] frames
+ * into a direct buffer, writes each batch with one FileChannel write, and
+ * forces it once per batch when somebody waits for durability (group commit).
+ *
+ * The writer also applies every mutation to its own shadow copy of the
+ * inventory. Every snapshotEvery records it closes the current segment and
+ * writes that copy as a snapshot covering everything up to the segment
+ * boundary. It then deletes everything older than the previous snapshot.
+ * Recovery loads the newest snapshot and replays only the segments written
+ * after it, so restart time depends on the live state plus a short tail,
+ * not on the full history. If the newest snapshot is damaged, the previous
+ * one and the segments after it are still on disk.
+ */
+public class InventoryJournal implements AutoCloseable {
+    private static final int MAGIC = 0x494A524E;          // "IJRN"
+    private static final int SNAPSHOT_MAGIC = 0x49534E50; // "ISNP"
+    private static final byte VERSION = 1;
+    private static final int HEADER_BYTES = 5;
+    private static final int MAX_BATCH = 4096;
+
+    static final byte STOCK = 1;    // product, total
+    static final byte RESERVE = 2;  // orderId, product, quantity, expiresAt
+    static final byte COMMIT = 3;   // orderId, product, committed, held
+    static final byte RELEASE = 4;  // orderId, product, held
+
+    private static final Mutation SYNC = new Mutation((byte) 0, null, null, 0, 0, 0);
+    private static final Mutation SHUTDOWN = new Mutation((byte) 0, null, null, 0, 0, 0);
+
+    private final Path directory;
+    private final boolean fsync;
+    private final long snapshotEvery;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Nur vom Writer-Thread benutzt
+    private FileChannel segment;
+    private long segmentSeq;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(256 * 1024);
+    private final CRC32 crc = new CRC32();
+    private final State shadow;
+    private long sinceSnapshot = 0;
+    private boolean dirty = false;
+
+    private final State recovered;
+    private final String recoverySummary;
+
+    private final AtomicLong records = new AtomicLong(0);
+    private final AtomicLong syncs = new AtomicLong(0);
+    private final AtomicLong bytesWritten = new AtomicLong(0);
+    private final AtomicLong snapshots = new AtomicLong(0);
+
+    /**
+     * Öffnet das Journal, stellt den letzten Stand wieder her und beginnt ein neues Segment
+     *
+     * @param snapshotEvery Einträge zwischen zwei Snapshots, 0 = nie (volle Historie)
+     */
+    public InventoryJournal(String directory, boolean fsync, long snapshotEvery) throws IOException {
+        this.directory = Paths.get(directory);
+        this.fsync = fsync;
+        this.snapshotEvery = snapshotEvery;
+        Files.createDirectories(this.directory);
+
+        long start = System.nanoTime();
+        TreeMap<Long, Path> snapshotFiles = list("snapshot-", ".snap");
+        State state = null;
+        long covered = 0;
+        for (Map.Entry<Long, Path> entry : snapshotFiles.descendingMap().entrySet()) {
+            state = readSnapshot(entry.getValue());
+            if (state != null) {
+                covered = entry.getKey();
+                break;
+            }
+            System.out.println("⚠️ Inventory snapshot " + entry.getValue() + " is corrupt, trying an older one");
+        }
+        boolean fromSnapshot = state != null;
+        if (state == null) {
+            state = new State();
+        }
+
+        TreeMap<Long, Path> segments = list("journal-", ".log");
+        long tail = 0;
+        for (Map.Entry<Long, Path> entry : segments.tailMap(covered, false).entrySet()) {
+            tail += replaySegment(entry.getValue(), state);
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        this.recovered = fromSnapshot || tail > 0 ? state : null;
+        this.recoverySummary = String.format("%s + %d journal record(s) -> %d product(s), %d lease(s) in %dms",
+                fromSnapshot ? "snapshot " + covered : "no snapshot", tail, state.totals.size(),
+                state.leases.size(), elapsedMs);
+        this.shadow = state.copy();
+
+        long last = Math.max(covered, segments.isEmpty() ? 0 : segments.lastKey());
+        openSegment(last + 1);
+
+        this.writer = new Thread(this::writeLoop, "inventory-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Stand aus dem vorherigen Lauf, oder null wenn das Journal leer war
+     */
+    public State getRecoveredState() {
+        return recovered;
+    }
+
+    public String getRecoverySummary() {
+        return recoverySummary;
+    }
+
+    public void logStock(String product, int total) {
+        append(new Mutation(STOCK, "", product, total, 0, 0));
+    }
+
+    public void logReserve(String orderId, String product, int quantity, long expiresAt) {
+        append(new Mutation(RESERVE, orderId, product, quantity, 0, expiresAt));
+    }
+
+    public void logCommit(String orderId, String product, int committed, int held) {
+        append(new Mutation(COMMIT, orderId, product, committed, held, 0));
+    }
+
+    public void logRelease(String orderId, String product, int held) {
+        append(new Mutation(RELEASE, orderId, product, 0, held, 0));
+    }
+
+    /**
+     * Wird fertig, sobald alles bisher Angehängte auf der Platte ist
+     */
+    public CompletableFuture<Void> sync() {
+        CompletableFuture<Void> durable = new CompletableFuture<>();
+        if (!running) {
+            durable.completeExceptionally(new IllegalStateException("Inventory journal is closed"));
+            return durable;
+        }
+        queue.add(new Pending(SYNC, durable));
+        return durable;
+    }
+
+    private void append(Mutation mutation) {
+        if (running) {
+            queue.add(new Pending(mutation, null));
+        }
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch(batch);
+                // Kein interrupt() zum Beenden: ein unterbrochenes force() schließt den FileChannel
+                stopping = batch.stream().anyMatch(pending -> pending.mutation == SHUTDOWN);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                System.out.println("❌ Inventory journal write failed: " + e.getMessage());
+                for (Pending pending : batch) {
+                    if (pending.durable != null) {
+                        pending.durable.completeExceptionally(e);
+                    }
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void writeBatch(List<Pending> batch) throws IOException {
+        buffer.clear();
+        boolean needsSync = false;
+        int written = 0;
+        for (Pending pending : batch) {
+            Mutation mutation = pending.mutation;
+            needsSync |= pending.durable != null;
+            if (mutation.type == 0) {
+                continue;
+            }
+            encode(mutation);
+            shadow.apply(mutation.type, mutation.orderId, mutation.product, mutation.quantity,
+                         mutation.held, mutation.expiresAt);
+            written++;
+        }
+        flushBuffer();
+        records.addAndGet(written);
+        sinceSnapshot += written;
+        dirty |= written > 0;
+
+        // Ein force() für alle wartenden Aufrufer dieses Durchlaufs
+        if (fsync && needsSync && dirty) {
+            segment.force(false);
+            syncs.incrementAndGet();
+            dirty = false;
+        }
+        for (Pending pending : batch) {
+            if (pending.durable != null) {
+                pending.durable.complete(null);
+            }
+        }
+
+        if (snapshotEvery > 0 && sinceSnapshot >= snapshotEvery) {
+            snapshot();
+        }
+    }
+
+    private void encode(Mutation mutation) throws IOException {
+        byte[] orderId = mutation.orderId.getBytes(StandardCharsets.UTF_8);
+        byte[] product = mutation.product.getBytes(StandardCharsets.UTF_8);
+        int length = 1 + 2 + orderId.length + 2 + product.length + 4 + 4 + 8;
+        if (buffer.remaining() < 8 + length) {
+            flushBuffer();
+            if (buffer.capacity() < 8 + length) {
+                buffer = ByteBuffer.allocateDirect(8 + length);
+            }
+        }
+        int start = buffer.position();
+        buffer.position(start + 8);
+        buffer.put(mutation.type)
+              .putShort((short) orderId.length).put(orderId)
+              .putShort((short) product.length).put(product)
+              .putInt(mutation.quantity).putInt(mutation.held).putLong(mutation.expiresAt);
+        crc.reset();
+        crc.update(buffer.slice(start + 8, length));
+        buffer.putInt(start, length).putInt(start + 4, (int) crc.getValue());
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            bytesWritten.addAndGet(segment.write(buffer));
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Schattenstand als Snapshot bis zur aktuellen Segmentgrenze; eine Generation davor
+     * bleibt als Rückfall erhalten, alles Ältere ist überflüssig
+     */
+    private void snapshot() throws IOException {
+        long covered = segmentSeq;
+        segment.force(false);
+        segment.close();
+        openSegment(covered + 1);
+
+        Path target = directory.resolve(String.format("snapshot-%020d.snap", covered));
+        Path temp = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer data = ByteBuffer.wrap(encodeSnapshot(shadow));
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        snapshots.incrementAndGet();
+        sinceSnapshot = 0;
+
+        // Ohne vorigen Snapshot bleiben alle Segmente: ein beschädigter erster Snapshot hätte sonst keinen Rückfall
+        NavigableMap<Long, Path> older = list("snapshot-", ".snap").headMap(covered, false);
+        long keep = older.isEmpty() ? 0 : older.lastKey();
+        for (Path path : list("journal-", ".log").headMap(keep, true).values()) {
+            Files.deleteIfExists(path);
+        }
+        for (Path path : older.headMap(keep, false).values()) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static byte[] encodeSnapshot(State state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + state.leases.size() * 48);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(state.totals.size());
+        for (Map.Entry<String, Integer> entry : state.totals.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeInt(entry.getValue());
+        }
+        out.writeInt(state.leases.size());
+        for (Reservation lease : state.leases.values()) {
+            out.writeUTF(lease.orderId);
+            out.writeUTF(lease.productId);
+            out.writeInt(lease.quantity);
+            out.writeLong(lease.expiresAt);
+        }
+        out.flush();
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes.toByteArray());
+        out.writeInt((int) checksum.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return der Stand, oder null bei falscher Prüfsumme oder unbekanntem Format
+     */
+    private static State readSnapshot(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        if (bytes.length < HEADER_BYTES + 12) {
+            return null;
+        }
+        CRC32 checksum = new CRC32();
+        checksum.update(bytes, 0, bytes.length - 4);
+        ByteBuffer data = ByteBuffer.wrap(bytes);
+        if ((int) checksum.getValue() != data.getInt(bytes.length - 4)
+                || data.getInt() != SNAPSHOT_MAGIC || data.get() != VERSION) {
+            return null;
+        }
+        State state = new State();
+        int products = data.getInt();
+        for (int i = 0; i < products; i++) {
+            state.totals.put(getUtf(data), data.getInt());
+        }
+        int leases = data.getInt();
+        for (int i = 0; i < leases; i++) {
+            String orderId = getUtf(data);
+            state.leases.put(orderId, new Reservation(orderId, getUtf(data), data.getInt(), data.getLong()));
+        }
+        return state;
+    }
+
+    /**
+     * @return Anzahl angewendeter Einträge
+     */
+    private static long replaySegment(Path path, State state) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.remaining() < HEADER_BYTES || data.getInt() != MAGIC || data.get() != VERSION) {
+            System.out.println("⚠️ Inventory journal segment " + path + " has no valid header, skipping");
+            return 0;
+        }
+
+        CRC32 checksum = new CRC32();
+        long applied = 0;
+        while (data.remaining() >= 8) {
+            int length = data.getInt();
+            int expected = data.getInt();
+            if (length <= 0 || length > data.remaining()) {
+                // Abgeschnittener Eintrag am Segmentende (Absturz während des Schreibens)
+                System.out.println("⚠️ Inventory journal segment " + path + " ends with a torn record");
+                break;
+            }
+            checksum.reset();
+            checksum.update(data.array(), data.position(), length);
+            if ((int) checksum.getValue() != expected) {
+                System.out.println("⚠️ Inventory journal segment " + path + " has a corrupt record, ignoring the rest");
+                break;
+            }
+            byte type = data.get();
+            String orderId = getString(data);
+            String product = getString(data);
+            state.apply(type, orderId, product, data.getInt(), data.getInt(), data.getLong());
+            applied++;
+        }
+        return applied;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+
+    private static String getUtf(ByteBuffer buffer) {
+        // DataOutputStream.writeUTF: u16-Länge + (modifiziertes) UTF-8, für normale Namen identisch
+        return getString(buffer);
+    }
+
+    private void openSegment(long seq) throws IOException {
+        segmentSeq = seq;
+        segment = FileChannel.open(directory.resolve(String.format("journal-%020d.log", seq)),
+                                   StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).put(VERSION);
+        header.flip();
+        segment.write(header);
+    }
+
+    private TreeMap<Long, Path> list(String prefix, String suffix) throws IOException {
+        TreeMap<Long, Path> files = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, prefix + "*" + suffix)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    files.put(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())), path);
+                } catch (NumberFormatException ignored) {
+                    // fremde Datei
+                }
+            }
+        }
+        return files;
+    }
+
+    public long getRecords() { return records.get(); }
+    public long getSnapshots() { return snapshots.get(); }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        queue.add(new Pending(SHUTDOWN, null));
+        try {
+            writer.join(5000);
+            if (fsync) {
+                segment.force(false);
+            }
+            segment.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.out.println("⚠️ Inventory journal close failed: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        long count = syncs.get();
+        return String.format("InventoryJournal{records=%d, syncs=%d, records/sync=%.1f, bytes=%d, segment=%d, snapshots=%d}",
+                           records.get(), count, count > 0 ? (double) records.get() / count : 0,
+                           bytesWritten.get(), segmentSeq, snapshots.get());
+    }
+
+    /**
+     * Bestand pro Produkt und offene Leases; Reserviert ergibt sich aus den Leases
+     */
+    public static class State {
+        public final Map<String, Integer> totals = new LinkedHashMap<>();
+        public final Map<String, Reservation> leases = new LinkedHashMap<>();
+
+        void apply(byte type, String orderId, String product, int quantity, int held, long expiresAt) {
+            switch (type) {
+                case STOCK:
+                    totals.put(product, quantity);
+                    break;
+                case RESERVE:
+                    leases.put(orderId, new Reservation(orderId, product, quantity, expiresAt));
+                    break;
+                case COMMIT:
+                    leases.remove(orderId);
+                    totals.computeIfPresent(product, (p, total) -> Math.max(0, total - quantity));
+                    break;
+                case RELEASE:
+                    leases.remove(orderId);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        public ProductInventory toInventory() {
+            ProductInventory inventory = new ProductInventory(totals);
+            for (Reservation lease : leases.values()) {
+                inventory.restoreReservation(lease.productId, lease.quantity);
+            }
+            return inventory;
+        }
+
+        State copy() {
+            State copy = new State();
+            copy.totals.putAll(totals);
+            copy.leases.putAll(leases);
+            return copy;
+        }
+    }
+
+    private static class Mutation {
+        final byte type;
+        final String orderId;
+        final String product;
+        final int quantity;
+        final int held;
+        final long expiresAt;
+
+        Mutation(byte type, String orderId, String product, int quantity, int held, long expiresAt) {
+            this.type = type;
+            this.orderId = orderId;
+            this.product = product;
+            this.quantity = quantity;
+            this.held = held;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class Pending {
+        final Mutation mutation;
+        final CompletableFuture<Void> durable;
+
+        Pending(Mutation mutation, CompletableFuture<Void> durable) {
+            this.mutation = mutation;
+            this.durable = durable;
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package seller;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.zeromq.ZFrame;
+import org.zeromq.ZMsg;
+import messaging.BatchMessage;
+import messaging.WireCodec;
+import messaging.WireMessage;
+
+/**
+ * Routes seller requests to inventory partitions by product.
+ *
+ * With partitions &gt; 1 the seller runs a pool of workerThreads workers per
+ * partition, each pool behind its own inproc socket. The proxy sends every
+ * RESERVE, COMMIT and CANCEL to the partition that owns the product (a hash
+ * of the product name). A hot product therefore fills only its own
+ * partition's queue. Admission control rejects there, while the other
+ * partitions keep reserving. A worker blocked in the simulated latency or a
+ * journal sync holds up only its own request, not the whole partition.
+ * With workerThreads = 1, all operations on a product run on one thread in
+ * arrival order. Requests without a product (HEALTH_CHECK,
+ * INVENTORY_SNAPSHOT, unreadable frames) go round-robin.
+ *
+ * A batch whose operations belong to different partitions is split. Each
+ * partition gets its share as a smaller batch of the same format. The
+ * proxy puts the replies back in the original order before it answers the
+ * client. If one part never answers (simulated crash or lost ACK), the
+ * whole reply is dropped, as it would be with a single worker, and the
+ * marketplace retries.
+ *
+ * Only the proxy thread uses this class. Binary frames are routed by their
+ * product field alone, without checking the checksum. The worker decodes
+ * and verifies the whole frame anyway.
+ */
+public class PartitionRouter {
+    private static final long GATHER_TIMEOUT_MS = 30_000;
+    private static final int HEADER_BYTES = Long.BYTES + Integer.BYTES;
+
+    private final int partitions;
+    private final Map<Long, Gather> gathers = new HashMap<>();
+    private final long[] routed;
+    private long nextGather = 0;
+    private int nextRoundRobin = 0;
+    private long splitBatches = 0;
+    private long gathersExpired = 0;
+
+    public PartitionRouter(int partitions) {
+        this.partitions = partitions;
+        this.routed = new long[partitions];
+    }
+
+    public int getPartitions() { return partitions; }
+
+    /**
+     * Feste Zuordnung Produkt -> Partition
+     */
+    public int partitionOf(String product) {
+        int h = product.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), partitions);
+    }
+
+    /**
+     * Zerlegt eine Anfrage nach Partitionen; ein einzelner Part trägt die unveränderte Anfrage
+     */
+    public List<Part> route(byte[] body) {
+        if (WireCodec.isBatch(body)) {
+            List<byte[]> operations;
+            try {
+                operations = WireCodec.decodeBatch(body);
+            } catch (IllegalArgumentException corrupt) {
+                return whole(body, roundRobin());
+            }
+            String[] products = new String[operations.size()];
+            for (int i = 0; i < products.length; i++) {
+                products[i] = productOf(operations.get(i));
+            }
+            return split(body, products, indices -> WireCodec.encodeBatch(select(operations, indices)));
+        }
+        if (WireCodec.isBinary(body)) {
+            String product = productOf(body);
+            return whole(body, product != null ? partitionOf(product) : roundRobin());
+        }
+
+        String text = new String(body, StandardCharsets.UTF_8).trim();
+        if (BatchMessage.isBatch(text)) {
+            List<String> operations;
+            try {
+                operations = BatchMessage.decode(text);
+            } catch (IllegalArgumentException malformed) {
+                return whole(body, roundRobin());
+            }
+            String[] products = new String[operations.size()];
+            for (int i = 0; i < products.length; i++) {
+                products[i] = productOf(operations.get(i));
+            }
+            return split(body, products, indices -> BatchMessage.encode(select(operations, indices))
+                    .getBytes(StandardCharsets.UTF_8));
+        }
+        String product = productOf(text);
+        return whole(body, product != null ? partitionOf(product) : roundRobin());
+    }
+
+    private List<Part> whole(byte[] body, int partition) {
+        routed[partition]++;
+        return List.of(new Part(partition, body, null));
+    }
+
+    /**
+     * Operationen ohne Produkt laufen in der Partition der vorherigen Operation mit
+     */
+    private List<Part> split(byte[] body, String[] products, Encoder encoder) {
+        int[] owner = new int[products.length];
+        int first = -1;
+        int current = -1;
+        boolean mixed = false;
+        for (int i = 0; i < products.length; i++) {
+            if (products[i] != null) {
+                int partition = partitionOf(products[i]);
+                mixed |= current >= 0 && partition != current;
+                current = partition;
+                if (first < 0) {
+                    first = partition;
+                }
+            }
+            owner[i] = current;
+        }
+        if (first < 0) {
+            return whole(body, roundRobin());
+        }
+        // Operationen ohne Produkt am Anfang gehören zur ersten Partition
+        for (int i = 0; i < owner.length && owner[i] < 0; i++) {
+            owner[i] = first;
+        }
+        if (!mixed) {
+            return whole(body, first);
+        }
+
+        splitBatches++;
+        List<Part> parts = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            int count = 0;
+            for (int p : owner) {
+                if (p == partition) {
+                    count++;
+                }
+            }
+            if (count == 0) {
+                continue;
+            }
+            int[] indices = new int[count];
+            for (int i = 0, n = 0; i < owner.length; i++) {
+                if (owner[i] == partition) {
+                    indices[n++] = i;
+                }
+            }
+            routed[partition]++;
+            parts.add(new Part(partition, encoder.encode(indices), indices));
+        }
+        return parts;
+    }
+
+    /**
+     * Merkt sich den Client-Envelope [identity, empty, (correlationId)] bis alle Teile geantwortet haben
+     *
+     * @return Header-Frame pro Teil, in der Reihenfolge von parts
+     */
+    public List<byte[]> open(ZMsg envelope, byte[] body, List<Part> parts) {
+        int operations = 0;
+        for (Part part : parts) {
+            operations += part.indices.length;
+        }
+        long id = nextGather++;
+        gathers.put(id, new Gather(envelope, WireCodec.isBinary(body), operations, parts,
+                                   System.currentTimeMillis()));
+        List<byte[]> headers = new ArrayList<>(parts.size());
+        for (int i = 0; i < parts.size(); i++) {
+            headers.add(ByteBuffer.allocate(HEADER_BYTES).putLong(id).putInt(i).array());
+        }
+        return headers;
+    }
+
+    /**
+     * Antwort eines Teils einsortieren
+     *
+     * @return die vollständige Antwort an den Client, sobald der letzte Teil da ist, sonst null
+     */
+    public ZMsg complete(byte[] header, byte[] reply) {
+        ByteBuffer buffer = ByteBuffer.wrap(header);
+        long id = buffer.getLong();
+        int partIndex = buffer.getInt();
+        Gather gather = gathers.get(id);
+        if (gather == null || gather.received[partIndex]) {
+            // Schon abgelaufen oder doppelt
+            return null;
+        }
+        gather.received[partIndex] = true;
+        int[] indices = gather.parts.get(partIndex).indices;
+
+        if (gather.binary) {
+            List<byte[]> items = WireCodec.isBatch(reply) ? decodeBatchOrNull(reply) : null;
+            for (int i = 0; i < indices.length; i++) {
+                // Keine Batch-Antwort (z.B. CORRUPTED): gilt für jede Operation des Teils
+                gather.replies[indices[i]] = items != null && items.size() == indices.length ? items.get(i) : reply;
+            }
+        } else {
+            String text = new String(reply, StandardCharsets.UTF_8);
+            List<String> items = BatchMessage.isBatch(text) ? decodeBatchOrNull(text) : null;
+            for (int i = 0; i < indices.length; i++) {
+                gather.replies[indices[i]] = items != null && items.size() == indices.length ? items.get(i) : text;
+            }
+        }
+        if (--gather.remaining > 0) {
+            return null;
+        }
+
+        gathers.remove(id);
+        ZMsg response = gather.envelope;
+        if (gather.binary) {
+            List<byte[]> items = new ArrayList<>(gather.replies.length);
+            for (Object item : gather.replies) {
+                items.add((byte[]) item);
+            }
+            response.add(WireCodec.encodeBatch(items));
+        } else {
+            List<String> items = new ArrayList<>(gather.replies.length);
+            for (Object item : gather.replies) {
+                items.add((String) item);
+            }
+            response.add(BatchMessage.encode(items).getBytes(StandardCharsets.UTF_8));
+        }
+        return response;
+    }
+
+    /**
+     * Verwirft aufgeteilte Anfragen, von denen ein Teil nie geantwortet hat
+     */
+    public void expire(long now) {
+        Iterator<Gather> it = gathers.values().iterator();
+        while (it.hasNext()) {
+            Gather gather = it.next();
+            if (now - gather.startedAt > GATHER_TIMEOUT_MS) {
+                gather.envelope.destroy();
+                it.remove();
+                gathersExpired++;
+            }
+        }
+    }
+
+    /**
+     * ROUTER-Identities sind nie leer; Teile laufen mit leerer Identity und dem Header als Correlation-ID
+     */
+    public static boolean isPart(ZFrame identity) {
+        return identity.size() == 0;
+    }
+
+    private int roundRobin() {
+        int partition = nextRoundRobin;
+        nextRoundRobin = (nextRoundRobin + 1) % partitions;
+        return partition;
+    }
+
+    private static String productOf(byte[] operation) {
+        return WireCodec.peekProduct(operation);
+    }
+
+    private static String productOf(String operation) {
+        if (operation.startsWith("ORDER:")) {
+            return operation.length() > 6 ? operation.substring(6) : null;
+        }
+        WireMessage message = WireCodec.parseText(operation);
+        return message.op == WireMessage.Op.ERROR ? null : message.product;
+    }
+
+    private static <T> List<T> select(List<T> operations, int[] indices) {
+        List<T> selected = new ArrayList<>(indices.length);
+        for (int index : indices) {
+            selected.add(operations.get(index));
+        }
+        return selected;
+    }
+
+    private static List<byte[]> decodeBatchOrNull(byte[] reply) {
+        try {
+            return WireCodec.decodeBatch(reply);
+        } catch (IllegalArgumentException corrupt) {
+            return null;
+        }
+    }
+
+    private static List<String> decodeBatchOrNull(String reply) {
+        try {
+            return BatchMessage.decode(reply);
+        } catch (IllegalArgumentException malformed) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Partitions{count=%d, routed=%s, splitBatches=%d, pendingGathers=%d, expired=%d}",
+                           partitions, Arrays.toString(routed), splitBatches, gathers.size(), gathersExpired);
+    }
+
+    /**
+     * Ein Teil einer Anfrage: Partition, zu sendender Inhalt und Positionen im Original-Batch
+     * (null, wenn die Anfrage nicht aufgeteilt wurde)
+     */
+    public static final class Part {
+        public final int partition;
+        public final byte[] body;
+        final int[] indices;
+
+        Part(int partition, byte[] body, int[] indices) {
+            this.partition = partition;
+            this.body = body;
+            this.indices = indices;
+        }
+
+        public boolean isSplit() {
+            return indices != null;
+        }
+    }
+
+    private interface Encoder {
+        byte[] encode(int[] indices);
+    }
+
+    private static final class Gather {
+        final ZMsg envelope;
+        final boolean binary;
+        final List<Part> parts;
+        final Object[] replies;
+        final boolean[] received;
+        final long startedAt;
+        int remaining;
+
+        Gather(ZMsg envelope, boolean binary, int operations, List<Part> parts, long startedAt) {
+            this.envelope = envelope;
+            this.binary = binary;
+            this.parts = parts;
+            this.replies = new Object[operations];
+            this.received = new boolean[parts.size()];
+            this.startedAt = startedAt;
+            this.remaining = parts.size();
+        }
+    }
+}
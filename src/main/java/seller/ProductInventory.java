@@ -1,29 +1,136 @@
 package seller;
 
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Lock-free stock per product.
+ *
+ * A product's total and reserved counts live together in one AtomicLong
+ * (total in the high 32 bits, reserved in the low 32 bits) and change in a
+ * single compare-and-set, so a reservation never sees the total from before
+ * and the reserved count from after a concurrent commit. Different products
+ * never contend, and there is no global lock.
+ */
 public class ProductInventory {
-    private final Map<String, Integer> stock;
+    private static final long LOW_MASK = 0xFFFFFFFFL;
+
+    private final Map<String, AtomicLong> stock = new ConcurrentHashMap<>();
 
     public ProductInventory(Map<String, Integer> initial) {
-        this.stock = initial;
+        initial.forEach((product, quantity) -> stock.put(product, new AtomicLong(pack(Math.max(0, quantity), 0))));
+    }
+
+    /**
+     * Reserviert qty Stück, mit allowPartial notfalls den verfügbaren Rest
+     *
+     * @return reservierte Menge, 0 = abgelehnt
+     */
+    public int reserve(String product, int qty, boolean allowPartial) {
+        AtomicLong cell = stock.get(product);
+        if (cell == null || qty <= 0) {
+            return 0;
+        }
+        while (true) {
+            long current = cell.get();
+            int total = total(current);
+            int reserved = reserved(current);
+            int available = total - reserved;
+            int granted = available >= qty ? qty : (allowPartial ? Math.max(0, available) : 0);
+            if (granted == 0) {
+                return 0;
+            }
+            if (cell.compareAndSet(current, pack(total, reserved + granted))) {
+                return granted;
+            }
+        }
+    }
+
+    /**
+     * Bucht committed Stück ab und gibt dabei die gesamte Reservierung held frei
+     */
+    public void commit(String product, int committed, int held) {
+        update(product, committed, held);
+    }
+
+    public void release(String product, int held) {
+        update(product, 0, held);
+    }
+
+    private void update(String product, int fromTotal, int fromReserved) {
+        AtomicLong cell = stock.get(product);
+        if (cell == null) {
+            return;
+        }
+        cell.getAndUpdate(current -> pack(Math.max(0, total(current) - fromTotal),
+                                          Math.max(0, reserved(current) - fromReserved)));
     }
 
-    public synchronized boolean reserve(String product, int qty) {
-        int available = stock.getOrDefault(product, 0);
-        if (available >= qty) {
-            stock.put(product, available - qty);
-            return true;
-        } else {
-            return false;
+    /**
+     * Nur für die Wiederherstellung: übernimmt eine Reservierung aus dem Journal ohne Verfügbarkeitsprüfung
+     */
+    void restoreReservation(String product, int held) {
+        AtomicLong cell = stock.get(product);
+        if (cell != null) {
+            cell.getAndUpdate(current -> pack(total(current), reserved(current) + held));
         }
     }
 
-    public synchronized void commit(String product, int qty) {
-        // nothing needed here since reserve already reduced
+    // Backward compatibility (seller.Seller): Alles-oder-nichts, COMMIT/ROLLBACK über die Anfragemenge
+    public boolean reserve(String product, int qty) {
+        return reserve(product, qty, false) > 0;
+    }
+
+    public void commit(String product, int qty) {
+        commit(product, qty, qty);
+    }
+
+    public void rollback(String product, int qty) {
+        release(product, qty);
+    }
+
+    public int available(String product) {
+        AtomicLong cell = stock.get(product);
+        if (cell == null) {
+            return 0;
+        }
+        long current = cell.get();
+        return total(current) - reserved(current);
+    }
+
+    public int total(String product) {
+        AtomicLong cell = stock.get(product);
+        return cell != null ? total(cell.get()) : 0;
+    }
+
+    public int reserved(String product) {
+        AtomicLong cell = stock.get(product);
+        return cell != null ? reserved(cell.get()) : 0;
+    }
+
+    public Set<String> products() {
+        return stock.keySet();
+    }
+
+    private static long pack(int total, int reserved) {
+        return ((long) total << 32) | (reserved & LOW_MASK);
+    }
+
+    private static int total(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static int reserved(long packed) {
+        return (int) (packed & LOW_MASK);
     }
 
-    public synchronized void rollback(String product, int qty) {
-        stock.put(product, stock.getOrDefault(product, 0) + qty);
+    @Override
+    public String toString() {
+        Map<String, Integer> totals = new TreeMap<>();
+        stock.forEach((product, cell) -> totals.put(product, total(cell.get())));
+        return totals.toString();
     }
 }
@@ -1,13 +1,23 @@
 package seller;
 
+/**
+ * Lease on reserved stock: valid until expiresAt, afterwards the seller
+ * releases the quantity on its own.
+ */
 public class Reservation {
     public final String orderId;
     public final String productId;
     public final int quantity;
+    public final long expiresAt;
 
-    public Reservation(String orderId, String productId, int quantity) {
+    public Reservation(String orderId, String productId, int quantity, long expiresAt) {
         this.orderId = orderId;
         this.productId = productId;
         this.quantity = quantity;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
     }
 }
@@ -0,0 +1,128 @@
+package seller;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import messaging.WireMessage;
+
+/**
+ * Bounded, expiring cache of recent (orderId, operation) -> response.
+ *
+ * A retried RESERVE/COMMIT/CANCEL whose first reply was lost gets the original
+ * answer again instead of touching the inventory a second time. Lookups and
+ * inserts go to a ConcurrentHashMap without a shared lock; every entry carries
+ * its own expiresAt. Because all entries live for the same ttlMs, insertion
+ * order is expiry order: a background sweep drops expired entries from the
+ * head of an insertion queue, and inserts beyond maxEntries evict oldest-first
+ * from the same queue.
+ */
+public class ResponseCache {
+    private final int maxEntries;
+    private final long ttlMs;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService sweeper;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    public ResponseCache(int maxEntries, long ttlMs) {
+        this.maxEntries = maxEntries;
+        this.ttlMs = ttlMs;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "response-cache-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+        long sweepMs = Math.max(1, Math.min(ttlMs, 1000));
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepMs, sweepMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return die ursprüngliche Antwort oder null, wenn die Operation neu ist
+     */
+    public WireMessage get(String orderId, String operation) {
+        Entry entry = entries.get(key(orderId, operation));
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt < System.currentTimeMillis()) {
+            // Nur diesen Eintrag entfernen, nicht einen inzwischen neu geschriebenen
+            if (entries.remove(entry.key, entry)) {
+                expired.increment();
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.response;
+    }
+
+    public void put(String orderId, String operation, WireMessage response) {
+        String key = key(orderId, operation);
+        Entry entry = new Entry(key, response, System.currentTimeMillis() + ttlMs);
+        entries.put(key, entry);
+        insertionOrder.add(entry);
+        // Über der Grenze: älteste Einträge zuerst; überschriebene stehen nur noch in der Queue
+        while (entries.size() > maxEntries) {
+            Entry oldest = insertionOrder.poll();
+            if (oldest == null) {
+                break;
+            }
+            if (entries.remove(oldest.key, oldest)) {
+                evicted.increment();
+            }
+        }
+    }
+
+    /**
+     * Einfügereihenfolge = Ablaufreihenfolge, daher reicht ein Blick auf den Kopf
+     */
+    private void sweep() {
+        long now = System.currentTimeMillis();
+        Entry oldest;
+        while ((oldest = insertionOrder.peek()) != null && oldest.expiresAt < now) {
+            insertionOrder.poll();
+            if (entries.remove(oldest.key, oldest)) {
+                expired.increment();
+            }
+        }
+    }
+
+    private static String key(String orderId, String operation) {
+        return operation + ":" + orderId;
+    }
+
+    public long getHits() { return hits.sum(); }
+    public int size() { return entries.size(); }
+
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ResponseCache{size=%d, hits=%d, misses=%d, expired=%d, evicted=%d}",
+                           entries.size(), hits.sum(), misses.sum(), expired.sum(), evicted.sum());
+    }
+
+    private static class Entry {
+        final String key;
+        final WireMessage response;
+        final long expiresAt;
+
+        Entry(String key, WireMessage response, long expiresAt) {
+            this.key = key;
+            this.response = response;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -14,6 +14,27 @@ public class SellerConfig {
     public double lostAckProbability;
     public int avgLatencyMs;
     public double successProbability; // New field for success rate
+    public int responseCacheSize = 10000;     // Antworten für Duplikaterkennung (orderId, Operation)
+    public long responseCacheTtlMs = 60000;   // länger als das Retry-Fenster des Marketplace
+    public int workerThreads = 4;             // parallele Anfragen hinter dem ROUTER (pro Partition), 0 = ein Worker pro CPU-Kern
+    public int partitions = 1;                // >1: Produkte per Hash auf Partitionen mit je workerThreads Workern verteilen, 0 = eine pro CPU-Kern
+    public long reservationTtlMs = 30000;     // Lease einer Reservierung ohne COMMIT/CANCEL
+    public long leaseTickMs = 100;            // Auflösung des Timing-Wheels für Lease-Abläufe
+    public int leaseWheelSlots = 512;         // Slots pro Umdrehung (Zweierpotenz)
+    public boolean journalEnabled = false;    // Inventar-Änderungen protokollieren und beim Start wiederherstellen
+    public String journalDirectory = "seller-journal"; // Unterordner pro Seller-Endpoint
+    public boolean journalFsync = true;       // Antwort erst nach force() des Journals
+    public long journalSnapshotEvery = 100000; // Einträge zwischen zwei Snapshots, 0 = nie
+    public boolean feedEnabled = false;       // Bestandsänderungen per PUB veröffentlichen
+    public int feedPortOffset = 1000;         // Feed-Port = Seller-Port + Offset
+    public long feedHeartbeatMs = 1000;       // Heartbeat mit letzter Sequenznummer, wenn sich nichts ändert
+    public int maxQueuedRequests = 32;        // wartende Anfragen, ab denen neue Reservierungen REJECTED:BUSY bekommen (0 = unbegrenzt)
+    public long maxRequestAgeMs = 1000;       // ältere Reservierungen werden nicht mehr bearbeitet (0 = unbegrenzt)
+    public int socketHighWaterMark = 1000;    // ZeroMQ-HWM von ROUTER und Worker-DEALER
+    public boolean metricsEnabled = false;    // Prometheus-Textformat unter http://<host>:<Port + Offset>/metrics
+    public int metricsPortOffset = 2000;      // Metrik-Port = Seller-Port + Offset
+    public String logLevel = "INFO";          // DEBUG | INFO | WARN | ERROR | OFF
+    public int logBufferSize = 65536;         // Ringpuffer des asynchronen EventLog
 
     public static SellerConfig load(String filePath) {
         try (InputStream in = Files.newInputStream(Paths.get(filePath))) {
@@ -26,7 +47,8 @@ public class SellerConfig {
 
     @Override
     public String toString() {
-        return String.format("SellerConfig{port=%d, crash=%.2f, lostAck=%.2f, latency=%dms, success=%.2f}", 
-                           port, crashProbability, lostAckProbability, avgLatencyMs, successProbability);
+        return String.format("SellerConfig{port=%d, crash=%.2f, lostAck=%.2f, latency=%dms, success=%.2f, workers=%d, partitions=%d}", 
+                           port, crashProbability, lostAckProbability, avgLatencyMs, successProbability, workerThreads,
+                           partitions);
     }
 }
\ No newline at end of file
@@ -1,272 +1,929 @@
 package seller;
 
-import java.util.HashMap;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToIntFunction;
 
+import org.zeromq.ZFrame;
 import org.zeromq.ZMQ;
+import org.zeromq.ZMsg;
+import messaging.BatchMessage;
+import messaging.FeedMessage;
 import messaging.MessageUtils;
+import messaging.WireCodec;
+import messaging.WireMessage;
+import monitoring.EventLog;
+import monitoring.Latencies;
+import monitoring.LatencyHistogram;
+import monitoring.MetricsRegistry;
+import monitoring.MetricsServer;
 
 public class SellerStub {
+    private static final AtomicInteger WORKER_POOLS = new AtomicInteger(0);
     private static volatile boolean running = true;
-    private static final Map<String, Integer> reservations = new HashMap<>();
+    private static final int EXPIRED_LEASES_KEPT = 100_000;
+    private static final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    // Abgelaufene Leases, damit ein spätes COMMIT eindeutig abgelehnt wird (begrenzt, älteste fallen raus)
+    private static final Map<String, Boolean> expiredLeases = Collections.synchronizedMap(
+            new LinkedHashMap<String, Boolean>(16, 0.75f, false) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > EXPIRED_LEASES_KEPT;
+                }
+            });
+    private static final AtomicLong leasesExpired = new AtomicLong(0);
+    private static final AtomicLong expiredCommitsRejected = new AtomicLong(0);
+    private static final long STATUS_INTERVAL_MS = 1000;
+    private static final AtomicLong lastStatusPrint = new AtomicLong(0);
+    private static TimingWheel<Reservation> leaseWheel;
+    // Gleichzeitige Duplikate auf anderen Workern warten auf die erste Ausführung
+    private static final Map<String, CompletableFuture<WireMessage>> inFlight = new ConcurrentHashMap<>();
+    // Bearbeitungszeit im Seller (inkl. Journal-Sync), ohne Warteschlange und simulierte Latenz
+    private static final Map<WireMessage.Op, LatencyHistogram> serviceTime = new EnumMap<>(Map.of(
+            WireMessage.Op.RESERVE, Latencies.histogram("service-reserve"),
+            WireMessage.Op.COMMIT, Latencies.histogram("service-commit"),
+            WireMessage.Op.CANCEL, Latencies.histogram("service-rollback")));
     
-    // NEU: Echtes Inventar-Management
-    private static final Map<String, Integer> inventory = new ConcurrentHashMap<>();
-    private static final Map<String, Integer> reservedStock = new ConcurrentHashMap<>();
+    // NEU: Echtes Inventar-Management (lock-frei pro Produkt)
+    private static ProductInventory inventory;
     
     private static SellerConfig config;
+    private static ResponseCache responseCache;
+    private static InventoryJournal journal;
+    private static InventoryFeed feed;
+    private static AdmissionControl[] admissions;
+    private static PartitionRouter router;
+    private static MetricsServer metricsServer;
 
     public static void start(String endpoint, SellerConfig sellerConfig) {
      config = sellerConfig != null ? sellerConfig : createDefaultConfig();
-    initializeInventory();
+    EventLog.configure(config.logLevel, config.logBufferSize);
+    leaseWheel = new TimingWheel<>(config.leaseTickMs, config.leaseWheelSlots, SellerStub::expireLease);
+    initializeInventory(endpoint);
+    responseCache = new ResponseCache(config.responseCacheSize, config.responseCacheTtlMs);
+    if (config.feedEnabled) {
+        // Bestandsänderungen per PUB, Marketplaces überspringen ausverkaufte Seller ohne Rundreise
+        String feedEndpoint = FeedMessage.feedEndpoint(endpoint, config.feedPortOffset);
+        feed = new InventoryFeed(feedEndpoint, inventory, config.feedHeartbeatMs);
+        System.out.println("Inventory feed publishing at " + feedEndpoint);
+    }
+    int cores = Runtime.getRuntime().availableProcessors();
+    int partitions = config.partitions > 0 ? config.partitions : cores;
+    // Jede Partition hat ihren eigenen Pool: Latenz und Journal-Sync blockieren nur einen ihrer Worker
+    int workers = config.workerThreads > 0 ? config.workerThreads : cores;
+    router = partitions > 1 ? new PartitionRouter(partitions) : null;
+    admissions = new AdmissionControl[partitions];
+    String backendPrefix = "inproc://seller-workers-" + WORKER_POOLS.incrementAndGet();
     
-    ZMQ.Socket socket = null;
+    ZMQ.Socket frontend = null;
+    ZMQ.Socket[] backends = new ZMQ.Socket[partitions];
     try {
-        socket = MessageUtils.createSocket("REP", true, endpoint);
-        System.out.println("Seller online at " + endpoint);
+        // ROUTER nach außen: bedient REQ-Clients und pipelinende DEALER-Clients (mit Correlation-ID),
+        // DEALER nach innen verteilt die Anfragen reihum auf die Worker (ein Pool pro Partition)
+        frontend = MessageUtils.createSocket("ROUTER", true, endpoint, config.socketHighWaterMark);
+        for (int p = 0; p < partitions; p++) {
+            String backendEndpoint = backendPrefix + "-" + p;
+            AdmissionControl admission = new AdmissionControl(config.maxQueuedRequests, config.maxRequestAgeMs);
+            admissions[p] = admission;
+            backends[p] = MessageUtils.createSocket("DEALER", true, backendEndpoint, config.socketHighWaterMark);
+            for (int i = 0; i < workers; i++) {
+                String name = partitions > 1 ? "seller-partition-" + p + "-worker-" + i : "seller-worker-" + i;
+                Thread worker = new Thread(() -> runWorker(backendEndpoint, admission), name);
+                worker.setDaemon(true);
+                worker.start();
+            }
+        }
+        if (router != null) {
+            System.out.println("Seller online at " + endpoint + " with " + partitions + " partition(s) of "
+                               + workers + " worker(s)");
+            for (String product : new TreeSet<>(inventory.products())) {
+                System.out.println("   " + product + " -> partition " + router.partitionOf(product));
+            }
+        } else {
+            System.out.println("Seller online at " + endpoint + " with " + workers + " worker(s)");
+        }
         System.out.println("Initial inventory: " + inventory);
         System.out.println("Config: " + config.toString());
+        if (config.metricsEnabled) {
+            startMetrics(endpoint);
+        }
         
-        Random rand = new Random();
+        if (router != null) {
+            proxyPartitioned(frontend, backends);
+        } else {
+            proxy(frontend, backends[0]);
+        }
+        
+    } catch (Exception startupError) {
+        System.out.println(" [STARTUP_ERROR] " + startupError.getMessage());
+        startupError.printStackTrace();
+        
+    } finally {
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
+        // Vor dem Journal: ein Ablauf nach dem Schließen käme nicht mehr ins Journal
+        leaseWheel.close();
+        responseCache.close();
+        if (feed != null) {
+            feed.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+        for (ZMQ.Socket backend : backends) {
+            if (backend != null) {
+                backend.close();
+            }
+        }
+        if (frontend != null) {
+            try {
+                frontend.close();
+                System.out.println("🔌 Socket closed for " + endpoint);
+            } catch (Exception closeError) {
+                System.out.println("⚠️ Error closing socket: " + closeError.getMessage());
+            }
+        }
+    }
+}
 
+    /**
+     * Reicht Nachrichten zwischen ROUTER (Clients) und DEALER (Worker) durch, mit allen
+     * Envelope-Frames; die Antwort findet über die Identity zurück zum richtigen Client
+     */
+    private static void proxy(ZMQ.Socket frontend, ZMQ.Socket backend) {
+        ZMQ.Poller poller = MessageUtils.getContext().createPoller(2);
+        int frontendIndex = poller.register(frontend, ZMQ.Poller.POLLIN);
+        int backendIndex = poller.register(backend, ZMQ.Poller.POLLIN);
+        
         while (running && !Thread.currentThread().isInterrupted()) {
-            try {
-                long requestStart = System.currentTimeMillis();
-                
-                // ROBUST message receiving with multiple fallbacks
-                String msg = null;
-                try {
-                    byte[] msgBytes = socket.recv(0); // Non-blocking
-                    if (msgBytes != null && msgBytes.length > 0) {
-                        // Try UTF-8 first
-                        msg = new String(msgBytes, java.nio.charset.StandardCharsets.UTF_8).trim();
-                        
-                        // Fallback: ASCII if UTF-8 fails
-                        if (msg.isEmpty() || msg.contains("�")) {
-                            msg = new String(msgBytes, java.nio.charset.StandardCharsets.US_ASCII).trim();
-                        }
-                        
-                        // Last resort: filter printable chars only
-                        if (msg.contains("�") || msg.length() == 0) {
-                            msg = new String(msgBytes).replaceAll("[^\\p{Print}]", "").trim();
-                        }
-                    }
-                } catch (Exception recvError) {
-                    System.out.println("[RECV_ERROR] " + recvError.getMessage());
-                    continue;
+            if (poller.poll(100) <= 0) {
+                continue;
+            }
+            if (poller.pollin(frontendIndex)) {
+                admit(frontend, backend);
+            }
+            if (poller.pollin(backendIndex)) {
+                forward(backend, frontend);
+            }
+        }
+        poller.close();
+    }
+
+    /**
+     * Wie proxy(), aber jede Anfrage geht an die Partition ihres Produkts; aufgeteilte
+     * Batches werden hier wieder zusammengesetzt (siehe PartitionRouter)
+     */
+    private static void proxyPartitioned(ZMQ.Socket frontend, ZMQ.Socket[] backends) {
+        ZMQ.Poller poller = MessageUtils.getContext().createPoller(backends.length + 1);
+        int frontendIndex = poller.register(frontend, ZMQ.Poller.POLLIN);
+        for (ZMQ.Socket backend : backends) {
+            poller.register(backend, ZMQ.Poller.POLLIN);
+        }
+        long lastExpire = System.currentTimeMillis();
+        
+        while (running && !Thread.currentThread().isInterrupted()) {
+            if (poller.poll(100) > 0) {
+                if (poller.pollin(frontendIndex)) {
+                    admitPartitioned(frontend, backends);
                 }
-                
-                if (msg == null || msg.isEmpty()) {
-                    System.out.println("[EMPTY_MSG] Received empty message, skipping");
-                    continue;
+                for (int p = 0; p < backends.length; p++) {
+                    if (poller.pollin(frontendIndex + 1 + p)) {
+                        collect(backends[p], frontend);
+                    }
                 }
-                
-                System.out.println("Received: " + msg);
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastExpire >= STATUS_INTERVAL_MS) {
+                router.expire(now);
+                lastExpire = now;
+            }
+        }
+        poller.close();
+    }
 
-                // Simulate network issues
-                simulateLatency(rand);
-                
-                if (simulateCrash(rand)) {
-                    System.out.println("[CRASH] Simulating crash: ignoring message");
-                    continue;
+    /**
+     * Wie admit(), die Lastabwehr greift pro Partition: eine überlastete Partition
+     * lehnt ab, während die anderen weiter reservieren
+     */
+    private static void admitPartitioned(ZMQ.Socket frontend, ZMQ.Socket[] backends) {
+        ZMsg request;
+        while ((request = ZMsg.recvMsg(frontend, ZMQ.DONTWAIT)) != null) {
+            ZFrame body = request.removeLast();
+            List<PartitionRouter.Part> parts = router.route(body != null ? body.getData() : new byte[0]);
+            byte[] arrival = ByteBuffer.allocate(Long.BYTES).putLong(System.currentTimeMillis()).array();
+
+            if (!parts.get(0).isSplit()) {
+                PartitionRouter.Part part = parts.get(0);
+                byte[] busy = admissions[part.partition].admit(part.body);
+                request.add(busy != null ? busy : part.body);
+                if (busy == null) {
+                    request.push(arrival);
                 }
+                request.send(busy != null ? frontend : backends[part.partition]);
+                continue;
+            }
 
-                String response = "UNKNOWN";
-                
+            // Aufgeteilter Batch: Teile als [arrival, leere Identity, empty, header, body]; Batches werden nie abgelehnt
+            List<byte[]> headers = router.open(request, body.getData(), parts);
+            EventLog.debug("[PARTITION] Split batch into {} part(s)", parts.size());
+            for (int i = 0; i < parts.size(); i++) {
+                PartitionRouter.Part part = parts.get(i);
+                admissions[part.partition].admit(part.body);
+                ZMsg message = new ZMsg();
+                message.add(arrival);
+                message.add(new byte[0]);
+                message.add(new byte[0]);
+                message.add(headers.get(i));
+                message.add(part.body);
+                message.send(backends[part.partition]);
+            }
+        }
+    }
+
+    /**
+     * Antworten der Partitionen: direkte gehen an den Client, Teile eines aufgeteilten
+     * Batches warten auf die übrigen
+     */
+    private static void collect(ZMQ.Socket backend, ZMQ.Socket frontend) {
+        ZMsg reply;
+        while ((reply = ZMsg.recvMsg(backend, ZMQ.DONTWAIT)) != null) {
+            if (!PartitionRouter.isPart(reply.peekFirst())) {
+                reply.send(frontend);
+                continue;
+            }
+            reply.pop();   // leere Identity
+            reply.pop();   // empty delimiter
+            byte[] header = reply.pop().getData();
+            byte[] body = reply.pop().getData();
+            reply.destroy();
+            ZMsg complete = router.complete(header, body);
+            if (complete != null) {
+                complete.send(frontend);
+            }
+        }
+    }
+
+    /**
+     * Neue Anfragen: bei voller Warteschlange werden Reservierungen sofort mit BUSY
+     * beantwortet, alle anderen bekommen ihre Ankunftszeit als erstes Frame mit
+     */
+    private static void admit(ZMQ.Socket frontend, ZMQ.Socket backend) {
+        ZMsg request;
+        while ((request = ZMsg.recvMsg(frontend, ZMQ.DONTWAIT)) != null) {
+            ZFrame body = request.peekLast();
+            byte[] busy = admissions[0].admit(body != null ? body.getData() : new byte[0]);
+            if (busy != null) {
+                // Envelope [identity, empty, (correlationId)] bleibt, nur der Inhalt wird ersetzt
+                request.removeLast().destroy();
+                request.add(busy);
+                request.send(frontend);
+                continue;
+            }
+            request.push(ByteBuffer.allocate(Long.BYTES).putLong(System.currentTimeMillis()).array());
+            request.send(backend);
+        }
+    }
+
+    private static void forward(ZMQ.Socket from, ZMQ.Socket to) {
+        byte[] frame;
+        while ((frame = from.recv(ZMQ.DONTWAIT)) != null) {
+            boolean more = from.hasReceiveMore();
+            to.send(frame, more ? ZMQ.SNDMORE : 0);
+            while (more) {
+                frame = from.recv(0);
+                more = from.hasReceiveMore();
+                to.send(frame, more ? ZMQ.SNDMORE : 0);
+            }
+        }
+    }
+
+    /**
+     * Ein Worker bearbeitet eine Anfrage nach der anderen; die simulierte Latenz
+     * blockiert nur ihn. Worker teilen sich keine Sperre: das Inventar reserviert per CAS
+     * pro Produkt, gleichzeitige Duplikate einer Operation regelt inFlight.
+     */
+    private static void runWorker(String backendEndpoint, AdmissionControl admission) {
+        ZMQ.Socket socket = MessageUtils.createSocket("DEALER", false, backendEndpoint);
+        socket.setReceiveTimeOut(100);
+        Random rand = new Random();
+
+        try {
+            while (running && !Thread.currentThread().isInterrupted()) {
                 try {
-                    // Parse message with robust error handling
-                    if (msg.startsWith("RESERVE:")) {
-                        response = handleReserve(msg);
+                    long requestStart = System.currentTimeMillis();
+                
+                    // Vom Proxy: [arrivalTime, identity, empty, (correlationId), message]
+                    // REQ clients send no correlationId, DEALER clients always do
+                    ZMsg request = ZMsg.recvMsg(socket);
+                    if (request == null) {
+                        continue;
                     }
-                    else if (msg.startsWith("COMMIT:")) {
-                        response = handleCommit(msg);
+                    boolean stale = admission.dequeue(ByteBuffer.wrap(request.pop().getData()).getLong());
+                    ZFrame identity = request.pop();
+                    request.pop(); // empty delimiter
+                    ZFrame correlationId = request.size() > 1 ? request.pop() : null;
+                    ZFrame body = request.pop();
+                    request.destroy();
+
+                    byte[] msgBytes = body != null ? body.getData() : null;
+                    if (msgBytes == null || msgBytes.length == 0) {
+                        EventLog.warn("[EMPTY_MSG] Received empty message, skipping");
+                        continue;
                     }
-                    else if (msg.startsWith("CANCEL:") || msg.startsWith("ROLLBACK:")) {
-                        response = handleRollback(msg);
+
+                    // Binärformat am Magic-Byte erkennen: Prüfsumme statt Zeichen-Reparatur
+                    boolean binary = WireCodec.isBinary(msgBytes);
+                    String msg = binary ? null : decodeText(msgBytes);
+                    if (!binary && msg.isEmpty()) {
+                        EventLog.warn("[EMPTY_MSG] Received empty message, skipping");
+                        continue;
                     }
-                    else if (msg.equals("HEALTH_CHECK")) {
-                        response = "HEALTHY";
-                        System.out.println("[HEALTH] Health check responded");
+                
+                    if (EventLog.isEnabled(EventLog.Level.DEBUG)) {
+                        EventLog.debug("Received: {}", binary ? describeBinary(msgBytes) : msg);
                     }
-                    else if (msg.startsWith("ORDER:")) {
-                        String product = msg.length() > 6 ? msg.substring(6) : "unknown";
-                        boolean hasProduct = hasStock(product, 1);
-                        response = hasProduct ? "CONFIRMED" : "REJECTED";
-                        System.out.println("[LEGACY] " + product + " → " + response);
+
+                    // Zu lange in der Warteschlange: der Marketplace hat aufgegeben, nichts mehr reservieren
+                    byte[] busy = stale ? AdmissionControl.busyReply(msgBytes) : null;
+                    if (busy != null) {
+                        admission.recordStale();
+                        EventLog.debug("[BUSY] Rejected stale reservation: {}", binary ? describeBinary(msgBytes) : msg);
+                        sendReply(socket, identity, correlationId, busy);
+                        continue;
                     }
-                    else {
-                        System.out.println("[UNKNOWN] Unknown message format: " + msg);
-                        response = "ERROR:UNKNOWN_FORMAT";
+
+                    // Simulate network issues
+                    simulateLatency(rand);
+                
+                    if (simulateCrash(rand)) {
+                        EventLog.info("[CRASH] Simulating crash: ignoring message");
+                        continue;
                     }
-                    
-                } catch (Exception processError) {
-                    System.out.println("[PROCESS_ERROR] Failed to process '" + msg + "': " + processError.getMessage());
-                    response = "ERROR:" + processError.getMessage();
-                }
 
-                // Simulate lost acknowledgments
-                if (simulateLostAck(rand)) {
-                    System.out.println("[LOST_ACK] Simulating lost acknowledgment: not replying");
-                    continue;
-                }
+                    byte[] responseBytes;
+                    String response;
+                    if (binary) {
+                        if (WireCodec.isBatch(msgBytes)) {
+                            responseBytes = handleBinaryBatch(msgBytes, stale ? admission : null);
+                            response = "BATCH (binary)";
+                        } else {
+                            WireMessage reply = handleBinary(msgBytes);
+                            responseBytes = WireCodec.encode(reply);
+                            response = reply.toString();
+                        }
+                    } else {
+                        // Ensure response is valid ASCII
+                        response = (BatchMessage.isBatch(msg) ? handleBatch(msg, stale ? admission : null) : handleText(msg)).replaceAll("[^\\p{ASCII}]", "");
+                        responseBytes = response.getBytes(java.nio.charset.StandardCharsets.UTF_8);
+                    }
+
+                    // Simulate lost acknowledgments
+                    if (simulateLostAck(rand)) {
+                        EventLog.info("[LOST_ACK] Simulating lost acknowledgment: not replying");
+                        continue;
+                    }
                 
-                // ROBUST response sending
-                try {
-                    // Ensure response is valid ASCII
-                    response = response.replaceAll("[^\\p{ASCII}]", "");
-                    
-                    byte[] responseBytes = response.getBytes(java.nio.charset.StandardCharsets.UTF_8);
-                    socket.send(responseBytes, 0);
+                    // ROBUST response sending
+                    try {
+                        sendReply(socket, identity, correlationId, responseBytes);
                     
-                    long responseTime = System.currentTimeMillis() - requestStart;
-                    System.out.println("[MONITOR] Response: " + response + " in " + responseTime + "ms");
+                        long responseTime = System.currentTimeMillis() - requestStart;
+                        EventLog.debug("[MONITOR] Response: {} in {}ms", response, responseTime);
                     
-                } catch (Exception sendError) {
-                    System.out.println("[SEND_ERROR] Failed to send response: " + sendError.getMessage());
-                    continue;
-                }
+                    } catch (Exception sendError) {
+                        EventLog.error("[SEND_ERROR] Failed to send response: {}", sendError.getMessage());
+                        continue;
+                    }
                 
-                // Show inventory (except for health checks)
-                if (!msg.equals("HEALTH_CHECK")) {
-                    printInventoryStatus();
-                }
+                    // Show inventory (except for health checks)
+                    if (!response.startsWith("HEALTHY")) {
+                        printInventoryStatus();
+                    }
                 
-            } catch (Exception outerError) {
-                System.out.println(" [FATAL] Outer loop error: " + outerError.getMessage());
-                outerError.printStackTrace();
+                } catch (Exception outerError) {
+                    EventLog.error("[FATAL] Outer loop error: {}", outerError.getMessage());
+                    outerError.printStackTrace();
                 
-                // Try to recover
-                try { Thread.sleep(100); } catch (InterruptedException ie) { break; }
+                    // Try to recover
+                    try { Thread.sleep(100); } catch (InterruptedException ie) { break; }
+                }
             }
+        } finally {
+            socket.close();
+        }
+    }
+
+    private static void sendReply(ZMQ.Socket socket, ZFrame identity, ZFrame correlationId, byte[] responseBytes) {
+        ZMsg reply = new ZMsg();
+        reply.add(identity);
+        reply.add(new byte[0]);
+        if (correlationId != null) {
+            reply.add(correlationId);
         }
+        reply.add(responseBytes);
+        reply.send(socket);
+    }
+
+    /**
+     * Textzeile mit Fallbacks für beschädigte Zeichen (nur Legacy-Textformat)
+     */
+    private static String decodeText(byte[] msgBytes) {
+        // Try UTF-8 first
+        String msg = new String(msgBytes, java.nio.charset.StandardCharsets.UTF_8).trim();
         
-    } catch (Exception startupError) {
-        System.out.println(" [STARTUP_ERROR] " + startupError.getMessage());
-        startupError.printStackTrace();
+        // Fallback: ASCII if UTF-8 fails
+        if (msg.isEmpty() || msg.contains("�")) {
+            msg = new String(msgBytes, java.nio.charset.StandardCharsets.US_ASCII).trim();
+        }
         
-    } finally {
-        if (socket != null) {
+        // Last resort: filter printable chars only
+        if (msg.contains("�") || msg.length() == 0) {
+            msg = new String(msgBytes).replaceAll("[^\\p{Print}]", "").trim();
+        }
+        return msg;
+    }
+
+    private static String describeBinary(byte[] msgBytes) {
+        if (WireCodec.isBatch(msgBytes)) {
+            return "BATCH (binary, " + msgBytes.length + " bytes)";
+        }
+        return WireCodec.decodeAny(msgBytes) + " (binary, " + msgBytes.length + " bytes)";
+    }
+
+    /**
+     * Legacy-Textprotokoll: gleiche Handler wie binär, Antwort als Textzeile
+     */
+    private static String handleText(String msg) {
+        try {
+            if (msg.equals("HEALTH_CHECK")) {
+                // Angebot fürs Binärformat; alte Marketplaces prüfen nur auf "HEALTHY"
+                EventLog.debug("[HEALTH] Health check responded");
+                return "HEALTHY:wire=" + WireCodec.VERSION;
+            }
+            if (msg.equals(FeedMessage.SNAPSHOT_REQUEST)) {
+                EventLog.debug("[FEED] Snapshot requested");
+                return feed != null ? feed.snapshot() : "ERROR:FEED_DISABLED";
+            }
+            if (msg.startsWith("ORDER:")) {
+                String product = msg.length() > 6 ? msg.substring(6) : "unknown";
+                String response = hasStock(product, 1) ? "CONFIRMED" : "REJECTED";
+                EventLog.info("[LEGACY] {} → {}", product, response);
+                return response;
+            }
+            if (isOrderOperation(msg)) {
+                return handleOperation(WireCodec.parseText(msg)).toString();
+            }
+            EventLog.warn("[UNKNOWN] Unknown message format: {}", msg);
+            return "ERROR:UNKNOWN_FORMAT";
+        } catch (Exception processError) {
+            EventLog.error("[PROCESS_ERROR] Failed to process '{}': {}", msg, processError.getMessage());
+            return "ERROR:" + processError.getMessage();
+        }
+    }
+
+    /**
+     * Binäre Einzelnachricht; bei falscher Prüfsumme gibt es ERROR statt einer geratenen Reparatur
+     */
+    private static WireMessage handleBinary(byte[] msgBytes) {
+        try {
+            return handleRequest(WireCodec.decode(msgBytes));
+        } catch (IllegalArgumentException corrupt) {
+            EventLog.warn("[CORRUPT] Dropped binary message: {}", corrupt.getMessage());
+            return WireMessage.error("CORRUPTED:" + corrupt.getMessage());
+        }
+    }
+
+    private static WireMessage handleRequest(WireMessage request) {
+        switch (request.op) {
+            case RESERVE:
+            case COMMIT:
+            case CANCEL:
+                return handleOperation(request);
+            case HEALTH_CHECK:
+                EventLog.debug("[HEALTH] Health check responded");
+                return WireMessage.healthy();
+            default:
+                EventLog.warn("[UNKNOWN] Unexpected message: {}", request);
+                return WireMessage.error("UNKNOWN_FORMAT");
+        }
+    }
+
+    /**
+     * Wendet alle Operationen eines Batches der Reihe nach an
+     * und antwortet mit einem Batch gleicher Länge und Reihenfolge;
+     * mit staleAt (Anfrage zu lange in der Warteschlange) werden nur die Reservierungen mit BUSY abgelehnt
+     */
+    private static String handleBatch(String msg, AdmissionControl staleAt) {
+        List<String> operations = BatchMessage.decode(msg);
+        List<String> replies = new ArrayList<>(operations.size());
+        
+        for (String operation : operations) {
+            String reply;
             try {
-                socket.close();
-                System.out.println("🔌 Socket closed for " + endpoint);
-            } catch (Exception closeError) {
-                System.out.println("⚠️ Error closing socket: " + closeError.getMessage());
+                // HEALTH_CHECK oder INVENTORY_SNAPSHOT können mitgebündelt sein, verschachtelte Batches nicht
+                if (staleAt != null && operation.startsWith("RESERVE:")) {
+                    staleAt.recordStale();
+                    reply = WireCodec.BUSY_TEXT;
+                } else {
+                    reply = isOrderOperation(operation)
+                            ? handleOperation(WireCodec.parseText(operation)).toString()
+                            : BatchMessage.isBatch(operation) ? "ERROR:UNKNOWN_FORMAT" : handleText(operation);
+                }
+            } catch (Exception e) {
+                reply = "ERROR:" + e.getMessage();
             }
+            replies.add(reply);
         }
+        
+        EventLog.debug("[BATCH] Processed {} operations", operations.size());
+        return BatchMessage.encode(replies);
     }
-}
 
-    private static synchronized String handleReserve(String msg) {
-        String[] parts = msg.split(":");
-        if (parts.length >= 4) {
-            String orderId = parts[1];
-            String product = parts[2];
-            int quantity = Integer.parseInt(parts[3]);
-            
-            // Echte Bestandsprüfung
-            if (canReserve(product, quantity)) {
-                // Reserviere den Bestand
-                int currentReserved = reservedStock.getOrDefault(product, 0);
-                reservedStock.put(product, currentReserved + quantity);
-                
-                // Speichere Reservierung für späteren Commit/Rollback
-                reservations.put(orderId, quantity);
-                
-                System.out.println("[RESERVE] ✅ Confirmed order " + orderId + 
-                                 " for " + quantity + "x " + product);
-                return "CONFIRMED:" + orderId;
+    private static byte[] handleBinaryBatch(byte[] msgBytes, AdmissionControl staleAt) {
+        List<byte[]> operations;
+        try {
+            operations = WireCodec.decodeBatch(msgBytes);
+        } catch (IllegalArgumentException corrupt) {
+            EventLog.warn("[CORRUPT] Dropped binary batch: {}", corrupt.getMessage());
+            return WireCodec.encode(WireMessage.error("CORRUPTED:" + corrupt.getMessage()));
+        }
+        List<byte[]> replies = new ArrayList<>(operations.size());
+        for (byte[] operation : operations) {
+            if (staleAt != null && WireCodec.isReserve(operation)) {
+                staleAt.recordStale();
+                replies.add(WireCodec.encode(WireMessage.busy()));
             } else {
-                System.out.println("[RESERVE] ❌ Rejected order " + orderId + 
-                                 " for " + quantity + "x " + product + " (insufficient stock)");
-                return "REJECTED:" + orderId;
+                replies.add(WireCodec.encode(handleBinary(operation)));
             }
         }
-        return "ERROR:INVALID_RESERVE_FORMAT";
+        
+        EventLog.debug("[BATCH] Processed {} binary operations", operations.size());
+        return WireCodec.encodeBatch(replies);
     }
 
-    private static synchronized String handleCommit(String msg) {
-        String[] parts = msg.split(":");
-        if (parts.length >= 4) {
-            String orderId = parts[1];
-            String product = parts[2];
-            int quantity = Integer.parseInt(parts[3]);
-            
-            // Entferne aus Inventar (war bereits reserviert)
-            int currentStock = inventory.getOrDefault(product, 0);
-            inventory.put(product, Math.max(0, currentStock - quantity));
-            
-            // Entferne aus Reservierungen
-            int currentReserved = reservedStock.getOrDefault(product, 0);
-            reservedStock.put(product, Math.max(0, currentReserved - quantity));
-            
-            reservations.remove(orderId);
-            
-            System.out.println("[COMMIT] ✅ Committed order " + orderId + 
-                             " for " + quantity + "x " + product);
-            return "COMMITTED:" + orderId;
+    private static boolean isOrderOperation(String msg) {
+        return msg.startsWith("RESERVE:") || msg.startsWith("COMMIT:")
+            || msg.startsWith("CANCEL:") || msg.startsWith("ROLLBACK:");
+    }
+
+    /**
+     * RESERVE/COMMIT/CANCEL mit Duplikaterkennung: eine wiederholte Anfrage
+     * (z.B. nach verlorenem ACK) bekommt die ursprüngliche Antwort, ohne das
+     * Inventar ein zweites Mal zu verändern. Ohne globale Sperre: wer eine
+     * (orderId, Operation) zuerst beansprucht, führt sie aus; erst danach wird
+     * der Cache geprüft, damit ein gerade fertig gewordenes Duplikat nicht übersehen wird.
+     */
+    private static WireMessage handleOperation(WireMessage request) {
+        if (request.op == WireMessage.Op.ERROR) {
+            // Textzeile war nicht lesbar
+            return request;
+        }
+        String operation = request.op.name();
+        String key = operation + ":" + request.orderId;
+        long startNanos = System.nanoTime();
+
+        CompletableFuture<WireMessage> claim = new CompletableFuture<>();
+        CompletableFuture<WireMessage> first = inFlight.putIfAbsent(key, claim);
+        if (first != null) {
+            EventLog.info("[DUPLICATE] 🔁 {} for order {} waits for first attempt", operation, request.orderId);
+            return first.join();
+        }
+
+        try {
+            WireMessage response = responseCache.get(request.orderId, operation);
+            if (response != null) {
+                EventLog.info("[DUPLICATE] 🔁 {} for order {} answered from cache", operation, request.orderId);
+            } else {
+                if (request.op == WireMessage.Op.RESERVE) {
+                    response = handleReserve(request);
+                } else if (request.op == WireMessage.Op.COMMIT) {
+                    response = handleCommit(request);
+                } else {
+                    response = handleRollback(request);
+                }
+                // Erst antworten, wenn die Änderung im Journal auf der Platte ist
+                if (journal != null && !awaitDurable(journal.sync())) {
+                    EventLog.error("[JOURNAL] ❌ {} for order {} not durable", operation, request.orderId);
+                    response = WireMessage.error("JOURNAL_UNAVAILABLE");
+                }
+                if (response.op != WireMessage.Op.ERROR) {
+                    responseCache.put(request.orderId, operation, response);
+                }
+            }
+            claim.complete(response);
+            return response;
+        } catch (RuntimeException e) {
+            claim.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key);
+            serviceTime.get(request.op).recordSince(startNanos);
         }
-        return "ERROR:INVALID_COMMIT_FORMAT";
     }
 
-    private static synchronized String handleRollback(String msg) {
-        String[] parts = msg.split(":");
-        if (parts.length >= 4) {
-            String orderId = parts[1];
-            String product = parts[2];
-            int quantity = Integer.parseInt(parts[3]);
-            
-            // Gebe reservierten Bestand frei
-            int currentReserved = reservedStock.getOrDefault(product, 0);
-            reservedStock.put(product, Math.max(0, currentReserved - quantity));
-            
-            reservations.remove(orderId);
+    /**
+     * RESERVE(orderId, product, qty, partial)
+     * Mit partial wird bei zu wenig Bestand der verfügbare Teil reserviert
+     * und mit PARTIAL(orderId, granted, requested) beantwortet.
+     */
+    private static WireMessage handleReserve(WireMessage request) {
+        String orderId = request.orderId;
+        String product = request.product;
+        int quantity = request.quantity;
+        
+        // Echte Bestandsprüfung und Reservierung in einem CAS
+        int granted = inventory.reserve(product, quantity, request.partial);
+        
+        if (granted > 0) {
+            // Speichere Reservierung für späteren Commit/Rollback
+            // Als Lease: ohne COMMIT/CANCEL gibt der Seller den Bestand nach Ablauf selbst frei
+            Reservation lease = new Reservation(orderId, product, granted,
+                                                System.currentTimeMillis() + config.reservationTtlMs);
+            if (journal != null) {
+                journal.logReserve(orderId, product, granted, lease.expiresAt);
+            }
+            reservations.put(orderId, lease);
+            leaseWheel.schedule(lease, lease.expiresAt);
+            stockChanged(product);
             
-            System.out.println("[ROLLBACK] ↩️ Cancelled order " + orderId + 
-                             " for " + quantity + "x " + product);
-            return "ROLLED_BACK:" + orderId;
+            if (granted == quantity) {
+                EventLog.info("[RESERVE] ✅ Confirmed order {} for {}x {}", orderId, quantity, product);
+                return WireMessage.confirmed(orderId, granted, stockHint(product));
+            }
+            EventLog.info("[RESERVE] ◐ Partially confirmed order {}: granted {} of {}x {}", orderId, granted, quantity, product);
+            return WireMessage.partial(orderId, granted, quantity, stockHint(product));
+        } else {
+            EventLog.info("[RESERVE] ❌ Rejected order {} for {}x {} (insufficient stock)", orderId, quantity, product);
+            return WireMessage.rejected(orderId, stockHint(product));
         }
-        return "ERROR:INVALID_ROLLBACK_FORMAT";
     }
 
-    private static boolean canReserve(String product, int quantity) {
-        int available = inventory.getOrDefault(product, 0);
-        int reserved = reservedStock.getOrDefault(product, 0);
-        int actuallyAvailable = available - reserved;
+    /**
+     * COMMIT(orderId, product, qty) - committet qty Stück, ein reservierter Rest
+     * dieser Bestellung wird dabei automatisch freigegeben
+     */
+    private static WireMessage handleCommit(WireMessage request) {
+        String orderId = request.orderId;
+        String product = request.product;
+        int quantity = request.quantity;
+        
+        // remove() ist atomar: COMMIT und CANCEL derselben Bestellung buchen nie beide
+        Reservation held = reservations.remove(orderId);
+        if (held != null && held.isExpired(System.currentTimeMillis())) {
+            // Abgelaufen, aber vom Timing-Wheel noch nicht erfasst: gleiche Entscheidung wie danach
+            releaseExpired(held);
+            held = null;
+        }
+        if (held == null && expiredLeases.containsKey(orderId)) {
+            expiredCommitsRejected.incrementAndGet();
+            EventLog.warn("[COMMIT] ⏰ Lease for order {} expired, commit rejected", orderId);
+            return WireMessage.rejected(orderId, stockHint(product));
+        }
+        if (held == null) {
+            // Nie reserviert oder schon abgeschlossen: ohne Lease gibt es nichts zu committen, die Saga muss das erfahren.
+            // Wiederholungen eines erfolgreichen COMMIT beantwortet vorher der Antwort-Cache.
+            EventLog.warn("[COMMIT] ❓ No reservation for order {}, commit rejected", orderId);
+            return WireMessage.rejected(orderId, stockHint(product));
+        }
+        int reserved = held.quantity;
+        int committed = Math.min(quantity, reserved);
+        
+        // Aus Bestand und Reservierungen entfernen (inkl. nicht benötigtem Rest)
+        inventory.commit(held.productId, committed, reserved);
+        if (journal != null) {
+            journal.logCommit(orderId, held.productId, committed, reserved);
+        }
+        stockChanged(held.productId);
         
-        return actuallyAvailable >= quantity;
+        if (reserved > committed) {
+            EventLog.info("[COMMIT] ✅ Committed order {} for {}x {} (released {})", orderId, committed, product,
+                          reserved - committed);
+        } else {
+            EventLog.info("[COMMIT] ✅ Committed order {} for {}x {}", orderId, committed, product);
+        }
+        return WireMessage.committed(orderId, committed, stockHint(product));
+    }
+
+    private static WireMessage handleRollback(WireMessage request) {
+        String orderId = request.orderId;
+        String product = request.product;
+        
+        // Gebe reservierten Bestand frei (tatsächlich reservierte Menge, wiederholtes CANCEL ist ein No-op)
+        Reservation held = reservations.remove(orderId);
+        int released = held != null ? held.quantity : 0;
+        if (held != null) {
+            inventory.release(held.productId, released);
+            if (journal != null) {
+                journal.logRelease(orderId, held.productId, released);
+            }
+            stockChanged(held.productId);
+        }
+        
+        EventLog.info("[ROLLBACK] ↩️ Cancelled order {} for {}x {}", orderId, released, product);
+        return WireMessage.rolledBack(orderId, stockHint(product));
+    }
+
+    /**
+     * Vom Timing-Wheel aufgerufen; wurde die Lease inzwischen committet oder storniert,
+     * ist sie nicht mehr in reservations und es passiert nichts
+     */
+    private static void expireLease(Reservation lease) {
+        if (reservations.remove(lease.orderId, lease)) {
+            releaseExpired(lease);
+        }
+    }
+
+    private static void releaseExpired(Reservation lease) {
+        expiredLeases.put(lease.orderId, Boolean.TRUE);
+        inventory.release(lease.productId, lease.quantity);
+        if (journal != null) {
+            journal.logRelease(lease.orderId, lease.productId, lease.quantity);
+        }
+        stockChanged(lease.productId);
+        leasesExpired.incrementAndGet();
+        EventLog.info("[LEASE] ⏰ Reservation for order {} expired, released {}x {}", lease.orderId,
+                      lease.quantity, lease.productId);
+    }
+
+    private static void stockChanged(String product) {
+        if (feed != null) {
+            feed.changed(product);
+        }
+    }
+
+    /**
+     * Restbestand als Hinweis für den Availability-Cache der Marketplaces
+     */
+    private static int stockHint(String product) {
+        return Math.max(0, inventory.available(product));
     }
 
     private static boolean hasStock(String product, int quantity) {
-        return canReserve(product, quantity);
+        return inventory.available(product) >= quantity;
     }
 
-    private static void initializeInventory() {
-        if (config.products != null) {
-            inventory.putAll(config.products);
-        } else {
-            // Default inventory
-            inventory.put("laptop", 50);
-            inventory.put("smartphone", 30);
-            inventory.put("tablet", 20);
+    private static void initializeInventory(String endpoint) {
+        Map<String, Integer> products = config.products != null
+                ? config.products
+                : Map.of("laptop", 50, "smartphone", 30, "tablet", 20); // Default inventory
+        if (!config.journalEnabled) {
+            inventory = new ProductInventory(products);
+            return;
         }
-        
-        // Initialize reserved stock tracking
-        for (String product : inventory.keySet()) {
-            reservedStock.put(product, 0);
+
+        // Ein Journal pro Seller-Endpoint, damit mehrere Seller im selben Verzeichnis laufen können
+        String directory = Paths.get(config.journalDirectory, endpoint.replaceAll("[^A-Za-z0-9]+", "_")).toString();
+        try {
+            journal = new InventoryJournal(directory, config.journalFsync, config.journalSnapshotEvery);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open inventory journal in " + directory, e);
+        }
+
+        InventoryJournal.State recovered = journal.getRecoveredState();
+        if (recovered == null) {
+            inventory = new ProductInventory(products);
+            products.forEach(journal::logStock);
+            return;
+        }
+
+        // Neue Produkte aus der YAML übernehmen, der Bestand bekannter Produkte kommt aus dem Journal
+        products.forEach((product, quantity) -> {
+            if (!recovered.totals.containsKey(product)) {
+                recovered.totals.put(product, quantity);
+                journal.logStock(product, quantity);
+            }
+        });
+        inventory = recovered.toInventory();
+        // Leases laufen weiter; bereits abgelaufene gibt das Timing-Wheel beim nächsten Tick frei
+        for (Reservation lease : recovered.leases.values()) {
+            reservations.put(lease.orderId, lease);
+            leaseWheel.schedule(lease, lease.expiresAt);
+        }
+        System.out.println("💾 Inventory recovered from journal: " + journal.getRecoverySummary());
+    }
+
+    /**
+     * Metrik-Endpunkt auf Seller-Port + metricsPortOffset; gelesen wird nur beim Scrape,
+     * aus Atomics und lock-freien Maps, die Worker warten nie darauf
+     */
+    private static void startMetrics(String endpoint) {
+        MetricsRegistry registry = new MetricsRegistry("seller");
+        registry.gauge("queue_depth", "Requests waiting for a worker, per partition", "partition", () -> {
+            Map<String, Integer> depth = new TreeMap<>();
+            for (int p = 0; p < admissions.length; p++) {
+                depth.put(String.valueOf(p), admissions[p].getQueued());
+            }
+            return depth;
+        });
+        registry.counter("requests_admitted_total", "Requests handed to a worker", () -> {
+            long admitted = 0;
+            for (AdmissionControl admission : admissions) {
+                admitted += admission.getAdmitted();
+            }
+            return admitted;
+        });
+        registry.counter("busy_rejections_total", "Reservations answered with REJECTED:BUSY", "reason", () -> {
+            long queueFull = 0;
+            long stale = 0;
+            for (AdmissionControl admission : admissions) {
+                queueFull += admission.getRejectedQueueFull();
+                stale += admission.getRejectedStale();
+            }
+            return Map.of("queue_full", queueFull, "stale", stale);
+        });
+        registry.gauge("inventory_total", "Units in stock, including reserved ones", "product",
+                       () -> perProduct(inventory::total));
+        registry.gauge("inventory_reserved", "Units held by open reservations", "product",
+                       () -> perProduct(inventory::reserved));
+        registry.gauge("inventory_available", "Units that can still be reserved", "product",
+                       () -> perProduct(inventory::available));
+        registry.gauge("leases_active", "Reservations waiting for COMMIT or CANCEL", reservations::size);
+        registry.counter("leases_expired_total", "Reservations released by lease expiry", leasesExpired::get);
+        registry.counter("late_commits_rejected_total", "COMMITs that arrived after the lease expired",
+                         expiredCommitsRejected::get);
+
+        int port = Integer.parseInt(endpoint.substring(endpoint.lastIndexOf(':') + 1)) + config.metricsPortOffset;
+        try {
+            metricsServer = new MetricsServer(port, registry);
+            System.out.println("📊 Metrics at http://0.0.0.0:" + port + "/metrics");
+        } catch (IOException e) {
+            // Ohne Metriken weiterarbeiten statt keine Anfragen anzunehmen
+            System.out.println("⚠️ Metrics endpoint not started on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    private static Map<String, Integer> perProduct(ToIntFunction<String> value) {
+        Map<String, Integer> values = new TreeMap<>();
+        for (String product : inventory.products()) {
+            values.put(product, value.applyAsInt(product));
+        }
+        return values;
+    }
+
+    private static boolean awaitDurable(CompletableFuture<Void> durable) {
+        try {
+            durable.join();
+            return true;
+        } catch (Exception e) {
+            return false;
         }
     }
 
+    /**
+     * Bei DEBUG nach jeder Anfrage, sonst höchstens einmal pro STATUS_INTERVAL_MS;
+     * der Text wird nur gebaut, wenn er auch geschrieben wird
+     */
     private static void printInventoryStatus() {
-        System.out.println("📦 INVENTORY STATUS:");
-        for (String product : inventory.keySet()) {
-            int total = inventory.get(product);
-            int reserved = reservedStock.getOrDefault(product, 0);
+        if (!EventLog.isEnabled(EventLog.Level.DEBUG)) {
+            long now = System.currentTimeMillis();
+            long last = lastStatusPrint.get();
+            if (!EventLog.isEnabled(EventLog.Level.INFO) || now - last < STATUS_INTERVAL_MS
+                    || !lastStatusPrint.compareAndSet(last, now)) {
+                return;
+            }
+        }
+        StringBuilder status = new StringBuilder("📦 INVENTORY STATUS:");
+        for (String product : inventory.products()) {
+            int total = inventory.total(product);
+            int reserved = inventory.reserved(product);
             int available = total - reserved;
-            System.out.println("   " + product + ": " + available + " available (" + 
-                             total + " total, " + reserved + " reserved)");
+            status.append("\n   ").append(product).append(": ").append(available).append(" available (")
+                  .append(total).append(" total, ").append(reserved).append(" reserved)");
+        }
+        status.append("\n   ").append(responseCache);
+        status.append("\n   Leases: ").append(reservations.size()).append(" active, ").append(leasesExpired.get())
+              .append(" expired, ").append(expiredCommitsRejected.get()).append(" late commit(s) rejected, ")
+              .append(leaseWheel);
+        if (journal != null) {
+            status.append("\n   ").append(journal);
+        }
+        if (feed != null) {
+            status.append("\n   ").append(feed);
+        }
+        for (int p = 0; p < admissions.length; p++) {
+            status.append("\n   ").append(admissions.length > 1 ? "[P" + p + "] " : "").append(admissions[p]);
+        }
+        if (router != null) {
+            // Nur Zähler, die der Proxy-Thread schreibt; eine leicht veraltete Anzeige ist hier in Ordnung
+            status.append("\n   ").append(router);
         }
+        EventLog.info("{}", status.toString());
     }
 
     // Simulation methods unchanged...
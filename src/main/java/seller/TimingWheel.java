@@ -0,0 +1,130 @@
+package seller;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for many long-lived timeouts.
+ *
+ * The wheel has a power-of-two number of slots, each covering tickMs. A
+ * timeout goes into slot (deadline tick mod slots) and carries the number of
+ * full revolutions it still has to wait. Scheduling is a lock-free enqueue.
+ * Every tick, one thread moves new timeouts into their slots and walks only
+ * the current slot, so the cost per tick is independent of how many
+ * timeouts are outstanding.
+ *
+ * There is no cancel: callers check on expiry whether the item is still
+ * live, which keeps the hot path free of removals.
+ */
+public class TimingWheel<T> {
+    private final long tickMs;
+    private final int mask;
+    private final Queue<Timeout<T>>[] slots;
+    private final Queue<Timeout<T>> incoming = new ConcurrentLinkedQueue<>();
+    private final Consumer<T> onExpire;
+    private final ScheduledExecutorService ticker;
+    private final long startMs;
+    private long tick = 0;
+
+    private final AtomicLong scheduled = new AtomicLong(0);
+    private final AtomicLong fired = new AtomicLong(0);
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tickMs, int slotCount, Consumer<T> onExpire) {
+        this.tickMs = Math.max(1, tickMs);
+        int size = Integer.highestOneBit(Math.max(2, slotCount - 1) << 1);
+        this.mask = size - 1;
+        this.slots = new Queue[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.onExpire = onExpire;
+        this.startMs = System.currentTimeMillis();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "timing-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+        ticker.scheduleAtFixedRate(this::advance, this.tickMs, this.tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void schedule(T item, long deadlineMs) {
+        scheduled.incrementAndGet();
+        incoming.add(new Timeout<>(item, deadlineMs));
+    }
+
+    /**
+     * Holt verspätete Ticks nach (z.B. nach GC-Pausen), damit nichts zu spät abläuft
+     */
+    private void advance() {
+        try {
+            long now = System.currentTimeMillis();
+            while (startMs + (tick + 1) * tickMs <= now) {
+                tick++;
+                transferIncoming();
+                expire(slots[(int) (tick & mask)], now);
+            }
+        } catch (RuntimeException e) {
+            System.out.println("⚠️ Timing wheel tick failed: " + e.getMessage());
+        }
+    }
+
+    private void transferIncoming() {
+        Timeout<T> timeout;
+        while ((timeout = incoming.poll()) != null) {
+            // Frühestens im aktuellen Tick fällig, nie in der Vergangenheit einsortieren
+            long deadlineTick = Math.max(tick, (timeout.deadlineMs - startMs + tickMs - 1) / tickMs);
+            timeout.rounds = (deadlineTick - tick) / slots.length;
+            slots[(int) (deadlineTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Queue<Timeout<T>> slot, long now) {
+        Iterator<Timeout<T>> iterator = slot.iterator();
+        while (iterator.hasNext()) {
+            Timeout<T> timeout = iterator.next();
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                continue;
+            }
+            iterator.remove();
+            fired.incrementAndGet();
+            onExpire.accept(timeout.item);
+        }
+    }
+
+    /**
+     * Noch nicht abgelaufene Einträge (inkl. bereits erledigter, die noch im Rad stehen)
+     */
+    public long getPending() {
+        return scheduled.get() - fired.get();
+    }
+
+    public void close() {
+        ticker.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TimingWheel{slots=%d, tick=%dms, pending=%d, fired=%d}",
+                           slots.length, tickMs, getPending(), fired.get());
+    }
+
+    private static class Timeout<T> {
+        final T item;
+        final long deadlineMs;
+        long rounds;
+
+        Timeout(T item, long deadlineMs) {
+            this.item = item;
+            this.deadlineMs = deadlineMs;
+        }
+    }
+}